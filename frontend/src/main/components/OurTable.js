@@ -1,25 +1,102 @@
 import React from "react";
-import { useTable, useSortBy } from 'react-table'
+import { useTable, useSortBy, usePagination } from 'react-table'
 import { Table, Button } from "react-bootstrap";
+import { visibleRange } from "main/utils/virtualWindow";
 
-export default function OurTable({ columns, data, testid = "testid" }) {
+// By default OurTable sorts the data it is given in the browser.
+//
+// Pass fetchData to switch to server-side mode: sorting and pagination are
+// then left to the backend, and fetchData({ pageIndex, pageSize, sortBy })
+// is called whenever the user changes page or sort order.  data should be
+// the rows of the current page only, and pageCount the total number of
+// pages (or -1 if unknown).  See useBackendPage in main/utils/useBackend.
+//
+// Pass virtualized to only mount the rows that are scrolled into view.  The
+// table is then shown in a scrolling box height pixels tall, and every row
+// must be rowHeight pixels tall; empty spacer rows stand in for the rest.
+
+export default function OurTable({
+  columns, data, testid = "testid",
+  fetchData, pageCount = -1, initialPageSize = 10,
+  virtualized = false, height = 600, rowHeight = 41, overscan = 10,
+}) {
+
+  const serverSide = fetchData !== undefined;
 
   const {
     getTableProps,
     getTableBodyProps,
     headerGroups,
     rows,
+    page,
     prepareRow,
-  } = useTable({ columns, data }, useSortBy)
+    canPreviousPage,
+    canNextPage,
+    previousPage,
+    nextPage,
+    gotoPage,
+    state: { pageIndex, pageSize, sortBy },
+  } = useTable(
+    serverSide
+      ? {
+        columns,
+        data,
+        manualSortBy: true,
+        manualPagination: true,
+        autoResetPage: false,
+        autoResetSortBy: false,
+        pageCount,
+        initialState: { pageIndex: 0, pageSize: initialPageSize },
+      }
+      : { columns, data },
+    // the plugin list must not change between renders; serverSide is fixed for the life of a table
+    ...(serverSide ? [useSortBy, usePagination] : [useSortBy])
+  )
 
-  return (
+  // A new sort order starts again from the first page; going back to page 0
+  // re-runs this effect, so only one request is made per change.
+  const lastSortBy = React.useRef(sortBy);
+  React.useEffect(() => {
+    if (!serverSide) {
+      return;
+    }
+    const sortChanged = lastSortBy.current !== sortBy;
+    lastSortBy.current = sortBy;
+    if (sortChanged && pageIndex !== 0) {
+      gotoPage(0);
+      return;
+    }
+    fetchData({ pageIndex, pageSize, sortBy });
+  }, [serverSide, fetchData, gotoPage, pageIndex, pageSize, sortBy]);
+
+  const [scrollTop, setScrollTop] = React.useState(0);
+
+  const allRows = serverSide ? page : rows;
+  let visibleRows = allRows;
+  let spaceAbove = 0;
+  let spaceBelow = 0;
+  if (virtualized) {
+    const range = visibleRange(scrollTop, height, rowHeight, allRows.length, overscan);
+    // start on an even row (and always render the spacer above) so the
+    // striping doesn't flip as rows scroll out of view
+    const start = range.start - (range.start % 2);
+    const end = range.end;
+    visibleRows = allRows.slice(start, end);
+    spaceAbove = start * rowHeight;
+    spaceBelow = (allRows.length - end) * rowHeight;
+  }
+
+  const table = (
     <Table {...getTableProps()} striped bordered hover >
       <thead>
         {headerGroups.map(headerGroup => (
           <tr {...headerGroup.getHeaderGroupProps()}>
             {headerGroup.headers.map(column => (
               <th
-                {...column.getHeaderProps(column.getSortByToggleProps())}
+                {...column.getHeaderProps([
+                  column.getSortByToggleProps(),
+                  virtualized ? { style: { position: "sticky", top: 0, background: "white" } } : {},
+                ])}
                 data-testid={`${testid}-header-${column.id}`}
               >
                 {column.render('Header')}
@@ -36,10 +113,11 @@ export default function OurTable({ columns, data, testid = "testid" }) {
         ))}
       </thead>
       <tbody {...getTableBodyProps()}>
-        {rows.map(row => {
+        {virtualized && <tr style={{ height: spaceAbove }} data-testid={`${testid}-space-above`} />}
+        {visibleRows.map(row => {
           prepareRow(row)
           return (
-            <tr {...row.getRowProps()}>
+            <tr {...row.getRowProps(virtualized ? { style: { height: rowHeight } } : undefined)}>
               {row.cells.map((cell, _index) => {
                 return (
                   <td
@@ -53,8 +131,48 @@ export default function OurTable({ columns, data, testid = "testid" }) {
             </tr>
           )
         })}
+        {spaceBelow > 0 && <tr style={{ height: spaceBelow }} data-testid={`${testid}-space-below`} />}
       </tbody>
     </Table>
+  );
+
+  return (
+    <>
+    {virtualized
+      ? (
+        <div
+          style={{ height, overflowY: "auto" }}
+          onScroll={(e) => setScrollTop(e.currentTarget.scrollTop)}
+          data-testid={`${testid}-viewport`}
+        >
+          {table}
+        </div>
+      )
+      : table}
+    {serverSide && (
+      <div className="d-flex align-items-center gap-2" data-testid={`${testid}-pagination`}>
+        <Button
+          variant="secondary"
+          onClick={() => previousPage()}
+          disabled={!canPreviousPage}
+          data-testid={`${testid}-previous-page`}
+        >
+          Previous
+        </Button>
+        <span data-testid={`${testid}-page-info`}>
+          Page {pageIndex + 1}{pageCount >= 0 ? ` of ${Math.max(pageCount, 1)}` : ""}
+        </span>
+        <Button
+          variant="secondary"
+          onClick={() => nextPage()}
+          disabled={!canNextPage}
+          data-testid={`${testid}-next-page`}
+        >
+          Next
+        </Button>
+      </div>
+    )}
+    </>
   )
 }
 
@@ -6,7 +6,7 @@ import { cellToAxiosParamsDelete, onDeleteSuccess } from "main/utils/UCSBDateUti
 import { useNavigate } from "react-router-dom";
 import { hasRole } from "main/utils/currentUser";
 
-export default function UCSBDatesTable({ dates, currentUser }) {
+export default function UCSBDatesTable({ dates, currentUser, fetchData, pageCount }) {
 
     const navigate = useNavigate();
 
@@ -14,14 +14,12 @@ export default function UCSBDatesTable({ dates, currentUser }) {
         navigate(`/ucsbdates/edit/${cell.row.values.id}`)
     }
 
-    // Stryker disable all : hard to test for query caching
-
     const deleteMutation = useBackendMutation(
         cellToAxiosParamsDelete,
         { onSuccess: onDeleteSuccess },
-        ["/api/ucsbdates/all"]
+        ["/api/ucsbdates/paged"],
+        { type: "remove", id: (cell) => cell.row.values.id }
     );
-    // Stryker enable all 
 
     // Stryker disable next-line all : TODO try to make a good test for this
     const deleteCallback = async (cell) => { deleteMutation.mutate(cell); }
@@ -59,5 +57,7 @@ export default function UCSBDatesTable({ dates, currentUser }) {
         data={memoizedDates}
         columns={memoizedColumns}
         testid={"UCSBDatesTable"}
+        fetchData={fetchData}
+        pageCount={pageCount}
     />;
 };
\ No newline at end of file
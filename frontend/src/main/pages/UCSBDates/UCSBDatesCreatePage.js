@@ -23,8 +23,8 @@ export default function UCSBDatesCreatePage() {
   const mutation = useBackendMutation(
     objectToAxiosParams,
      { onSuccess }, 
-     // Stryker disable next-line all : hard to set up test for caching
-     ["/api/ucsbdates/all"]
+     ["/api/ucsbdates/paged"],
+     { type: "insert" }
      );
 
   const { isSuccess } = mutation
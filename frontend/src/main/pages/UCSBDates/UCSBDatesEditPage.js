@@ -43,7 +43,9 @@ export default function UCSBDatesEditPage() {
     objectToAxiosPutParams,
     { onSuccess },
     // Stryker disable next-line all : hard to set up test for caching
-    [`/api/ucsbdates?id=${id}`]
+    [`/api/ucsbdates?id=${id}`],
+    // Stryker disable next-line all : hard to set up test for caching
+    { type: "replace" }
   );
 
   const { isSuccess } = mutation
@@ -1,5 +1,5 @@
 import React from 'react'
-import { useBackend } from 'main/utils/useBackend';
+import { useBackendPage } from 'main/utils/useBackend';
 
 import BasicLayout from "main/layouts/BasicLayout/BasicLayout";
 import UCSBDatesTable from 'main/components/UCSBDates/UCSBDatesTable';
@@ -9,19 +9,19 @@ export default function UCSBDatesIndexPage() {
 
   const currentUser = useCurrentUser();
 
-  const { data: dates, error: _error, status: _status } =
-    useBackend(
-      // Stryker disable next-line all : don't test internal caching of React Query
-      ["/api/ucsbdates/all"],
-      { method: "GET", url: "/api/ucsbdates/all" },
-      []
-    );
+  // only the page being shown is fetched; sorting happens on the server
+  const { data: page, fetchData } = useBackendPage("/api/ucsbdates/paged");
 
   return (
     <BasicLayout>
       <div className="pt-2">
         <h1>UCSBDates</h1>
-        <UCSBDatesTable dates={dates} currentUser={currentUser} />
+        <UCSBDatesTable
+          dates={page.content}
+          pageCount={page.totalPages}
+          fetchData={fetchData}
+          currentUser={currentUser}
+        />
       </div>
     </BasicLayout>
   )
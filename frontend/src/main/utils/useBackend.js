@@ -1,3 +1,4 @@
+import { useCallback, useState } from "react";
 import { useQuery, useMutation, useQueryClient } from "react-query";
 import axios from "axios";
 import { toast } from "react-toastify";
@@ -25,7 +26,7 @@ import { toast } from "react-toastify";
 //     []
 // );
 
-export function useBackend(queryKey, axiosParameters, initialData) {
+export function useBackend(queryKey, axiosParameters, initialData, queryOptions = {}) {
 
     return useQuery(queryKey, async () => {
         try {
@@ -38,10 +39,43 @@ export function useBackend(queryKey, axiosParameters, initialData) {
             throw e;
         }
     }, {
-        initialData
+        initialData,
+        ...queryOptions
     });
 }
 
+// Server-side paging for OurTable, against one of the /paged endpoints.
+// Example:
+//   const { data: page, fetchData } = useBackendPage("/api/ucsbdates/paged");
+//   <OurTable data={page.content} pageCount={page.totalPages} fetchData={fetchData} ... />
+//
+// The query key is [url, params], so invalidateQueries([url]) refetches
+// whichever page is showing.
+
+export function tableStateToParams({ pageIndex, pageSize, sortBy }) {
+    const params = { page: pageIndex, size: pageSize };
+    if (sortBy.length > 0) {
+        params.sort = sortBy.map((s) => `${s.desc ? "-" : ""}${s.id}`).join(",");
+    }
+    return params;
+}
+
+const emptyPage = { content: [], totalPages: -1 };
+
+export function useBackendPage(url) {
+    const [params, setParams] = useState(null);
+    const fetchData = useCallback((tableState) => setParams(tableStateToParams(tableState)), []);
+
+    const result = useBackend(
+        [url, params],
+        { method: "GET", url, params },
+        undefined,
+        // Stryker disable next-line all : don't test internal caching of React Query
+        { enabled: params !== null, keepPreviousData: true }
+    );
+    return { ...result, data: result.data ?? emptyPage, fetchData };
+}
+
 // const wrappedParams = async (params) =>
 //   await ( await axios(params)).data;
 
@@ -61,21 +95,134 @@ const wrappedParams = async (params) => {
     }
 };
 
-export function useBackendMutation(objectToAxiosParams, useMutationParams, queryKey=null) {
+// By default useBackendMutation invalidates queryKey once the write is done,
+// which refetches everything cached under it.  Pass cacheUpdate to patch the
+// cache in place instead:
+//
+//   { type: "insert" }   add the entity the controller returns
+//   { type: "replace" }  swap in the entity the controller returns
+//   { type: "remove" }   drop the entity that was deleted
+//
+// Entities are matched on their id; cacheUpdate.id(object) says how to get
+// the id from the object passed to mutate (default: object.id).  "replace"
+// and "remove" are applied optimistically when the mutation starts and are
+// rolled back if it fails.  Plain lists (e.g. from /all), pages from
+// useBackendPage and single entities are patched; anything else cached under
+// queryKey is invalidated.
+//
+// On a page only the rows it holds are patched: an inserted row is added if
+// the page is the last one and has room, and a removed row leaves a gap
+// rather than pulling one up from the next page.  totalElements and
+// totalPages follow, so the table can page to a new row.  Cached pages go
+// stale right away, so React Query still refetches a page the next time it
+// is shown.
+
+// ids from form fields are strings, ids from the backend are numbers
+const sameId = (a, b) => String(a) === String(b);
+
+const isPage = (data) => data !== null && typeof data === "object" && Array.isArray(data.content);
+
+// Spring's Page as JSON; pages from test fixtures may only have content and totalPages
+const withCounts = (page, content, added) => {
+    if (typeof page.totalElements !== "number" || !page.size) {
+        return { ...page, content };
+    }
+    const totalElements = page.totalElements + added;
+    const totalPages = Math.ceil(totalElements / page.size);
+    return {
+        ...page,
+        content,
+        numberOfElements: content.length,
+        totalElements,
+        totalPages,
+        last: page.number >= totalPages - 1,
+    };
+};
+
+function patchPage(page, type, entity) {
+    if (type === "insert") {
+        if (page.content.some((e) => sameId(e.id, entity.id))) {
+            return page;
+        }
+        const hasRoom = page.last !== false && (page.size === undefined || page.content.length < page.size);
+        return withCounts(page, hasRoom ? [...page.content, entity] : page.content, 1);
+    }
+    const content = patchCachedData(page.content, type, entity);
+    if (content === undefined) {
+        return undefined;
+    }
+    return withCounts(page, content, content.length - page.content.length);
+}
+
+export function patchCachedData(data, type, entity) {
+    if (isPage(data)) {
+        return patchPage(data, type, entity);
+    }
+    if (Array.isArray(data)) {
+        switch (type) {
+            case "insert":
+                return data.some((e) => sameId(e.id, entity.id)) ? data : [...data, entity];
+            case "replace":
+                return data.map((e) => (sameId(e.id, entity.id) ? { ...e, ...entity, id: e.id } : e));
+            case "remove":
+                return data.filter((e) => !sameId(e.id, entity.id));
+            default:
+                return undefined;
+        }
+    }
+    if (data && type === "replace" && sameId(data.id, entity.id)) {
+        return { ...data, ...entity, id: data.id };
+    }
+    return undefined;
+}
+
+export function useBackendMutation(objectToAxiosParams, useMutationParams, queryKey=null, cacheUpdate=null) {
     const queryClient = useQueryClient();
 
+    // Queries that can't be patched are only invalidated once the write is done.
+    const patchCache = (type, entity, writeDone) => {
+        queryClient.getQueriesData(queryKey).forEach(([key, data]) => {
+            const patched = patchCachedData(data, type, entity);
+            if (patched !== undefined) {
+                queryClient.setQueryData(key, patched);
+            } else if (writeDone) {
+                queryClient.invalidateQueries(key, { exact: true });
+            }
+        });
+    };
+
+    const idOf = (object) => (cacheUpdate.id ? cacheUpdate.id(object) : object.id);
+
     return useMutation((object) => wrappedParams(objectToAxiosParams(object)), {
+        onMutate: async (object) => {
+            if (queryKey === null || cacheUpdate === null || cacheUpdate.type === "insert") {
+                return undefined;
+            }
+            // Stryker disable next-line all : don't test internal caching of React Query
+            await queryClient.cancelQueries(queryKey);
+            const snapshot = queryClient.getQueriesData(queryKey);
+            const entity = cacheUpdate.type === "replace" ? { ...object, id: idOf(object) } : { id: idOf(object) };
+            patchCache(cacheUpdate.type, entity, false);
+            return { snapshot };
+        },
         onError: (data) => {
             toast(`${data}`)
         },
         // Stryker disable all: Not sure how to set up the complex behavior needed to test this
-        onSettled: () => {
-            if (queryKey!==null)
-             queryClient.invalidateQueries(queryKey);
+        onSettled: (data, error, object, context) => {
+            if (queryKey === null) {
+                return;
+            }
+            if (cacheUpdate === null) {
+                queryClient.invalidateQueries(queryKey);
+            } else if (error) {
+                context?.snapshot.forEach(([key, snapshotData]) => queryClient.setQueryData(key, snapshotData));
+            } else {
+                patchCache(cacheUpdate.type, cacheUpdate.type === "remove" ? { id: idOf(object) } : data, true);
+            }
         },
         // Stryker enable all
         retry: false,
         ...useMutationParams
     })
 }
-
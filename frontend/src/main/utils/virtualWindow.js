@@ -0,0 +1,10 @@
+// Which rows of a fixed-row-height list are inside (or within overscan rows of)
+// a scrolled viewport.  Returns [start, end) indexes into the list.
+
+export function visibleRange(scrollTop, viewportHeight, rowHeight, rowCount, overscan = 0) {
+    const first = Math.floor(Math.max(scrollTop, 0) / rowHeight);
+    const last = Math.ceil((Math.max(scrollTop, 0) + viewportHeight) / rowHeight);
+    const start = Math.min(Math.max(first - overscan, 0), rowCount);
+    const end = Math.min(last + overscan, rowCount);
+    return { start, end };
+}
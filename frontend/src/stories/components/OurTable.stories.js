@@ -42,6 +42,31 @@ Sample.args = {
     ]
 };
 
+// Server-side mode: the story just logs what would be requested from the backend
+export const ServerSide = Template.bind({});
 
+ServerSide.args = {
+    ...Sample.args,
+    pageCount: 5,
+    fetchData: (tableState) => console.log("fetchData", tableState),
+};
+
+// 50,000 rows, with only the visible ones mounted.  The Profiler logs how
+// long each render of the table takes; compare with virtualized: false.
+const ProfiledTemplate = (args) => {
+    const onRender = (id, phase, actualDuration) =>
+        console.log(`OurTable ${phase} with ${args.data.length} rows took ${actualDuration.toFixed(1)} ms`);
+    return (
+        <React.Profiler id="OurTable" onRender={onRender}>
+            <OurTable {...args} />
+        </React.Profiler>
+    )
+};
 
+export const FiftyThousandRowsVirtualized = ProfiledTemplate.bind({});
 
+FiftyThousandRowsVirtualized.args = {
+    columns: Sample.args.columns,
+    data: Array.from({ length: 50000 }, (_, i) => ({ col1: `row ${i}`, col2: `value ${i}` })),
+    virtualized: true,
+};
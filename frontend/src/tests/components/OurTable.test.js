@@ -85,4 +85,96 @@ describe("OurTable tests", () => {
 
     });
 
-});
\ No newline at end of file
+    test("in server-side mode, fetchData is called instead of sorting locally", async () => {
+        const fetchData = jest.fn();
+        const { getByTestId } = render(
+            <OurTable columns={columns} data={threeRows} testid={"sampleTestId"} fetchData={fetchData} pageCount={3} initialPageSize={3} />
+        );
+
+        await waitFor(() => expect(fetchData).toHaveBeenCalledWith({ pageIndex: 0, pageSize: 3, sortBy: [] }));
+        expect(getByTestId("sampleTestId-page-info")).toHaveTextContent("Page 1 of 3");
+        expect(getByTestId("sampleTestId-previous-page")).toBeDisabled();
+
+        fireEvent.click(getByTestId("sampleTestId-next-page"));
+        await waitFor(() => expect(fetchData).toHaveBeenLastCalledWith({ pageIndex: 1, pageSize: 3, sortBy: [] }));
+        expect(getByTestId("sampleTestId-page-info")).toHaveTextContent("Page 2 of 3");
+
+        // a new sort order goes back to the first page, with a single request
+        const callsBeforeSort = fetchData.mock.calls.length;
+        fireEvent.click(getByTestId("sampleTestId-header-col1"));
+        await waitFor(() => expect(fetchData).toHaveBeenLastCalledWith({ pageIndex: 0, pageSize: 3, sortBy: [{ id: "col1", desc: false }] }));
+        expect(fetchData.mock.calls.length).toBe(callsBeforeSort + 1);
+
+        // the rows are shown in the order the server sent them
+        fireEvent.click(getByTestId("sampleTestId-header-col1"));
+        await waitFor(() => expect(fetchData).toHaveBeenLastCalledWith({ pageIndex: 0, pageSize: 3, sortBy: [{ id: "col1", desc: true }] }));
+        expect(getByTestId("sampleTestId-cell-row-0-col-col1")).toHaveTextContent("Hello");
+    });
+
+    test("in server-side mode, next is disabled on the last page", async () => {
+        const fetchData = jest.fn();
+        const { getByTestId } = render(
+            <OurTable columns={columns} data={threeRows} testid={"sampleTestId"} fetchData={fetchData} pageCount={1} />
+        );
+
+        await waitFor(() => expect(fetchData).toHaveBeenCalledWith({ pageIndex: 0, pageSize: 10, sortBy: [] }));
+        expect(getByTestId("sampleTestId-next-page")).toBeDisabled();
+        expect(getByTestId("sampleTestId-page-info")).toHaveTextContent("Page 1 of 1");
+    });
+
+    test("in server-side mode with an unknown page count, no total is shown", async () => {
+        const { getByTestId } = render(
+            <OurTable columns={columns} data={threeRows} testid={"sampleTestId"} fetchData={jest.fn()} />
+        );
+
+        await waitFor(() => expect(getByTestId("sampleTestId-page-info")).toHaveTextContent(/^Page 1$/));
+        expect(getByTestId("sampleTestId-next-page")).toBeEnabled();
+    });
+
+    test("in client-side mode there are no pagination controls", () => {
+        const { queryByTestId } = render(
+            <OurTable columns={columns} data={threeRows} testid={"sampleTestId"} />
+        );
+        expect(queryByTestId("sampleTestId-pagination")).not.toBeInTheDocument();
+    });
+
+    describe("virtualized mode", () => {
+        const manyRows = Array.from({ length: 50000 }, (_, i) => ({ col1: `row ${i}`, col2: i }));
+
+        test("only mounts the rows in view and keeps the cell testids", async () => {
+            const { getByTestId, queryByTestId, container } = render(
+                <OurTable columns={columns} data={manyRows} testid={"sampleTestId"}
+                    virtualized height={400} rowHeight={40} overscan={5} />
+            );
+
+            // 10 rows in view plus 5 overscan, plus the two spacer rows
+            expect(container.querySelectorAll("tbody tr").length).toBe(17);
+            expect(getByTestId("sampleTestId-cell-row-0-col-col1")).toHaveTextContent("row 0");
+            expect(getByTestId("sampleTestId-cell-row-14-col-col1")).toHaveTextContent("row 14");
+            expect(queryByTestId("sampleTestId-cell-row-15-col-col1")).not.toBeInTheDocument();
+            expect(getByTestId("sampleTestId-space-below")).toHaveStyle(`height: ${(50000 - 15) * 40}px`);
+
+            const viewport = getByTestId("sampleTestId-viewport");
+            viewport.scrollTop = 1000 * 40 + 20;
+            fireEvent.scroll(viewport);
+
+            await waitFor(() => expect(getByTestId("sampleTestId-cell-row-1000-col-col1")).toHaveTextContent("row 1000"));
+            expect(queryByTestId("sampleTestId-cell-row-0-col-col1")).not.toBeInTheDocument();
+            expect(getByTestId("sampleTestId-cell-row-994-col-col1")).toBeInTheDocument();
+            expect(getByTestId("sampleTestId-space-above")).toHaveStyle(`height: ${994 * 40}px`);
+        });
+
+        test("sorting applies to all rows, not just the ones in view", async () => {
+            const { getByTestId } = render(
+                <OurTable columns={columns} data={manyRows} testid={"sampleTestId"} virtualized />
+            );
+
+            fireEvent.click(getByTestId("sampleTestId-header-col2"));
+            fireEvent.click(getByTestId("sampleTestId-header-col2"));
+
+            await waitFor(() => expect(getByTestId("sampleTestId-cell-row-49999-col-col1")).toHaveTextContent("row 49999"));
+            expect(getByTestId("sampleTestId-header-col2")).toHaveStyle("position: sticky");
+        });
+    });
+
+});
@@ -5,6 +5,7 @@ import { MemoryRouter } from "react-router-dom";
 
 import { apiCurrentUserFixtures } from "fixtures/currentUserFixtures";
 import { systemInfoFixtures } from "fixtures/systemInfoFixtures";
+import { ucsbDatesFixtures } from "fixtures/ucsbDatesFixtures";
 import axios from "axios";
 import AxiosMockAdapter from "axios-mock-adapter";
 
@@ -100,6 +101,45 @@ describe("UCSBDatesCreatePage tests", () => {
         expect(mockNavigate).toBeCalledWith({ "to": "/ucsbdates/list" });
     });
 
+    test("the new date is added to the cached page, which is not refetched", async () => {
+
+        const queryClient = new QueryClient();
+        const pageKey = ["/api/ucsbdates/paged", { page: 0, size: 10 }];
+        queryClient.setQueryData(pageKey, { content: ucsbDatesFixtures.threeDates, totalPages: 1 });
+        const invalidate = jest.spyOn(queryClient, "invalidateQueries");
+        const ucsbDate = {
+            id: 17,
+            quarterYYYYQ: "20221",
+            name: "Groundhog Day",
+            localDateTime: "2022-02-02T00:00:00"
+        };
+
+        axiosMock.onPost("/api/ucsbdates/post").reply( 202, ucsbDate );
+
+        const { getByTestId } = render(
+            <QueryClientProvider client={queryClient}>
+                <MemoryRouter>
+                    <UCSBDatesCreatePage />
+                </MemoryRouter>
+            </QueryClientProvider>
+        );
+
+        await waitFor(() => {
+            expect(getByTestId("UCSBDateForm-quarterYYYYQ")).toBeInTheDocument();
+        });
+
+        fireEvent.change(getByTestId("UCSBDateForm-quarterYYYYQ"), { target: { value: '20221' } });
+        fireEvent.change(getByTestId("UCSBDateForm-name"), { target: { value: 'Groundhog Day' } });
+        fireEvent.change(getByTestId("UCSBDateForm-localDateTime"), { target: { value: '2022-02-02T00:00' } });
+        fireEvent.click(getByTestId("UCSBDateForm-submit"));
+
+        await waitFor(() => expect(mockNavigate).toBeCalledWith({ "to": "/ucsbdates/list" }));
+
+        expect(queryClient.getQueryData(pageKey).content).toEqual([...ucsbDatesFixtures.threeDates, ucsbDate]);
+        expect(invalidate).not.toHaveBeenCalled();
+        expect(axiosMock.history.get.filter((r) => r.url === "/api/ucsbdates/paged").length).toBe(0);
+    });
+
 
 });
 
@@ -45,7 +45,7 @@ describe("UCSBDatesIndexPage tests", () => {
     test("renders without crashing for regular user", () => {
         setupUserOnly();
         const queryClient = new QueryClient();
-        axiosMock.onGet("/api/ucsbdates/all").reply(200, []);
+        axiosMock.onGet("/api/ucsbdates/paged").reply(200, { content: [], totalPages: 0 });
 
         render(
             <QueryClientProvider client={queryClient}>
@@ -61,7 +61,7 @@ describe("UCSBDatesIndexPage tests", () => {
     test("renders without crashing for admin user", () => {
         setupAdminUser();
         const queryClient = new QueryClient();
-        axiosMock.onGet("/api/ucsbdates/all").reply(200, []);
+        axiosMock.onGet("/api/ucsbdates/paged").reply(200, { content: [], totalPages: 0 });
 
         render(
             <QueryClientProvider client={queryClient}>
@@ -77,7 +77,7 @@ describe("UCSBDatesIndexPage tests", () => {
     test("renders three dates without crashing for regular user", async () => {
         setupUserOnly();
         const queryClient = new QueryClient();
-        axiosMock.onGet("/api/ucsbdates/all").reply(200, ucsbDatesFixtures.threeDates);
+        axiosMock.onGet("/api/ucsbdates/paged").reply(200, { content: ucsbDatesFixtures.threeDates, totalPages: 1 });
 
         const { getByTestId } = render(
             <QueryClientProvider client={queryClient}>
@@ -96,7 +96,7 @@ describe("UCSBDatesIndexPage tests", () => {
     test("renders three dates without crashing for admin user", async () => {
         setupAdminUser();
         const queryClient = new QueryClient();
-        axiosMock.onGet("/api/ucsbdates/all").reply(200, ucsbDatesFixtures.threeDates);
+        axiosMock.onGet("/api/ucsbdates/paged").reply(200, { content: ucsbDatesFixtures.threeDates, totalPages: 1 });
 
         const { getByTestId } = render(
             <QueryClientProvider client={queryClient}>
@@ -116,7 +116,7 @@ describe("UCSBDatesIndexPage tests", () => {
         setupUserOnly();
 
         const queryClient = new QueryClient();
-        axiosMock.onGet("/api/ucsbdates/all").timeout();
+        axiosMock.onGet("/api/ucsbdates/paged").timeout();
 
         const restoreConsole = mockConsole();
 
@@ -131,7 +131,7 @@ describe("UCSBDatesIndexPage tests", () => {
         await waitFor(() => { expect(axiosMock.history.get.length).toBeGreaterThanOrEqual(1); });
 
         const errorMessage = console.error.mock.calls[0][0];
-        expect(errorMessage).toMatch("Error communicating with backend via GET on /api/ucsbdates/all");
+        expect(errorMessage).toMatch("Error communicating with backend via GET on /api/ucsbdates/paged");
         restoreConsole();
 
         expect(queryByTestId(`${testId}-cell-row-0-col-id`)).not.toBeInTheDocument();
@@ -141,7 +141,7 @@ describe("UCSBDatesIndexPage tests", () => {
         setupAdminUser();
 
         const queryClient = new QueryClient();
-        axiosMock.onGet("/api/ucsbdates/all").reply(200, ucsbDatesFixtures.threeDates);
+        axiosMock.onGet("/api/ucsbdates/paged").reply(200, { content: ucsbDatesFixtures.threeDates, totalPages: 1 });
         axiosMock.onDelete("/api/ucsbdates").reply(200, "UCSBDate with id 1 was deleted");
 
 
@@ -167,6 +167,57 @@ describe("UCSBDatesIndexPage tests", () => {
 
     });
 
-});
+    test("deleting a row patches the page that is showing instead of refetching it", async () => {
+        setupAdminUser();
+
+        const queryClient = new QueryClient();
+        axiosMock.onGet("/api/ucsbdates/paged").reply(200, { content: ucsbDatesFixtures.threeDates, totalPages: 1 });
+        axiosMock.onDelete("/api/ucsbdates").reply(200, "UCSBDate with id 1 was deleted");
+
+        const { getByTestId } = render(
+            <QueryClientProvider client={queryClient}>
+                <MemoryRouter>
+                    <UCSBDatesIndexPage />
+                </MemoryRouter>
+            </QueryClientProvider>
+        );
 
+        await waitFor(() => { expect(getByTestId(`${testId}-cell-row-0-col-id`)).toHaveTextContent("1"); });
+        const pageRequests = () => axiosMock.history.get.filter((r) => r.url === "/api/ucsbdates/paged");
+        expect(pageRequests().length).toBe(1);
+
+        fireEvent.click(getByTestId(`${testId}-cell-row-0-col-Delete-button`));
+
+        await waitFor(() => { expect(mockToast).toBeCalledWith("UCSBDate with id 1 was deleted") });
+        expect(getByTestId(`${testId}-cell-row-0-col-id`)).toHaveTextContent("2");
+        expect(pageRequests().length).toBe(1);
+    });
 
+    test("fetches one page at a time and sorts on the server", async () => {
+        setupUserOnly();
+        const queryClient = new QueryClient();
+        axiosMock.onGet("/api/ucsbdates/paged").reply(200, { content: ucsbDatesFixtures.threeDates, totalPages: 2 });
+
+        const { getByTestId } = render(
+            <QueryClientProvider client={queryClient}>
+                <MemoryRouter>
+                    <UCSBDatesIndexPage />
+                </MemoryRouter>
+            </QueryClientProvider>
+        );
+
+        await waitFor(() => { expect(getByTestId(`${testId}-cell-row-0-col-id`)).toHaveTextContent("1"); });
+        const pageRequests = () => axiosMock.history.get.filter((r) => r.url === "/api/ucsbdates/paged");
+        expect(pageRequests()[0].params).toEqual({ page: 0, size: 10 });
+        expect(getByTestId(`${testId}-page-info`)).toHaveTextContent("Page 1 of 2");
+
+        fireEvent.click(getByTestId(`${testId}-header-name`));
+        await waitFor(() => { expect(pageRequests().length).toBe(2); });
+        expect(pageRequests()[1].params).toEqual({ page: 0, size: 10, sort: "name" });
+
+        fireEvent.click(getByTestId(`${testId}-next-page`));
+        await waitFor(() => { expect(pageRequests().length).toBe(3); });
+        expect(pageRequests()[2].params).toEqual({ page: 1, size: 10, sort: "name" });
+    });
+
+});
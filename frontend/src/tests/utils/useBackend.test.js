@@ -3,7 +3,7 @@ import { renderHook, act } from '@testing-library/react-hooks'
 
 import axios from "axios";
 import AxiosMockAdapter from "axios-mock-adapter";
-import { useBackend, useBackendMutation } from "main/utils/useBackend";
+import { useBackend, useBackendMutation, tableStateToParams, patchCachedData } from "main/utils/useBackend";
 
 
 jest.mock('react-router-dom');
@@ -187,4 +187,152 @@ describe("utils/useBackend tests", () => {
             expect(errorMessage2).toMatch(/onError from mutation.mutate called!/);
         });
     });
-});
\ No newline at end of file
+
+    describe("utils/useBackend tableStateToParams tests", () => {
+
+        test("converts react-table state to page, size and sort parameters", () => {
+            expect(tableStateToParams({ pageIndex: 2, pageSize: 25, sortBy: [] }))
+                .toEqual({ page: 2, size: 25 });
+            expect(tableStateToParams({ pageIndex: 0, pageSize: 10, sortBy: [{ id: "name", desc: false }, { id: "localDateTime", desc: true }] }))
+                .toEqual({ page: 0, size: 10, sort: "name,-localDateTime" });
+        });
+
+    });
+
+    describe("utils/useBackend cache patching tests", () => {
+
+        const dates = [
+            { id: 1, name: "firstDayOfClasses" },
+            { id: 2, name: "lastDayOfClasses" },
+        ];
+
+        test("patchCachedData patches lists", () => {
+            expect(patchCachedData(dates, "insert", { id: 3, name: "noon" })).toEqual([...dates, { id: 3, name: "noon" }]);
+            expect(patchCachedData(dates, "insert", { id: 2, name: "again" })).toBe(dates);
+            expect(patchCachedData(dates, "replace", { id: "2", name: "renamed" }))
+                .toEqual([dates[0], { id: 2, name: "renamed" }]);
+            expect(patchCachedData(dates, "remove", { id: 1 })).toEqual([dates[1]]);
+            expect(patchCachedData(dates, "frobnicate", { id: 1 })).toBeUndefined();
+        });
+
+        test("patchCachedData patches a single entity only on replace with the same id", () => {
+            expect(patchCachedData(dates[0], "replace", { id: "1", name: "renamed" })).toEqual({ id: 1, name: "renamed" });
+            expect(patchCachedData(dates[0], "replace", { id: 2, name: "renamed" })).toBeUndefined();
+            expect(patchCachedData(dates[0], "remove", { id: 1 })).toBeUndefined();
+            expect(patchCachedData(undefined, "replace", { id: 1 })).toBeUndefined();
+        });
+
+        const page = (content, number, totalElements, size = 2) => ({
+            content,
+            number,
+            size,
+            numberOfElements: content.length,
+            totalElements,
+            totalPages: Math.ceil(totalElements / size),
+            last: number >= Math.ceil(totalElements / size) - 1,
+        });
+
+        test("patchCachedData patches the rows of a page and keeps its counts", () => {
+            expect(patchCachedData(page([dates[0]], 0, 1), "insert", dates[1])).toEqual(page(dates, 0, 2));
+            expect(patchCachedData(page(dates, 0, 2), "insert", { id: 3 })).toEqual(page(dates, 0, 3));
+            expect(patchCachedData(page(dates, 0, 4), "insert", { id: 5 })).toEqual(page(dates, 0, 5));
+            const full = page(dates, 0, 2);
+            expect(patchCachedData(full, "insert", { id: 2 })).toBe(full);
+            expect(patchCachedData(page(dates, 0, 3), "remove", { id: 1 })).toEqual(page([dates[1]], 0, 2));
+            expect(patchCachedData(page(dates, 0, 3), "remove", { id: 9 })).toEqual(page(dates, 0, 3));
+            expect(patchCachedData(page(dates, 0, 2), "replace", { id: "2", name: "renamed" }))
+                .toEqual(page([dates[0], { id: 2, name: "renamed" }], 0, 2));
+            expect(patchCachedData(page(dates, 0, 2), "frobnicate", { id: 1 })).toBeUndefined();
+        });
+
+        test("patchCachedData patches pages that only have content and totalPages", () => {
+            expect(patchCachedData({ content: [dates[0]], totalPages: 1 }, "insert", dates[1])).toEqual({ content: dates, totalPages: 1 });
+            expect(patchCachedData({ content: dates, totalPages: 1 }, "remove", { id: 1 })).toEqual({ content: [dates[1]], totalPages: 1 });
+        });
+
+        const setup = () => {
+            const queryClient = new QueryClient({ defaultOptions: { queries: { retry: false } } });
+            queryClient.setQueryData(["/api/ucsbdates/all"], dates);
+            queryClient.setQueryData(["/api/ucsbdates/paged", { page: 0, size: 10 }], { content: dates, totalPages: 1 });
+            const wrapper = ({ children }) => (
+                <QueryClientProvider client={queryClient}>
+                    {children}
+                </QueryClientProvider>
+            );
+            return { queryClient, wrapper };
+        };
+
+        const deleteParams = (cell) => ({ url: "/api/ucsbdates", method: "DELETE", params: { id: cell.row.values.id } });
+
+        test("insert adds the returned entity to cached lists and pages without refetching them", async () => {
+            const { queryClient, wrapper } = setup();
+            const axiosMock = new AxiosMockAdapter(axios);
+            axiosMock.onPost("/api/ucsbdates/post").reply(200, { id: 3, name: "noon" });
+            const invalidate = jest.spyOn(queryClient, "invalidateQueries");
+
+            const { result, waitFor } = renderHook(
+                () => useBackendMutation(() => ({ url: "/api/ucsbdates/post", method: "POST" }), {}, ["/api/ucsbdates"], { type: "insert" }),
+                { wrapper }
+            );
+            act(() => result.current.mutate({ name: "noon" }));
+
+            await waitFor(() => expect(result.current.isSuccess).toBe(true));
+            expect(queryClient.getQueryData(["/api/ucsbdates/all"])).toEqual([...dates, { id: 3, name: "noon" }]);
+            expect(queryClient.getQueryData(["/api/ucsbdates/paged", { page: 0, size: 10 }]))
+                .toEqual({ content: [...dates, { id: 3, name: "noon" }], totalPages: 1 });
+            expect(invalidate).not.toHaveBeenCalled();
+        });
+
+        test("queries that can't be patched are refetched once the write is done", async () => {
+            const { queryClient, wrapper } = setup();
+            queryClient.setQueryData(["/api/ucsbdates/count"], 2);
+            const axiosMock = new AxiosMockAdapter(axios);
+            axiosMock.onPost("/api/ucsbdates/post").reply(200, { id: 3, name: "noon" });
+            const invalidate = jest.spyOn(queryClient, "invalidateQueries");
+
+            const { result, waitFor } = renderHook(
+                () => useBackendMutation(() => ({ url: "/api/ucsbdates/post", method: "POST" }), {}, ["/api/ucsbdates"], { type: "insert" }),
+                { wrapper }
+            );
+            act(() => result.current.mutate({ name: "noon" }));
+
+            await waitFor(() => expect(result.current.isSuccess).toBe(true));
+            expect(invalidate).toHaveBeenCalledTimes(1);
+            expect(invalidate).toHaveBeenCalledWith(["/api/ucsbdates/count"], { exact: true });
+        });
+
+        test("remove is applied before the request completes", async () => {
+            const { queryClient, wrapper } = setup();
+            const axiosMock = new AxiosMockAdapter(axios);
+            axiosMock.onDelete("/api/ucsbdates").reply(() => new Promise((resolve) => setTimeout(() => resolve([200, "deleted"]), 50)));
+
+            const { result, waitFor } = renderHook(
+                () => useBackendMutation(deleteParams, {}, ["/api/ucsbdates/all"], { type: "remove", id: (cell) => cell.row.values.id }),
+                { wrapper }
+            );
+            act(() => result.current.mutate({ row: { values: { id: 1 } } }));
+
+            await waitFor(() => expect(queryClient.getQueryData(["/api/ucsbdates/all"])).toEqual([dates[1]]));
+            expect(result.current.isSuccess).toBe(false);
+            await waitFor(() => expect(result.current.isSuccess).toBe(true));
+            expect(queryClient.getQueryData(["/api/ucsbdates/all"])).toEqual([dates[1]]);
+        });
+
+        test("an optimistic update is rolled back when the request fails", async () => {
+            const { queryClient, wrapper } = setup();
+            const axiosMock = new AxiosMockAdapter(axios);
+            axiosMock.onPut("/api/ucsbdates").reply(500);
+
+            const { result, waitFor } = renderHook(
+                () => useBackendMutation((d) => ({ url: "/api/ucsbdates", method: "PUT", params: { id: d.id }, data: d }), {}, ["/api/ucsbdates/all"], { type: "replace" }),
+                { wrapper }
+            );
+            act(() => result.current.mutate({ id: 2, name: "renamed" }));
+
+            await waitFor(() => expect(result.current.isError).toBe(true));
+            expect(queryClient.getQueryData(["/api/ucsbdates/all"])).toEqual(dates);
+        });
+
+    });
+
+});
@@ -0,0 +1,22 @@
+import { visibleRange } from "main/utils/virtualWindow";
+
+describe("virtualWindow tests", () => {
+
+    test("visibleRange at the top of the list", () => {
+        expect(visibleRange(0, 100, 10, 1000)).toEqual({ start: 0, end: 10 });
+        expect(visibleRange(0, 100, 10, 1000, 5)).toEqual({ start: 0, end: 15 });
+    });
+
+    test("visibleRange includes partly visible rows and overscan on both sides", () => {
+        expect(visibleRange(205, 100, 10, 1000)).toEqual({ start: 20, end: 31 });
+        expect(visibleRange(205, 100, 10, 1000, 5)).toEqual({ start: 15, end: 36 });
+    });
+
+    test("visibleRange is clamped to the list", () => {
+        expect(visibleRange(9950, 100, 10, 1000, 5)).toEqual({ start: 990, end: 1000 });
+        expect(visibleRange(-50, 100, 10, 1000)).toEqual({ start: 0, end: 10 });
+        expect(visibleRange(0, 100, 10, 3)).toEqual({ start: 0, end: 3 });
+        expect(visibleRange(500, 100, 10, 3)).toEqual({ start: 3, end: 3 });
+    });
+
+});
@@ -0,0 +1,178 @@
+package edu.ucsb.cs156.example.batch;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.concurrent.DelegatingSecurityContextExecutorService;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.BatchResult;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs the sub-requests of POST /api/batch concurrently, each through the
+ * DispatcherServlet as if it had arrived on its own.  Handler mapping,
+ * RoleCheckInterceptor, RateLimitInterceptor, exception handlers and
+ * message converters all apply as usual; the servlet filters (session,
+ * authentication, CSRF) only run once, for the batch request, and the
+ * caller's SecurityContext is passed on to the worker threads.  A
+ * sub-request that misses the deadline is interrupted and reported as 504.
+ *
+ * Only GET requests to /api/ are allowed, and a batch can't contain
+ * another batch.
+ */
+@Slf4j
+@Service("batch")
+public class BatchService {
+
+  public static final int MAX_REQUESTS = 20;
+
+  @Autowired
+  ObjectProvider<DispatcherServlet> dispatcherServlet;
+
+  @Value("${app.batch.threads:8}")
+  int threads;
+
+  @Value("${app.batch.timeoutMs:10000}")
+  long timeoutMs;
+
+  private ExecutorService executor;
+
+  @PostConstruct
+  void start() {
+    AtomicInteger count = new AtomicInteger();
+    executor = Executors.newFixedThreadPool(threads, runnable -> {
+      Thread thread = new Thread(runnable, "batch-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  @PreDestroy
+  void stop() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * @return one result per path, in the same order
+   */
+  public List<BatchResult> execute(HttpServletRequest batchRequest, List<String> paths) {
+    checkPaths(paths);
+    ExecutorService withCaller = new DelegatingSecurityContextExecutorService(executor, SecurityContextHolder.getContext());
+    Map<String, Object> attributes = BatchSubRequest.inheritableAttributes(batchRequest);
+    List<Future<BatchResult>> futures = new ArrayList<>();
+    for (String path : paths) {
+      BatchSubRequest request = new BatchSubRequest(batchRequest, path, attributes);
+      futures.add(withCaller.submit(() -> dispatch(request, new BatchSubResponse())));
+    }
+
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    List<BatchResult> results = new ArrayList<>();
+    for (int i = 0; i < paths.size(); i++) {
+      results.add(await(futures.get(i), paths.get(i), deadline));
+    }
+    return results;
+  }
+
+  private BatchResult await(Future<BatchResult> future, String path, long deadline) {
+    try {
+      return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      return error(path, HttpStatus.GATEWAY_TIMEOUT, "Timeout", "No response within " + timeoutMs + " ms");
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return error(path, HttpStatus.SERVICE_UNAVAILABLE, "Interrupted", "The batch was interrupted");
+    } catch (ExecutionException e) {
+      log.error("batch sub-request {} failed", path, e.getCause());
+      return error(path, HttpStatus.INTERNAL_SERVER_ERROR, "InternalServerError", "The request failed");
+    }
+  }
+
+  private BatchResult dispatch(BatchSubRequest request, BatchSubResponse response) {
+    String path = request.getPath();
+    try {
+      dispatcherServlet.getObject().service(request, response);
+    } catch (Exception e) {
+      Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+      if (cause instanceof AuthenticationException) {
+        return error(path, HttpStatus.UNAUTHORIZED, cause.getClass().getSimpleName(), cause.getMessage());
+      }
+      if (cause instanceof AccessDeniedException) {
+        return error(path, HttpStatus.FORBIDDEN, cause.getClass().getSimpleName(), cause.getMessage());
+      }
+      log.error("batch sub-request {} failed", path, e);
+      return error(path, HttpStatus.INTERNAL_SERVER_ERROR, "InternalServerError", "The request failed");
+    }
+    return new BatchResult(path, response.getStatus(), body(response));
+  }
+
+  private static Object body(BatchSubResponse response) {
+    byte[] bytes = response.getBody();
+    if (bytes.length == 0) {
+      return null;
+    }
+    String text = new String(bytes, StandardCharsets.UTF_8);
+    String contentType = response.getContentType();
+    if (contentType != null && isJson(MediaType.parseMediaType(contentType))) {
+      return new RawValue(text);
+    }
+    return text;
+  }
+
+  private static boolean isJson(MediaType type) {
+    return MediaType.APPLICATION_JSON.isCompatibleWith(type)
+        || (type.getSubtype() != null && type.getSubtype().endsWith("+json"));
+  }
+
+  private static BatchResult error(String path, HttpStatus status, String type, String message) {
+    return new BatchResult(path, status.value(), Map.of("type", type, "message", message));
+  }
+
+  static void checkPaths(List<String> paths) {
+    if (paths == null || paths.isEmpty() || paths.size() > MAX_REQUESTS) {
+      throw new BadRequestException("A batch must contain between 1 and " + MAX_REQUESTS + " requests");
+    }
+    for (String path : paths) {
+      if (path == null || !path.startsWith("/api/") || path.startsWith("/api/batch") || hasDotSegment(path)) {
+        throw new BadRequestException(String.format("Cannot batch '%s', expected a path under /api/", path));
+      }
+    }
+  }
+
+  private static boolean hasDotSegment(String path) {
+    int end = path.indexOf('?');
+    for (String segment : (end < 0 ? path : path.substring(0, end)).split("/")) {
+      if (segment.equals(".") || segment.equals("..")) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,488 @@
+package edu.ucsb.cs156.example.batch;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.lang.reflect.Proxy;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.DispatcherType;
+import javax.servlet.ReadListener;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletMapping;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * A GET request for one path of a batch.
+ *
+ * Everything a sub-request needs from the caller (cookies, session, remote
+ * and local address, principal) is copied from the batch request when it
+ * is built, on the batch request's thread.  After that it never touches the
+ * batch request: a sub-request can still be running after the batch
+ * response has gone out, by which time the container may be reusing that
+ * request object for another client.  Calls that aren't covered here fail
+ * instead of reaching the container.
+ *
+ * A sub-request declares nothing but its path, so none of the batch's
+ * headers are passed on.  Otherwise the batch's own Accept, If-None-Match
+ * or If-Modified-Since would apply to every sub-request.
+ *
+ * Attributes start out as a copy of what the filters put on the batch
+ * request (security context, CSRF token, ...), leaving out Spring MVC's
+ * per-dispatch state, which lives under org.springframework.web.
+ */
+class BatchSubRequest extends HttpServletRequestWrapper {
+
+  private static final HttpServletRequest DETACHED = (HttpServletRequest) Proxy.newProxyInstance(
+      BatchSubRequest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+      (proxy, method, args) -> {
+        throw new UnsupportedOperationException(method.getName() + " is not available in a batch sub-request");
+      });
+
+  private final String path;
+  private final String servletPath;
+  private final String queryString;
+  private final Map<String, String[]> parameters = new LinkedHashMap<>();
+  private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+  private final String requestOrigin;
+  private final String contextPath;
+  private final ServletContext servletContext;
+  private final HttpServletMapping servletMapping;
+  private final String protocol;
+  private final String scheme;
+  private final String serverName;
+  private final int serverPort;
+  private final boolean secure;
+  private final String remoteAddr;
+  private final String remoteHost;
+  private final int remotePort;
+  private final String localAddr;
+  private final String localName;
+  private final int localPort;
+  private final Cookie[] cookies;
+  private final HttpSession session;
+  private final String requestedSessionId;
+  private final boolean requestedSessionIdValid;
+  private final boolean requestedSessionIdFromCookie;
+  private final boolean requestedSessionIdFromURL;
+  private final Principal userPrincipal;
+  private final String remoteUser;
+  private final String authType;
+
+  static final String DISPATCH_STATE_PREFIX = "org.springframework.web.";
+
+  BatchSubRequest(HttpServletRequest batchRequest, String path, Map<String, Object> inheritedAttributes) {
+    super(DETACHED);
+    attributes.putAll(inheritedAttributes);
+    this.path = path;
+    UriComponents uri = UriComponentsBuilder.fromUriString(path).build();
+    this.servletPath = uri.getPath();
+    this.queryString = uri.getQuery();
+    uri.getQueryParams().forEach((name, values) -> parameters.put(decode(name),
+        values.stream().map(v -> v == null ? "" : decode(v)).toArray(String[]::new)));
+
+    String batchUrl = batchRequest.getRequestURL().toString();
+    this.requestOrigin = batchUrl.substring(0, batchUrl.length() - batchRequest.getRequestURI().length());
+    this.contextPath = batchRequest.getContextPath();
+    this.servletContext = batchRequest.getServletContext();
+    this.servletMapping = batchRequest.getHttpServletMapping();
+    this.protocol = batchRequest.getProtocol();
+    this.scheme = batchRequest.getScheme();
+    this.serverName = batchRequest.getServerName();
+    this.serverPort = batchRequest.getServerPort();
+    this.secure = batchRequest.isSecure();
+    this.remoteAddr = batchRequest.getRemoteAddr();
+    this.remoteHost = batchRequest.getRemoteHost();
+    this.remotePort = batchRequest.getRemotePort();
+    this.localAddr = batchRequest.getLocalAddr();
+    this.localName = batchRequest.getLocalName();
+    this.localPort = batchRequest.getLocalPort();
+    Cookie[] batchCookies = batchRequest.getCookies();
+    this.cookies = batchCookies == null ? null
+        : Arrays.stream(batchCookies).map(cookie -> (Cookie) cookie.clone()).toArray(Cookie[]::new);
+    this.session = batchRequest.getSession(false);
+    this.requestedSessionId = batchRequest.getRequestedSessionId();
+    this.requestedSessionIdValid = batchRequest.isRequestedSessionIdValid();
+    this.requestedSessionIdFromCookie = batchRequest.isRequestedSessionIdFromCookie();
+    this.requestedSessionIdFromURL = batchRequest.isRequestedSessionIdFromURL();
+    this.userPrincipal = batchRequest.getUserPrincipal();
+    this.remoteUser = batchRequest.getRemoteUser();
+    this.authType = batchRequest.getAuthType();
+  }
+
+  /**
+   * Called on the batch request's thread, before any sub-request starts.
+   */
+  static Map<String, Object> inheritableAttributes(HttpServletRequest batchRequest) {
+    Map<String, Object> inherited = new HashMap<>();
+    for (String name : Collections.list(batchRequest.getAttributeNames())) {
+      Object value = batchRequest.getAttribute(name);
+      if (!name.startsWith(DISPATCH_STATE_PREFIX) && value != null) {
+        inherited.put(name, value);
+      }
+    }
+    return inherited;
+  }
+
+  private static String decode(String value) {
+    return URLDecoder.decode(value, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * The path as given in the batch, including the query string.
+   */
+  String getPath() {
+    return path;
+  }
+
+  @Override
+  public String getMethod() {
+    return "GET";
+  }
+
+  @Override
+  public DispatcherType getDispatcherType() {
+    return DispatcherType.REQUEST;
+  }
+
+  @Override
+  public String getRequestURI() {
+    return contextPath + servletPath;
+  }
+
+  @Override
+  public StringBuffer getRequestURL() {
+    return new StringBuffer(requestOrigin).append(getRequestURI());
+  }
+
+  @Override
+  public String getContextPath() {
+    return contextPath;
+  }
+
+  @Override
+  public String getServletPath() {
+    return servletPath;
+  }
+
+  @Override
+  public String getPathInfo() {
+    return null;
+  }
+
+  @Override
+  public String getPathTranslated() {
+    return null;
+  }
+
+  @Override
+  public HttpServletMapping getHttpServletMapping() {
+    return servletMapping;
+  }
+
+  @Override
+  public ServletContext getServletContext() {
+    return servletContext;
+  }
+
+  @Override
+  public RequestDispatcher getRequestDispatcher(String path) {
+    return servletContext.getRequestDispatcher(path);
+  }
+
+  @Override
+  public String getQueryString() {
+    return queryString;
+  }
+
+  @Override
+  public String getProtocol() {
+    return protocol;
+  }
+
+  @Override
+  public String getScheme() {
+    return scheme;
+  }
+
+  @Override
+  public String getServerName() {
+    return serverName;
+  }
+
+  @Override
+  public int getServerPort() {
+    return serverPort;
+  }
+
+  @Override
+  public boolean isSecure() {
+    return secure;
+  }
+
+  @Override
+  public String getRemoteAddr() {
+    return remoteAddr;
+  }
+
+  @Override
+  public String getRemoteHost() {
+    return remoteHost;
+  }
+
+  @Override
+  public int getRemotePort() {
+    return remotePort;
+  }
+
+  @Override
+  public String getLocalAddr() {
+    return localAddr;
+  }
+
+  @Override
+  public String getLocalName() {
+    return localName;
+  }
+
+  @Override
+  public int getLocalPort() {
+    return localPort;
+  }
+
+  @Override
+  public String getHeader(String name) {
+    return null;
+  }
+
+  @Override
+  public Enumeration<String> getHeaders(String name) {
+    return Collections.emptyEnumeration();
+  }
+
+  @Override
+  public Enumeration<String> getHeaderNames() {
+    return Collections.emptyEnumeration();
+  }
+
+  @Override
+  public int getIntHeader(String name) {
+    return -1;
+  }
+
+  @Override
+  public long getDateHeader(String name) {
+    return -1;
+  }
+
+  @Override
+  public Locale getLocale() {
+    return Locale.getDefault();
+  }
+
+  @Override
+  public Enumeration<Locale> getLocales() {
+    return Collections.enumeration(List.of(Locale.getDefault()));
+  }
+
+  @Override
+  public Cookie[] getCookies() {
+    return cookies == null ? null : cookies.clone();
+  }
+
+  /**
+   * The batch request's session, if it had one.  A sub-request can't start
+   * a session of its own, so this may return null even when create is true.
+   */
+  @Override
+  public HttpSession getSession(boolean create) {
+    return session;
+  }
+
+  @Override
+  public HttpSession getSession() {
+    return session;
+  }
+
+  @Override
+  public String getRequestedSessionId() {
+    return requestedSessionId;
+  }
+
+  @Override
+  public boolean isRequestedSessionIdValid() {
+    return requestedSessionIdValid;
+  }
+
+  @Override
+  public boolean isRequestedSessionIdFromCookie() {
+    return requestedSessionIdFromCookie;
+  }
+
+  @Override
+  public boolean isRequestedSessionIdFromURL() {
+    return requestedSessionIdFromURL;
+  }
+
+  @Override
+  public Principal getUserPrincipal() {
+    return userPrincipal;
+  }
+
+  @Override
+  public String getRemoteUser() {
+    return remoteUser;
+  }
+
+  @Override
+  public String getAuthType() {
+    return authType;
+  }
+
+  /**
+   * Checked against the caller's SecurityContext, which the worker thread
+   * has been given.
+   */
+  @Override
+  public boolean isUserInRole(String role) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    return authentication != null && authentication.getAuthorities().stream()
+        .anyMatch(authority -> authority.getAuthority().equals("ROLE_" + role));
+  }
+
+  @Override
+  public String getCharacterEncoding() {
+    return null;
+  }
+
+  @Override
+  public void setCharacterEncoding(String encoding) {
+  }
+
+  @Override
+  public String getContentType() {
+    return null;
+  }
+
+  @Override
+  public int getContentLength() {
+    return -1;
+  }
+
+  @Override
+  public long getContentLengthLong() {
+    return -1;
+  }
+
+  @Override
+  public ServletInputStream getInputStream() {
+    return new ServletInputStream() {
+      @Override
+      public int read() {
+        return -1;
+      }
+
+      @Override
+      public boolean isFinished() {
+        return true;
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setReadListener(ReadListener listener) {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  @Override
+  public BufferedReader getReader() {
+    return new BufferedReader(new StringReader(""));
+  }
+
+  @Override
+  public boolean isAsyncSupported() {
+    return false;
+  }
+
+  @Override
+  public boolean isAsyncStarted() {
+    return false;
+  }
+
+  @Override
+  public AsyncContext getAsyncContext() {
+    return null;
+  }
+
+  @Override
+  public String getParameter(String name) {
+    String[] values = parameters.get(name);
+    return values == null || values.length == 0 ? null : values[0];
+  }
+
+  @Override
+  public Map<String, String[]> getParameterMap() {
+    return Collections.unmodifiableMap(parameters);
+  }
+
+  @Override
+  public Enumeration<String> getParameterNames() {
+    return Collections.enumeration(parameters.keySet());
+  }
+
+  @Override
+  public String[] getParameterValues(String name) {
+    return parameters.get(name);
+  }
+
+  @Override
+  public Object getAttribute(String name) {
+    return attributes.get(name);
+  }
+
+  @Override
+  public Enumeration<String> getAttributeNames() {
+    return Collections.enumeration(List.copyOf(attributes.keySet()));
+  }
+
+  @Override
+  public void setAttribute(String name, Object value) {
+    if (value == null) {
+      attributes.remove(name);
+    } else {
+      attributes.put(name, value);
+    }
+  }
+
+  @Override
+  public void removeAttribute(String name) {
+    attributes.remove(name);
+  }
+}
@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.springframework.core.convert.support.GenericConversionService;
+import org.springframework.core.serializer.DefaultDeserializer;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.core.serializer.Deserializer;
+import org.springframework.core.serializer.Serializer;
+import org.springframework.core.serializer.support.DeserializingConverter;
+import org.springframework.core.serializer.support.SerializingConverter;
+
+/**
+ * Java serialization for session attributes, deflated when that makes the
+ * value smaller.  The serialized SecurityContext (OAuth2 token plus all of
+ * Google's user attributes) is the bulk of a session and compresses well.
+ *
+ * Deflated values start with a marker byte; anything else is read as plain
+ * Java serialization, so rows written before this was in place still load.
+ */
+public class CompactSessionSerializer implements Serializer<Object>, Deserializer<Object> {
+
+  static final int DEFLATED = 'Z';
+  static final int MIN_DEFLATE_SIZE = 256;
+
+  private final DefaultSerializer serializer = new DefaultSerializer();
+  private final DefaultDeserializer deserializer;
+
+  public CompactSessionSerializer(ClassLoader classLoader) {
+    this.deserializer = new DefaultDeserializer(classLoader);
+  }
+
+  @Override
+  public void serialize(Object object, OutputStream out) throws IOException {
+    byte[] raw = serializer.serializeToByteArray(object);
+    if (raw.length >= MIN_DEFLATE_SIZE) {
+      ByteArrayOutputStream deflated = new ByteArrayOutputStream(raw.length / 2);
+      deflated.write(DEFLATED);
+      try (DeflaterOutputStream deflater = new DeflaterOutputStream(deflated)) {
+        deflater.write(raw);
+      }
+      if (deflated.size() < raw.length) {
+        deflated.writeTo(out);
+        return;
+      }
+    }
+    out.write(raw);
+  }
+
+  @Override
+  public Object deserialize(InputStream in) throws IOException {
+    byte[] bytes = in.readAllBytes();
+    if (bytes.length > 0 && bytes[0] == DEFLATED) {
+      InputStream inflater = new InflaterInputStream(new ByteArrayInputStream(bytes, 1, bytes.length - 1));
+      return deserializer.deserialize(inflater);
+    }
+    return deserializer.deserialize(new ByteArrayInputStream(bytes));
+  }
+
+  /**
+   * The Object to byte[] and back conversions that JdbcIndexedSessionRepository
+   * uses for attribute values.
+   */
+  public GenericConversionService conversionService() {
+    GenericConversionService conversionService = new GenericConversionService();
+    conversionService.addConverter(Object.class, byte[].class, new SerializingConverter(this));
+    conversionService.addConverter(byte[].class, Object.class, new DeserializingConverter(this));
+    return conversionService;
+  }
+}
@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.MapSession;
+import org.springframework.session.MapSessionRepository;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+import org.springframework.session.jdbc.JdbcIndexedSessionRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Where HTTP sessions live, chosen by app.session.store:
+ *
+ * container (default) - the servlet container's own in-process sessions
+ * jdbc   - the SPRING_SESSION tables in the application database, so several
+ *          nodes can share logins without sticky routing
+ * memory - a map in this process; a stand-in for jdbc in tests and dev
+ *
+ * Both jdbc and memory go through ThrottledSessionRepository.
+ */
+@Slf4j
+public class SessionStoreConfig {
+
+  private SessionStoreConfig() {
+  }
+
+  @Configuration
+  @EnableSpringHttpSession
+  @ConditionalOnProperty(name = "app.session.store", havingValue = "jdbc")
+  public static class Jdbc {
+
+    @Value("${server.servlet.session.timeout:30m}")
+    Duration timeout;
+
+    @Value("${app.session.lastAccessGranularitySeconds:60}")
+    long lastAccessGranularitySeconds;
+
+    private JdbcIndexedSessionRepository jdbcSessionRepository;
+
+    @Bean
+    public ThrottledSessionRepository<?> sessionRepository(JdbcTemplate jdbcTemplate,
+        PlatformTransactionManager transactionManager) {
+      jdbcSessionRepository = new JdbcIndexedSessionRepository(jdbcTemplate,
+          new TransactionTemplate(transactionManager));
+      jdbcSessionRepository.setDefaultMaxInactiveInterval((int) timeout.getSeconds());
+      jdbcSessionRepository.setConversionService(
+          new CompactSessionSerializer(getClass().getClassLoader()).conversionService());
+      log.info("sessions are stored in the database");
+      return new ThrottledSessionRepository<>(jdbcSessionRepository,
+          Duration.ofSeconds(lastAccessGranularitySeconds));
+    }
+
+    @Scheduled(cron = "${app.session.cleanupCron:0 * * * * *}")
+    public void cleanUpExpiredSessions() {
+      jdbcSessionRepository.cleanUpExpiredSessions();
+    }
+  }
+
+  @Configuration
+  @EnableSpringHttpSession
+  @ConditionalOnProperty(name = "app.session.store", havingValue = "memory")
+  public static class Memory {
+
+    @Value("${server.servlet.session.timeout:30m}")
+    Duration timeout;
+
+    @Value("${app.session.lastAccessGranularitySeconds:60}")
+    long lastAccessGranularitySeconds;
+
+    @Bean
+    public ThrottledSessionRepository<MapSession> sessionRepository() {
+      MapSessionRepository mapSessionRepository = new MapSessionRepository(new ConcurrentHashMap<>());
+      mapSessionRepository.setDefaultMaxInactiveInterval((int) timeout.getSeconds());
+      return new ThrottledSessionRepository<>(mapSessionRepository, Duration.ofSeconds(lastAccessGranularitySeconds));
+    }
+  }
+}
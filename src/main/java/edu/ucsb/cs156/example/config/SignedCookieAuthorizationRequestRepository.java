@@ -0,0 +1,93 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.util.SerializationUtils;
+
+import edu.ucsb.cs156.example.services.SignedTokenService;
+
+/**
+ * Keeps the in-flight OAuth2 authorization request (state, redirect uri, ...)
+ * in a short-lived signed cookie instead of the HTTP session, so that the
+ * login round trip does not need a session either.  The expiry is signed
+ * along with the request, so a captured cookie stops working after MAX_AGE
+ * even if the browser would still send it.
+ */
+public class SignedCookieAuthorizationRequestRepository
+    implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+
+  public static final String COOKIE_NAME = "OAUTH2_AUTH_REQUEST";
+  private static final Duration MAX_AGE = Duration.ofMinutes(5);
+
+  private final SignedTokenService signedTokenService;
+
+  public SignedCookieAuthorizationRequestRepository(SignedTokenService signedTokenService) {
+    this.signedTokenService = signedTokenService;
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+    Cookie[] cookies = request.getCookies();
+    if (cookies == null) {
+      return null;
+    }
+    for (Cookie cookie : cookies) {
+      if (COOKIE_NAME.equals(cookie.getName())) {
+        // only deserialize bytes we signed ourselves
+        return signedTokenService.unsign(SignedTokenService.AUTH_REQUEST, cookie.getValue(), Instant.now())
+            .map(bytes -> SerializationUtils.deserialize(bytes))
+            .filter(OAuth2AuthorizationRequest.class::isInstance)
+            .map(OAuth2AuthorizationRequest.class::cast)
+            .orElse(null);
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public void saveAuthorizationRequest(OAuth2AuthorizationRequest authorizationRequest, HttpServletRequest request,
+      HttpServletResponse response) {
+    if (authorizationRequest == null) {
+      setCookie(request, response, "", Duration.ZERO);
+      return;
+    }
+    String value = signedTokenService.sign(SignedTokenService.AUTH_REQUEST,
+        SerializationUtils.serialize(authorizationRequest), Instant.now().plus(MAX_AGE));
+    setCookie(request, response, value, MAX_AGE);
+  }
+
+  @Override
+  @Deprecated
+  public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request) {
+    return loadAuthorizationRequest(request);
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest removeAuthorizationRequest(HttpServletRequest request,
+      HttpServletResponse response) {
+    OAuth2AuthorizationRequest authorizationRequest = loadAuthorizationRequest(request);
+    setCookie(request, response, "", Duration.ZERO);
+    return authorizationRequest;
+  }
+
+  private static void setCookie(HttpServletRequest request, HttpServletResponse response, String value,
+      Duration maxAge) {
+    ResponseCookie cookie = ResponseCookie.from(COOKIE_NAME, value)
+        .httpOnly(true)
+        .secure(request.isSecure())
+        .sameSite("Lax")
+        .path("/")
+        .maxAge(maxAge)
+        .build();
+    response.addHeader(HttpHeaders.SET_COOKIE, cookie.toString());
+  }
+}
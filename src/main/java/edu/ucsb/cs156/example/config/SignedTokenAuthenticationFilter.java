@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import edu.ucsb.cs156.example.models.SignedToken;
+import edu.ucsb.cs156.example.services.SignedTokenService;
+
+/**
+ * In stateless mode, rebuilds the OAuth2AuthenticationToken for each request
+ * from the signed token cookie, without touching the session or the database.
+ * A cookie that does not verify is cleared and the request continues
+ * unauthenticated.
+ */
+public class SignedTokenAuthenticationFilter extends OncePerRequestFilter {
+
+  public static final String REGISTRATION_ID = "google";
+
+  private final SignedTokenService signedTokenService;
+
+  public SignedTokenAuthenticationFilter(SignedTokenService signedTokenService) {
+    this.signedTokenService = signedTokenService;
+  }
+
+  @Override
+  protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+      throws ServletException, IOException {
+    Optional<String> cookie = tokenCookie(request);
+    if (cookie.isPresent() && SecurityContextHolder.getContext().getAuthentication() == null) {
+      Optional<SignedToken> token = signedTokenService.verify(cookie.get(), Instant.now());
+      if (token.isPresent()) {
+        SecurityContextHolder.getContext().setAuthentication(authentication(token.get()));
+      } else {
+        response.addHeader(HttpHeaders.SET_COOKIE,
+            SignedTokenLoginSuccessHandler.cookie(request, "", Duration.ZERO).toString());
+      }
+    }
+    chain.doFilter(request, response);
+  }
+
+  static OAuth2AuthenticationToken authentication(SignedToken token) {
+    Set<GrantedAuthority> authorities = token.getRoles().stream()
+        .map(SimpleGrantedAuthority::new)
+        .collect(Collectors.toSet());
+    Map<String, Object> attributes = Map.of(
+        "sub", token.getSub(),
+        "email", token.getEmail(),
+        "uid", token.getUid());
+    DefaultOAuth2User principal = new DefaultOAuth2User(authorities, attributes, "sub");
+    return new OAuth2AuthenticationToken(principal, authorities, REGISTRATION_ID);
+  }
+
+  private static Optional<String> tokenCookie(HttpServletRequest request) {
+    Cookie[] cookies = request.getCookies();
+    if (cookies == null) {
+      return Optional.empty();
+    }
+    for (Cookie cookie : cookies) {
+      if (SignedTokenService.COOKIE_NAME.equals(cookie.getName())) {
+        return Optional.of(cookie.getValue());
+      }
+    }
+    return Optional.empty();
+  }
+}
@@ -0,0 +1,49 @@
+package edu.ucsb.cs156.example.config;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationSuccessHandler;
+
+import edu.ucsb.cs156.example.services.SignedTokenService;
+
+/**
+ * In stateless mode, sets the signed token cookie once OAuth2 login succeeds
+ * and then redirects to / just as the default handler would.
+ */
+public class SignedTokenLoginSuccessHandler extends SimpleUrlAuthenticationSuccessHandler {
+
+  private final SignedTokenService signedTokenService;
+
+  public SignedTokenLoginSuccessHandler(SignedTokenService signedTokenService) {
+    super("/");
+    this.signedTokenService = signedTokenService;
+  }
+
+  @Override
+  public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
+      Authentication authentication) throws IOException, ServletException {
+    String token = signedTokenService.issue(authentication, Instant.now());
+    response.addHeader(HttpHeaders.SET_COOKIE,
+        cookie(request, token, Duration.ofSeconds(signedTokenService.getTokenTtlSeconds())).toString());
+    super.onAuthenticationSuccess(request, response, authentication);
+  }
+
+  static ResponseCookie cookie(HttpServletRequest request, String value, Duration maxAge) {
+    return ResponseCookie.from(SignedTokenService.COOKIE_NAME, value)
+        .httpOnly(true)
+        .secure(request.isSecure())
+        .sameSite("Lax")
+        .path("/")
+        .maxAge(maxAge)
+        .build();
+  }
+}
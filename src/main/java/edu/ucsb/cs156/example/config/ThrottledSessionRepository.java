@@ -0,0 +1,126 @@
+package edu.ucsb.cs156.example.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+
+import org.springframework.session.Session;
+import org.springframework.session.SessionRepository;
+
+/**
+ * Wraps a SessionRepository so that a request which only touches a session
+ * (no attribute changes) writes the new last-access time at most once per
+ * granularity, instead of on every request.  With a JDBC store this turns
+ * one UPDATE per request into one per session per minute or so.
+ *
+ * The cost is that a session may expire up to one granularity early.
+ */
+public class ThrottledSessionRepository<S extends Session>
+    implements SessionRepository<ThrottledSessionRepository.ThrottledSession<S>> {
+
+  private final SessionRepository<S> delegate;
+  private final Duration granularity;
+
+  public ThrottledSessionRepository(SessionRepository<S> delegate, Duration granularity) {
+    this.delegate = delegate;
+    this.granularity = granularity;
+  }
+
+  public SessionRepository<S> getDelegate() {
+    return delegate;
+  }
+
+  @Override
+  public ThrottledSession<S> createSession() {
+    return new ThrottledSession<>(delegate.createSession(), granularity);
+  }
+
+  @Override
+  public void save(ThrottledSession<S> session) {
+    delegate.save(session.delegate);
+  }
+
+  @Override
+  public ThrottledSession<S> findById(String id) {
+    S session = delegate.findById(id);
+    return session == null ? null : new ThrottledSession<>(session, granularity);
+  }
+
+  @Override
+  public void deleteById(String id) {
+    delegate.deleteById(id);
+  }
+
+  public static final class ThrottledSession<S extends Session> implements Session {
+
+    private final S delegate;
+    private final Duration granularity;
+
+    ThrottledSession(S delegate, Duration granularity) {
+      this.delegate = delegate;
+      this.granularity = granularity;
+    }
+
+    @Override
+    public void setLastAccessedTime(Instant lastAccessedTime) {
+      if (Duration.between(delegate.getLastAccessedTime(), lastAccessedTime).compareTo(granularity) >= 0) {
+        delegate.setLastAccessedTime(lastAccessedTime);
+      }
+    }
+
+    @Override
+    public String getId() {
+      return delegate.getId();
+    }
+
+    @Override
+    public String changeSessionId() {
+      return delegate.changeSessionId();
+    }
+
+    @Override
+    public <T> T getAttribute(String attributeName) {
+      return delegate.getAttribute(attributeName);
+    }
+
+    @Override
+    public Set<String> getAttributeNames() {
+      return delegate.getAttributeNames();
+    }
+
+    @Override
+    public void setAttribute(String attributeName, Object attributeValue) {
+      delegate.setAttribute(attributeName, attributeValue);
+    }
+
+    @Override
+    public void removeAttribute(String attributeName) {
+      delegate.removeAttribute(attributeName);
+    }
+
+    @Override
+    public Instant getCreationTime() {
+      return delegate.getCreationTime();
+    }
+
+    @Override
+    public Instant getLastAccessedTime() {
+      return delegate.getLastAccessedTime();
+    }
+
+    @Override
+    public void setMaxInactiveInterval(Duration interval) {
+      delegate.setMaxInactiveInterval(interval);
+    }
+
+    @Override
+    public Duration getMaxInactiveInterval() {
+      return delegate.getMaxInactiveInterval();
+    }
+
+    @Override
+    public boolean isExpired() {
+      return delegate.isExpired();
+    }
+  }
+}
@@ -0,0 +1,46 @@
+package edu.ucsb.cs156.example.config;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+
+import edu.ucsb.cs156.example.ratelimit.RateLimitInterceptor;
+import edu.ucsb.cs156.example.ratelimit.RateLimitProperties;
+import edu.ucsb.cs156.example.ratelimit.RateLimiter;
+import edu.ucsb.cs156.example.security.RoleCheckInterceptor;
+
+@Configuration
+@EnableConfigurationProperties(RateLimitProperties.class)
+public class WebConfig implements WebMvcConfigurer {
+
+  @Autowired
+  RateLimitProperties rateLimitProperties;
+
+  @Bean
+  public RateLimiter rateLimiter() {
+    return new RateLimiter(rateLimitProperties);
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    registry.addInterceptor(new RoleCheckInterceptor());
+    registry.addInterceptor(new RateLimitInterceptor(rateLimiter()));
+  }
+
+  /**
+   * Answers Accept: application/cbor with the same modules and serializers
+   * as JSON.  It replaces Spring's default CBOR converter, which comes after
+   * the JSON one, so JSON stays the default for clients that accept anything.
+   */
+  @Bean
+  public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+    return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+  }
+}
@@ -1,30 +1,141 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.WriteQueueFullException;
+import edu.ucsb.cs156.example.errors.WriteTimeoutException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.repository.CrudRepository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.repositories.EntitySpecifications;
 import edu.ucsb.cs156.example.services.CurrentUserService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.ResponseStatus;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
 
 @Slf4j
 public abstract class ApiController {
+  protected static final int MAX_PAGE_SIZE = 100;
+
   @Autowired
   private CurrentUserService currentUserService;
 
+  @Autowired
+  private ObjectMapper objectMapper;
+
   protected CurrentUser getCurrentUser() {
     return currentUserService.getCurrentUser();
   }
 
+  /**
+   * A String[] parameter keeps each value whole instead of being split on
+   * commas, so that repeated filter= terms may themselves contain commas,
+   * e.g. filter=comments:good, cheap
+   */
+  @InitBinder
+  public void keepCommasInArrayParameters(WebDataBinder binder) {
+    binder.registerCustomEditor(String[].class, new StringArrayPropertyEditor(null));
+  }
+
   protected Object genericMessage(String message) {
     return Map.of("message", message);
   }
 
+  /**
+   * Applies a JSON Merge Patch (RFC 7396) to an entity in place.
+   * Only the fields present in the patch are changed; the id is never patched.
+   */
+  protected <T> T applyMergePatch(T target, JsonNode patch) {
+    if (!(patch instanceof ObjectNode)) {
+      throw new BadRequestException("Merge patch must be a JSON object");
+    }
+    ObjectNode fields = ((ObjectNode) patch).deepCopy();
+    fields.remove("id");
+    try {
+      return objectMapper.readerForUpdating(target).readValue(fields);
+    } catch (IOException e) {
+      throw new BadRequestException("Invalid merge patch: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Fetches one page of entities, sorted and filtered in the database.
+   * See EntitySpecifications for the sort and filter syntax; only the
+   * fields in allowedFields may be used.
+   */
+  protected <T> Page<T> findPage(JpaSpecificationExecutor<T> repository, Class<T> entityClass,
+      Set<String> allowedFields, int page, int size, List<String> sort, String[] filter) {
+    return repository.findAll(
+        EntitySpecifications.filter(entityClass, filter, allowedFields),
+        pageRequest(allowedFields, page, size, sort));
+  }
+
+  /**
+   * Validates the page and size parameters of a paged list endpoint and
+   * parses its sort parameter.
+   */
+  protected PageRequest pageRequest(Set<String> allowedFields, int page, int size, List<String> sort) {
+    if (page < 0) {
+      throw new BadRequestException("page must not be negative");
+    }
+    if (size < 1 || size > MAX_PAGE_SIZE) {
+      throw new BadRequestException("size must be between 1 and " + MAX_PAGE_SIZE);
+    }
+    return PageRequest.of(page, size, EntitySpecifications.sort(sort, allowedFields));
+  }
+
+  /**
+   * Fetches up to MAX_PAGE_SIZE entities with a single IN (...) query.
+   * Repeated ids are only returned once; otherwise results keep the request
+   * order.  Hibernate pads the IN list to a power of two
+   * (hibernate.query.in_clause_parameter_padding) so that the number of
+   * distinct statements stays small.
+   */
+  protected <T, ID> ManyResponse<T, ID> findMany(CrudRepository<T, ID> repository, List<ID> ids, Function<T, ID> idOf) {
+    Set<ID> distinct = new LinkedHashSet<>(ids);
+    distinct.remove(null);
+    if (distinct.isEmpty() || distinct.size() > MAX_PAGE_SIZE) {
+      throw new BadRequestException("ids must list between 1 and " + MAX_PAGE_SIZE + " ids");
+    }
+    Map<ID, T> byId = new HashMap<>();
+    repository.findAllById(distinct).forEach(entity -> byId.put(idOf.apply(entity), entity));
+
+    List<T> found = new ArrayList<>();
+    List<ID> missing = new ArrayList<>();
+    for (ID id : distinct) {
+      T entity = byId.get(id);
+      if (entity != null) {
+        found.add(entity);
+      } else {
+        missing.add(id);
+      }
+    }
+    return new ManyResponse<>(found, missing);
+  }
+
   @ExceptionHandler({ EntityNotFoundException.class })
   @ResponseStatus(HttpStatus.NOT_FOUND)
   public Object handleGenericException(Throwable e) {
@@ -33,4 +144,37 @@ public abstract class ApiController {
       "message", e.getMessage()
     );
   }
+
+  @ExceptionHandler({ BadRequestException.class })
+  @ResponseStatus(HttpStatus.BAD_REQUEST)
+  public Object handleBadRequest(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  @ExceptionHandler({ WriteQueueFullException.class, WriteTimeoutException.class })
+  @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+  public Object handleWriteQueueFull(Throwable e) {
+    return Map.of(
+      "type", e.getClass().getSimpleName(),
+      "message", e.getMessage()
+    );
+  }
+
+  /**
+   * A foreign key (or other constraint) rejected the write, e.g. deleting a
+   * menu item that still has reviews.  The driver's message names tables
+   * and SQL, so it is not passed on.
+   */
+  @ExceptionHandler({ DataIntegrityViolationException.class })
+  @ResponseStatus(HttpStatus.CONFLICT)
+  public Object handleConflict(Throwable e) {
+    log.info("constraint violation: {}", e.getMessage());
+    return Map.of(
+      "type", "Conflict",
+      "message", "The change conflicts with related records"
+    );
+  }
 }
@@ -4,7 +4,14 @@ import edu.ucsb.cs156.example.controllers.ApiController;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.repositories.EntitySpecifications;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
+import edu.ucsb.cs156.example.security.RequiresRole;
+import edu.ucsb.cs156.example.security.Role;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -14,8 +21,9 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -28,6 +36,8 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 @Tag(name = "Articles")
 @RequestMapping("/api/articles")
@@ -35,19 +45,67 @@ import java.time.LocalDateTime;
 @Slf4j
 public class ArticlesController extends ApiController {
 
+    private static final Set<String> PAGED_FIELDS = Set.of(
+            "id", "title", "url", "email", "dateAdded");
+
     @Autowired
     ArticlesRepository articlesRepository;
 
+    @Autowired
+    EntityChangeService entityChanges;
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
     @Operation(summary= "List all articles")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("/all")
-    public Iterable<Articles> allArticles() {
+    public Iterable<?> allArticles(
+            @Parameter(name="fields", description="comma separated list of fields to return (default: all)") @RequestParam(required = false) List<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            return sparseFieldsetService.findAll(Articles.class, fields);
+        }
         Iterable<Articles> articles = articlesRepository.findAll();
         return articles;
     }
 
+    @Operation(summary= "Get one page of articles, sorted and filtered in the database")
+    @RequiresRole(Role.USER)
+    @GetMapping("/paged")
+    public Page<?> pagedArticles(
+            @Parameter(name="page", description="zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(name="size", description="page size (at most 100)") @RequestParam(defaultValue = "10") int size,
+            @Parameter(name="sort", description="comma separated fields, prefix with - for descending, e.g. -dateAdded") @RequestParam(required = false) List<String> sort,
+            @Parameter(name="filter", description="field:value, field>=value or field<=value, e.g. email:ucsb.edu; repeat the parameter to combine terms") @RequestParam(required = false) String[] filter,
+            @Parameter(name="fields", description="comma separated list of fields to return (default: all)") @RequestParam(required = false) List<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            return sparseFieldsetService.findPage(Articles.class, fields,
+                    EntitySpecifications.filter(Articles.class, filter, PAGED_FIELDS),
+                    pageRequest(PAGED_FIELDS, page, size, sort));
+        }
+        return findPage(articlesRepository, Articles.class, PAGED_FIELDS, page, size, sort, filter);
+    }
+
+    @Operation(summary= "Changes to articles since a version, for clients that keep a local copy")
+    @RequiresRole(Role.USER)
+    @GetMapping("/sync")
+    public SyncResponse syncArticles(
+            @Parameter(name="since", description="version returned by the previous sync; 0 for everything") @RequestParam(defaultValue = "0") long since,
+            @Parameter(name="limit", description="at most this many changes (1 to 1000)") @RequestParam(defaultValue = "500") int limit) {
+        return entityChanges.sync(Articles.class, since, limit);
+    }
+
+    @Operation(summary= "Get several articles by id, in the order requested")
+    @RequiresRole(Role.USER)
+    @GetMapping("/many")
+    public ManyResponse<Articles, Long> getManyArticles(
+            @Parameter(name="ids", description="comma separated ids (at most 100), e.g. 1,2,3") @RequestParam List<Long> ids) {
+        return findMany(articlesRepository, ids, Articles::getId);
+    }
+
     @Operation(summary= "Create an article")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PostMapping("/post")
     public Articles postArticles(
             @Parameter(name="title") @RequestParam String title,
@@ -71,12 +129,14 @@ public class ArticlesController extends ApiController {
 
 
         Articles savedArticles = articlesRepository.save(articles);
+        entityChanges.created(savedArticles);
 
         return savedArticles;
     }
 
     @Operation(summary= "Delete an article")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @DeleteMapping("")
     public Object deleteArticles(
             @Parameter(name="id") @RequestParam Long id) {
@@ -84,11 +144,13 @@ public class ArticlesController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(Articles.class, id));
 
         articlesRepository.delete(article);
+        entityChanges.deleted(article);
         return genericMessage("Article with id %s deleted".formatted(id));
     }
 
     @Operation(summary= "Update a single Article")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PutMapping("")
     public Articles updateArticles(
             @Parameter(name="id") @RequestParam Long id,
@@ -104,12 +166,13 @@ public class ArticlesController extends ApiController {
             articles.setDateAdded(incoming.getDateAdded());
 
         articlesRepository.save(articles);
+        entityChanges.updated(articles);
 
         return articles;
     }
 
     @Operation(summary= "Get a single article")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("")
     public Articles getById(
             @Parameter(name="id") @RequestParam Long id) {
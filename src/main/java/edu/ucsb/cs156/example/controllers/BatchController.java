@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.controllers;
+
+import java.util.List;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ucsb.cs156.example.batch.BatchService;
+import edu.ucsb.cs156.example.models.BatchResult;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@Tag(name = "Batch")
+@RequestMapping("/api/batch")
+@RestController
+public class BatchController extends ApiController {
+
+  @Autowired
+  BatchService batch;
+
+  @Operation(summary = "Run up to 20 GET requests to /api/... in one round trip, e.g. [\"/api/currentUser\", \"/api/systemInfo\"]; "
+      + "each is checked as if it had been sent on its own, and results come back in the same order")
+  @PostMapping("")
+  public List<BatchResult> batch(HttpServletRequest request, @RequestBody List<String> paths) {
+    return batch.execute(request, paths);
+  }
+}
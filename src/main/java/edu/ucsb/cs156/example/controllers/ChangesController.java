@@ -0,0 +1,34 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.models.ChangeFeed;
+import edu.ucsb.cs156.example.security.RequiresRole;
+import edu.ucsb.cs156.example.security.Role;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@Tag(name = "Entity changes")
+@RequestMapping("/api/changes")
+@RestController
+public class ChangesController extends ApiController {
+
+    @Autowired
+    EntityChangeService entityChangeService;
+
+    @Operation(summary = "Creates, updates and deletes of all entities after a sequence number, oldest first")
+    @RequiresRole(Role.USER)
+    @GetMapping("")
+    public ChangeFeed changes(
+            @Parameter(name = "since", description = "return changes with a larger sequence number; use next from the previous call") @RequestParam(defaultValue = "0") long since,
+            @Parameter(name = "limit", description = "at most this many changes (1 to 1000)") @RequestParam(defaultValue = "100") int limit) {
+        return entityChangeService.feed(since, limit);
+    }
+}
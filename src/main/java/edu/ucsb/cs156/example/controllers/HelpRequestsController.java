@@ -2,7 +2,14 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.repositories.EntitySpecifications;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.security.RequiresRole;
+import edu.ucsb.cs156.example.security.Role;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,12 +17,15 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -26,6 +36,8 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 @Tag(name = "HelpRequests")
 @RequestMapping("/api/HelpRequest")
@@ -33,19 +45,67 @@ import java.time.LocalDateTime;
 @Slf4j
 public class HelpRequestsController extends ApiController {
 
+    private static final Set<String> PAGED_FIELDS = Set.of(
+            "id", "requesterEmail", "teamId", "tableOrBreakoutRoom", "requestTime", "solved");
+
     @Autowired
     HelpRequestRepository helpRequestRepository;
 
+    @Autowired
+    EntityChangeService entityChanges;
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
     @Operation(summary= "List all help requests")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("/all")
-    public Iterable<HelpRequest> allHelpRequests() {
+    public Iterable<?> allHelpRequests(
+            @Parameter(name="fields", description="comma separated list of fields to return (default: all)") @RequestParam(required = false) List<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            return sparseFieldsetService.findAll(HelpRequest.class, fields);
+        }
         Iterable<HelpRequest> reqs = helpRequestRepository.findAll();
         return reqs;
     }
 
+    @Operation(summary= "Get one page of help requests, sorted and filtered in the database")
+    @RequiresRole(Role.USER)
+    @GetMapping("/paged")
+    public Page<?> pagedHelpRequests(
+            @Parameter(name="page", description="zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(name="size", description="page size (at most 100)") @RequestParam(defaultValue = "10") int size,
+            @Parameter(name="sort", description="comma separated fields, prefix with - for descending, e.g. -requestTime") @RequestParam(required = false) List<String> sort,
+            @Parameter(name="filter", description="field:value, field>=value or field<=value, e.g. solved:false; repeat the parameter to combine terms") @RequestParam(required = false) String[] filter,
+            @Parameter(name="fields", description="comma separated list of fields to return (default: all)") @RequestParam(required = false) List<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            return sparseFieldsetService.findPage(HelpRequest.class, fields,
+                    EntitySpecifications.filter(HelpRequest.class, filter, PAGED_FIELDS),
+                    pageRequest(PAGED_FIELDS, page, size, sort));
+        }
+        return findPage(helpRequestRepository, HelpRequest.class, PAGED_FIELDS, page, size, sort, filter);
+    }
+
+    @Operation(summary= "Changes to help requests since a version, for clients that keep a local copy")
+    @RequiresRole(Role.USER)
+    @GetMapping("/sync")
+    public SyncResponse syncHelpRequest(
+            @Parameter(name="since", description="version returned by the previous sync; 0 for everything") @RequestParam(defaultValue = "0") long since,
+            @Parameter(name="limit", description="at most this many changes (1 to 1000)") @RequestParam(defaultValue = "500") int limit) {
+        return entityChanges.sync(HelpRequest.class, since, limit);
+    }
+
+    @Operation(summary= "Get several help requests by id, in the order requested")
+    @RequiresRole(Role.USER)
+    @GetMapping("/many")
+    public ManyResponse<HelpRequest, Long> getManyHelpRequest(
+            @Parameter(name="ids", description="comma separated ids (at most 100), e.g. 1,2,3") @RequestParam List<Long> ids) {
+        return findMany(helpRequestRepository, ids, HelpRequest::getId);
+    }
+
     @Operation(summary= "Create a new help request")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PostMapping("/post")
     public HelpRequest postHelpRequest(
             @Parameter(name="requesterEmail") @RequestParam String requesterEmail,
@@ -70,12 +130,13 @@ public class HelpRequestsController extends ApiController {
         helpRequest.setSolved(solved);
 
         HelpRequest savedHelpRequest = helpRequestRepository.save(helpRequest);
+        entityChanges.created(savedHelpRequest);
 
         return savedHelpRequest;
     }
 
     @Operation(summary= "Get a single help request")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("")
     public HelpRequest getById(
             @Parameter(name="id") @RequestParam Long id) {
@@ -86,7 +147,8 @@ public class HelpRequestsController extends ApiController {
     }
 
     @Operation(summary= "Delete a HelpRequest")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @DeleteMapping("")
     public Object deleteHelpRequest(
             @Parameter(name="id") @RequestParam Long id) {
@@ -94,11 +156,13 @@ public class HelpRequestsController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
 
         helpRequestRepository.delete(helpRequest);
+        entityChanges.deleted(helpRequest);
         return genericMessage("HelpRequest with id %s deleted".formatted(id));
     }
 
     @Operation(summary= "Update a single helprequest")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PutMapping("")
     public HelpRequest updateHelpRequest(
             @Parameter(name="id") @RequestParam Long id,
@@ -115,6 +179,26 @@ public class HelpRequestsController extends ApiController {
         helpRequest.setSolved(incoming.getSolved());
 
         helpRequestRepository.save(helpRequest);
+        entityChanges.updated(helpRequest);
+
+        return helpRequest;
+    }
+
+    @Operation(summary= "Partially update a single helprequest (JSON Merge Patch)")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
+    @PatchMapping(value = "", consumes = { "application/merge-patch+json", "application/json" })
+    public HelpRequest patchHelpRequest(
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestBody JsonNode patch) {
+
+        HelpRequest helpRequest = helpRequestRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(HelpRequest.class, id));
+
+        applyMergePatch(helpRequest, patch);
+
+        helpRequestRepository.save(helpRequest);
+        entityChanges.updated(helpRequest);
 
         return helpRequest;
     }
@@ -2,7 +2,17 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.errors.WriteTimeoutException;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.repositories.EntitySpecifications;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.security.RequiresRole;
+import edu.ucsb.cs156.example.security.Role;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.ReferenceKeyService;
+import edu.ucsb.cs156.example.services.MenuItemReviewWriteBehindService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,8 +22,11 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -26,6 +39,12 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Tag(name = "MenuItemReviews")
 @RequestMapping("/api/menuitemreview")
@@ -33,31 +52,89 @@ import java.time.LocalDateTime;
 @Slf4j
 public class MenuItemReviewController extends ApiController {
 
+    private static final Set<String> PAGED_FIELDS = Set.of(
+            "id", "itemId", "reviewerEmail", "stars", "dateReviewed");
+
     @Autowired
     MenuItemReviewRepository menuItemReviewRepository;
 
+    @Autowired
+    EntityChangeService entityChanges;
+
+    @Autowired
+    ReferenceKeyService referenceKeys;
+
+    @Autowired
+    TransactionOperations transactionOperations;
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
+    @Autowired
+    MenuItemReviewWriteBehindService menuItemReviewWriteBehind;
+
     @Operation(summary= "List menu item reviews")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("/all")
-    public Iterable<MenuItemReview> allMenuItemReviews() {
+    public Iterable<?> allMenuItemReviews(
+            @Parameter(name="fields", description="comma separated list of fields to return (default: all)") @RequestParam(required = false) List<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            return sparseFieldsetService.findAll(MenuItemReview.class, fields);
+        }
         Iterable<MenuItemReview> reviews = menuItemReviewRepository.findAll();
         return reviews;
     }
 
+    @Operation(summary= "Get one page of menu item reviews, sorted and filtered in the database")
+    @RequiresRole(Role.USER)
+    @GetMapping("/paged")
+    public Page<?> pagedMenuItemReviews(
+            @Parameter(name="page", description="zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(name="size", description="page size (at most 100)") @RequestParam(defaultValue = "10") int size,
+            @Parameter(name="sort", description="comma separated fields, prefix with - for descending, e.g. -dateReviewed") @RequestParam(required = false) List<String> sort,
+            @Parameter(name="filter", description="field:value, field>=value or field<=value, e.g. stars>=4; repeat the parameter to combine terms") @RequestParam(required = false) String[] filter,
+            @Parameter(name="fields", description="comma separated list of fields to return (default: all)") @RequestParam(required = false) List<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            return sparseFieldsetService.findPage(MenuItemReview.class, fields,
+                    EntitySpecifications.filter(MenuItemReview.class, filter, PAGED_FIELDS),
+                    pageRequest(PAGED_FIELDS, page, size, sort));
+        }
+        return findPage(menuItemReviewRepository, MenuItemReview.class, PAGED_FIELDS, page, size, sort, filter);
+    }
+
+    @Operation(summary= "Changes to menu item reviews since a version, for clients that keep a local copy")
+    @RequiresRole(Role.USER)
+    @GetMapping("/sync")
+    public SyncResponse syncMenuItemReview(
+            @Parameter(name="since", description="version returned by the previous sync; 0 for everything") @RequestParam(defaultValue = "0") long since,
+            @Parameter(name="limit", description="at most this many changes (1 to 1000)") @RequestParam(defaultValue = "500") int limit) {
+        return entityChanges.sync(MenuItemReview.class, since, limit);
+    }
+
+    @Operation(summary= "Get several menu item reviews by id, in the order requested")
+    @RequiresRole(Role.USER)
+    @GetMapping("/many")
+    public ManyResponse<MenuItemReview, Long> getManyMenuItemReview(
+            @Parameter(name="ids", description="comma separated ids (at most 100), e.g. 1,2,3") @RequestParam List<Long> ids) {
+        return findMany(menuItemReviewRepository, ids, MenuItemReview::getId);
+    }
+
     @Operation(summary= "Create a menu item review")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
     @PostMapping("/post")
-    public MenuItemReview postMenuItemReview(
+    public ResponseEntity<MenuItemReview> postMenuItemReview(
             @Parameter(name="itemId") @RequestParam Long itemId,
             @Parameter(name="reviewerEmail") @RequestParam String reviewerEmail,
             @Parameter(name="stars") @RequestParam int stars,
             @Parameter(name="dateReviewed") @RequestParam("dateReviewed") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dateReviewed,
             @Parameter(name="comments") @RequestParam String comments)
-            throws JsonProcessingException {
+            throws JsonProcessingException, InterruptedException {
 
         // For an explanation of @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME)
         // See: https://www.baeldung.com/spring-date-parameters
 
+        referenceKeys.checkMenuItemId(itemId);
+
         MenuItemReview menuItemReview = new MenuItemReview();
         menuItemReview.setItemId(itemId);
         menuItemReview.setReviewerEmail(reviewerEmail);
@@ -65,13 +142,38 @@ public class MenuItemReviewController extends ApiController {
         menuItemReview.setDateReviewed(dateReviewed);
         menuItemReview.setComments(comments);
 
-        MenuItemReview savedMenuItemReview = menuItemReviewRepository.save(menuItemReview);
-        
-        return savedMenuItemReview;
+        if (menuItemReviewWriteBehind.isEnabled()) {
+            CompletableFuture<MenuItemReview> saved = menuItemReviewWriteBehind.submit(menuItemReview);
+            if (!menuItemReviewWriteBehind.isSyncAck()) {
+                // queued, not yet saved: no id yet
+                return ResponseEntity.accepted().body(menuItemReview);
+            }
+            long ackTimeoutMs = menuItemReviewWriteBehind.getAckTimeoutMs();
+            try {
+                return ResponseEntity.ok(saved.get(ackTimeoutMs, TimeUnit.MILLISECONDS));
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Saving the menu item review failed", e.getCause());
+            } catch (TimeoutException e) {
+                throw new WriteTimeoutException(MenuItemReview.class, ackTimeoutMs);
+            }
+        }
+
+        // not @Transactional: the write-behind path above must not hold a
+        // connection while it waits for the writer thread
+        MenuItemReview savedMenuItemReview = transactionOperations.execute(status -> {
+            MenuItemReview saved = menuItemReviewRepository.save(menuItemReview);
+            entityChanges.created(saved);
+            return saved;
+        });
+
+        return ResponseEntity.ok(savedMenuItemReview);
     }
 
     @Operation(summary= "Get a single menu item review")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("")
     public MenuItemReview getById(
             @Parameter(name="id") @RequestParam Long id) {
@@ -82,7 +184,8 @@ public class MenuItemReviewController extends ApiController {
     }
 
     @Operation(summary= "Delete a MenuItemReview")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @DeleteMapping("")
     public Object deleteMenuItemReview(
             @Parameter(name="id") @RequestParam Long id) {
@@ -90,11 +193,13 @@ public class MenuItemReviewController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
         menuItemReviewRepository.delete(menuItemReview);
+        entityChanges.deleted(menuItemReview);
         return genericMessage("MenuItemReview with id %s deleted".formatted(id));
     }
 
     @Operation(summary= "Update a single review")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PutMapping("")
     public MenuItemReview updateMenuItemReview(
             @Parameter(name="id") @RequestParam Long id,
@@ -103,6 +208,7 @@ public class MenuItemReviewController extends ApiController {
         MenuItemReview menuItemReview = menuItemReviewRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(MenuItemReview.class, id));
 
+        referenceKeys.checkMenuItemId(incoming.getItemId());
         menuItemReview.setItemId(incoming.getItemId());
         menuItemReview.setReviewerEmail(incoming.getReviewerEmail());
         menuItemReview.setStars(incoming.getStars());
@@ -110,6 +216,7 @@ public class MenuItemReviewController extends ApiController {
         menuItemReview.setComments(incoming.getComments());
 
         menuItemReviewRepository.save(menuItemReview);
+        entityChanges.updated(menuItemReview);
 
         return menuItemReview;
     }
@@ -0,0 +1,30 @@
+package edu.ucsb.cs156.example.controllers;
+
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import edu.ucsb.cs156.example.ratelimit.RateLimiter;
+import edu.ucsb.cs156.example.security.RequiresRole;
+import edu.ucsb.cs156.example.security.Role;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+
+@Tag(name = "Rate limits (admin only)")
+@RequestMapping("/api/admin/ratelimits")
+@RestController
+public class RateLimitController extends ApiController {
+
+  @Autowired
+  RateLimiter rateLimiter;
+
+  @Operation(summary = "Admitted and rejected write counts per controller since startup")
+  @RequiresRole(Role.ADMIN)
+  @GetMapping("")
+  public Map<String, Long> counts() {
+    return rateLimiter.getCounts();
+  }
+}
@@ -3,8 +3,18 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.RecommendationRequestCount;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.repositories.EntitySpecifications;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.security.RequiresRole;
+import edu.ucsb.cs156.example.security.Role;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.RecommendationRequestReminderService;
+import edu.ucsb.cs156.example.services.RecommendationRequestStatsService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,12 +23,15 @@ import liquibase.pro.packaged.P;
 import lombok.extern.slf4j.Slf4j;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -29,25 +42,105 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 @Tag(name = "RecommendationRequest")
 @RequestMapping("/api/recommendationrequests")
 @RestController
 @Slf4j
 public class RecommendationRequestController extends ApiController {
+    private static final Set<String> PAGED_FIELDS = Set.of(
+            "id", "requesterEmail", "professorEmail", "dateRequested", "dateNeeded", "done");
+
     @Autowired
     RecommendationRequestRepository recommendationRequestRepository;
 
+    @Autowired
+    EntityChangeService entityChanges;
+
+    @Autowired
+    RecommendationRequestReminderService recommendationRequestReminderService;
+
+    @Autowired
+    RecommendationRequestStatsService recommendationRequestStatsService;
+
+    @Autowired
+    SparseFieldsetService sparseFieldsetService;
+
     @Operation(summary= "List all recommendation requests")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("/all")
-    public Iterable<RecommendationRequest> allRecommendationRequests() {
+    public Iterable<?> allRecommendationRequests(
+            @Parameter(name="fields", description="comma separated list of fields to return (default: all)") @RequestParam(required = false) List<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            return sparseFieldsetService.findAll(RecommendationRequest.class, fields);
+        }
         Iterable<RecommendationRequest> requests = recommendationRequestRepository.findAll();
         return requests;
     }
 
+    @Operation(summary= "Get one page of recommendation requests, sorted and filtered in the database")
+    @RequiresRole(Role.USER)
+    @GetMapping("/paged")
+    public Page<?> pagedRecommendationRequests(
+            @Parameter(name="page", description="zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(name="size", description="page size (at most 100)") @RequestParam(defaultValue = "10") int size,
+            @Parameter(name="sort", description="comma separated fields, prefix with - for descending, e.g. dateNeeded") @RequestParam(required = false) List<String> sort,
+            @Parameter(name="filter", description="field:value, field>=value or field<=value, e.g. done:false; repeat the parameter to combine terms") @RequestParam(required = false) String[] filter,
+            @Parameter(name="fields", description="comma separated list of fields to return (default: all)") @RequestParam(required = false) List<String> fields) {
+        if (fields != null && !fields.isEmpty()) {
+            return sparseFieldsetService.findPage(RecommendationRequest.class, fields,
+                    EntitySpecifications.filter(RecommendationRequest.class, filter, PAGED_FIELDS),
+                    pageRequest(PAGED_FIELDS, page, size, sort));
+        }
+        return findPage(recommendationRequestRepository, RecommendationRequest.class, PAGED_FIELDS, page, size, sort, filter);
+    }
+
+    @Operation(summary= "Changes to recommendation requests since a version, for clients that keep a local copy")
+    @RequiresRole(Role.USER)
+    @GetMapping("/sync")
+    public SyncResponse syncRecommendationRequest(
+            @Parameter(name="since", description="version returned by the previous sync; 0 for everything") @RequestParam(defaultValue = "0") long since,
+            @Parameter(name="limit", description="at most this many changes (1 to 1000)") @RequestParam(defaultValue = "500") int limit) {
+        return entityChanges.sync(RecommendationRequest.class, since, limit);
+    }
+
+    @Operation(summary= "Get several recommendation requests by id, in the order requested")
+    @RequiresRole(Role.USER)
+    @GetMapping("/many")
+    public ManyResponse<RecommendationRequest, Long> getManyRecommendationRequest(
+            @Parameter(name="ids", description="comma separated ids (at most 100), e.g. 1,2,3") @RequestParam List<Long> ids) {
+        return findMany(recommendationRequestRepository, ids, RecommendationRequest::getId);
+    }
+
+    @Operation(summary= "List pending recommendation requests needed before a time (default: now)")
+    @RequiresRole(Role.USER)
+    @GetMapping("/overdue")
+    public Iterable<RecommendationRequest> overdueRecommendationRequests(
+            @Parameter(name="asOf") @RequestParam(name = "asOf", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime asOf) {
+        return recommendationRequestRepository.findAllByDoneFalseAndDateNeededBefore(asOf == null ? LocalDateTime.now() : asOf);
+    }
+
+    @Operation(summary= "Count recommendation requests per professor and done status")
+    @RequiresRole(Role.USER)
+    @GetMapping("/counts/professors")
+    public List<RecommendationRequestCount> countsByProfessor(
+            @Parameter(name="professorEmail", description="only this professor (default: all)") @RequestParam(required = false) String professorEmail) {
+        return recommendationRequestStatsService.countsByProfessor(professorEmail);
+    }
+
+    @Operation(summary= "Count recommendation requests per requester and done status")
+    @RequiresRole(Role.USER)
+    @GetMapping("/counts/requesters")
+    public List<RecommendationRequestCount> countsByRequester(
+            @Parameter(name="requesterEmail", description="only this requester (default: all)") @RequestParam(required = false) String requesterEmail) {
+        return recommendationRequestStatsService.countsByRequester(requesterEmail);
+    }
+
     @Operation(summary= "Create a new recommendation request")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PostMapping("/post")
     public RecommendationRequest postRecommendationRequest(
         @Parameter(name="requesterEmail") @RequestParam String requesterEmail,
@@ -70,13 +163,16 @@ public class RecommendationRequestController extends ApiController {
         recommendationRequest.setDone(done);
 
         RecommendationRequest savedRecommendationRequest = recommendationRequestRepository.save(recommendationRequest);
+        entityChanges.created(savedRecommendationRequest);
+        recommendationRequestReminderService.track(savedRecommendationRequest);
+        recommendationRequestStatsService.invalidate();
 
 
         return savedRecommendationRequest;
     }
 
     @Operation(summary= "Get a single recommendation request by id")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("")
     public RecommendationRequest getById(
             @Parameter(name="id") @RequestParam Long id) {
@@ -87,7 +183,8 @@ public class RecommendationRequestController extends ApiController {
     }
 
     @Operation(summary= "Delete a Recommendation Request")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @DeleteMapping("")
     public Object deleteRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id) {
@@ -95,11 +192,15 @@ public class RecommendationRequestController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
 
             recommendationRequestRepository.delete(recRequest);
+            entityChanges.deleted(recRequest);
+            recommendationRequestReminderService.untrack(id);
+            recommendationRequestStatsService.invalidate();
             return genericMessage("RecommendationRequest with id %s deleted".formatted(id));
     }
 
     @Operation(summary= "Update a single request")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PutMapping("")
     public RecommendationRequest updateRecommendationRequest(
             @Parameter(name="id") @RequestParam Long id,
@@ -107,6 +208,8 @@ public class RecommendationRequestController extends ApiController {
 
                 RecommendationRequest recRequest = recommendationRequestRepository.findById(id)
                 .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+        LocalDateTime previousDateNeeded = recRequest.getDateNeeded();
+        boolean wasDone = recRequest.getDone();
 
         recRequest.setRequesterEmail(incoming.getRequesterEmail());
         recRequest.setProfessorEmail(incoming.getProfessorEmail());
@@ -116,8 +219,34 @@ public class RecommendationRequestController extends ApiController {
         recRequest.setDone(incoming.getDone());
         
         recommendationRequestRepository.save(recRequest);
+        entityChanges.updated(recRequest);
+        recommendationRequestReminderService.updated(previousDateNeeded, wasDone, recRequest);
+        recommendationRequestStatsService.invalidate();
+
+        return recRequest;
+    }
+
+    @Operation(summary= "Partially update a single request (JSON Merge Patch)")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
+    @PatchMapping(value = "", consumes = { "application/merge-patch+json", "application/json" })
+    public RecommendationRequest patchRecommendationRequest(
+            @Parameter(name="id") @RequestParam Long id,
+            @RequestBody JsonNode patch) {
+
+        RecommendationRequest recRequest = recommendationRequestRepository.findById(id)
+                .orElseThrow(() -> new EntityNotFoundException(RecommendationRequest.class, id));
+
+        LocalDateTime previousDateNeeded = recRequest.getDateNeeded();
+        boolean wasDone = recRequest.getDone();
+        applyMergePatch(recRequest, patch);
+
+        recommendationRequestRepository.save(recRequest);
+        entityChanges.updated(recRequest);
+        recommendationRequestReminderService.updated(previousDateNeeded, wasDone, recRequest);
+        recommendationRequestStatsService.invalidate();
 
         return recRequest;
     }
 
-}
\ No newline at end of file
+}
@@ -1,8 +1,15 @@
 package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import edu.ucsb.cs156.example.security.RequiresRole;
+import edu.ucsb.cs156.example.security.Role;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.UCSBDateCalendarIndex;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,8 +19,9 @@ import lombok.extern.slf4j.Slf4j;
 import com.fasterxml.jackson.core.JsonProcessingException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
 import org.springframework.format.annotation.DateTimeFormat;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -26,6 +34,8 @@ import org.springframework.web.bind.annotation.RestController;
 import javax.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
 
 @Tag(name = "UCSBDates")
 @RequestMapping("/api/ucsbdates")
@@ -33,19 +43,89 @@ import java.time.LocalDateTime;
 @Slf4j
 public class UCSBDatesController extends ApiController {
 
+    private static final Set<String> PAGED_FIELDS = Set.of(
+            "id", "quarterYYYYQ", "name", "localDateTime");
+
     @Autowired
     UCSBDateRepository ucsbDateRepository;
 
+    @Autowired
+    EntityChangeService entityChanges;
+
+    @Autowired
+    UCSBDateCalendarIndex ucsbDateCalendarIndex;
+
     @Operation(summary= "List all ucsb dates")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("/all")
     public Iterable<UCSBDate> allUCSBDates() {
         Iterable<UCSBDate> dates = ucsbDateRepository.findAll();
         return dates;
     }
 
+    @Operation(summary= "Get one page of ucsb dates, sorted and filtered in the database")
+    @RequiresRole(Role.USER)
+    @GetMapping("/paged")
+    public Page<UCSBDate> pagedUCSBDates(
+            @Parameter(name="page", description="zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(name="size", description="page size (at most 100)") @RequestParam(defaultValue = "10") int size,
+            @Parameter(name="sort", description="comma separated fields, prefix with - for descending, e.g. -localDateTime") @RequestParam(required = false) List<String> sort,
+            @Parameter(name="filter", description="field:value, field>=value or field<=value, e.g. quarterYYYYQ:20224; repeat the parameter to combine terms") @RequestParam(required = false) String[] filter) {
+        return findPage(ucsbDateRepository, UCSBDate.class, PAGED_FIELDS, page, size, sort, filter);
+    }
+
+    @Operation(summary= "Changes to dates since a version, for clients that keep a local copy")
+    @RequiresRole(Role.USER)
+    @GetMapping("/sync")
+    public SyncResponse syncUCSBDate(
+            @Parameter(name="since", description="version returned by the previous sync; 0 for everything") @RequestParam(defaultValue = "0") long since,
+            @Parameter(name="limit", description="at most this many changes (1 to 1000)") @RequestParam(defaultValue = "500") int limit) {
+        return entityChanges.sync(UCSBDate.class, since, limit);
+    }
+
+    @Operation(summary= "Get several dates by id, in the order requested")
+    @RequiresRole(Role.USER)
+    @GetMapping("/many")
+    public ManyResponse<UCSBDate, Long> getManyUCSBDate(
+            @Parameter(name="ids", description="comma separated ids (at most 100), e.g. 1,2,3") @RequestParam List<Long> ids) {
+        return findMany(ucsbDateRepository, ids, UCSBDate::getId);
+    }
+
+    @Operation(summary= "List the dates in a quarter, in date order")
+    @RequiresRole(Role.USER)
+    @GetMapping("/quarter")
+    public List<UCSBDate> datesInQuarter(
+            @Parameter(name="quarterYYYYQ") @RequestParam String quarterYYYYQ) {
+        return ucsbDateCalendarIndex.inQuarter(quarterYYYYQ);
+    }
+
+    @Operation(summary= "List the dates between start and end (inclusive), in date order")
+    @RequiresRole(Role.USER)
+    @GetMapping("/between")
+    public List<UCSBDate> datesBetween(
+            @Parameter(name="start") @RequestParam("start") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime start,
+            @Parameter(name="end") @RequestParam("end") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime end) {
+        if (end.isBefore(start)) {
+            throw new BadRequestException("end must not be before start");
+        }
+        return ucsbDateCalendarIndex.between(start, end);
+    }
+
+    @Operation(summary= "List the next count dates on or after from (default: now)")
+    @RequiresRole(Role.USER)
+    @GetMapping("/upcoming")
+    public List<UCSBDate> upcomingDates(
+            @Parameter(name="count") @RequestParam(defaultValue = "5") int count,
+            @Parameter(name="from") @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime from) {
+        if (count < 1) {
+            throw new BadRequestException("count must be at least 1");
+        }
+        return ucsbDateCalendarIndex.upcoming(from == null ? LocalDateTime.now() : from, count);
+    }
+
     @Operation(summary= "Create a new date")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PostMapping("/post")
     public UCSBDate postUCSBDate(
             @Parameter(name="quarterYYYYQ") @RequestParam String quarterYYYYQ,
@@ -64,12 +144,14 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(localDateTime);
 
         UCSBDate savedUcsbDate = ucsbDateRepository.save(ucsbDate);
+        entityChanges.created(savedUcsbDate);
+        ucsbDateCalendarIndex.put(savedUcsbDate);
 
         return savedUcsbDate;
     }
 
     @Operation(summary= "Get a single date")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("")
     public UCSBDate getById(
             @Parameter(name="id") @RequestParam Long id) {
@@ -80,7 +162,8 @@ public class UCSBDatesController extends ApiController {
     }
 
     @Operation(summary= "Delete a UCSBDate")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @DeleteMapping("")
     public Object deleteUCSBDate(
             @Parameter(name="id") @RequestParam Long id) {
@@ -88,11 +171,14 @@ public class UCSBDatesController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDate.class, id));
 
         ucsbDateRepository.delete(ucsbDate);
+        entityChanges.deleted(ucsbDate);
+        ucsbDateCalendarIndex.remove(id);
         return genericMessage("UCSBDate with id %s deleted".formatted(id));
     }
 
     @Operation(summary= "Update a single date")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PutMapping("")
     public UCSBDate updateUCSBDate(
             @Parameter(name="id") @RequestParam Long id,
@@ -106,6 +192,8 @@ public class UCSBDatesController extends ApiController {
         ucsbDate.setLocalDateTime(incoming.getLocalDateTime());
 
         ucsbDateRepository.save(ucsbDate);
+        entityChanges.updated(ucsbDate);
+        ucsbDateCalendarIndex.put(ucsbDate);
 
         return ucsbDate;
     }
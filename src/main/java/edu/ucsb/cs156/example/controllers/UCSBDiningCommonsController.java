@@ -2,17 +2,32 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.DiningCommonsNode;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.security.RequiresRole;
+import edu.ucsb.cs156.example.security.Role;
+import edu.ucsb.cs156.example.services.DiningCommonsMenuService;
+import edu.ucsb.cs156.example.services.DiningTreeService;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.ReferenceKeyService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.data.domain.Page;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -22,25 +37,72 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
 
+import java.util.List;
+import java.util.Set;
+
 @Tag(name = "UCSBDiningCommons")
 @RequestMapping("/api/ucsbdiningcommons")
 @RestController
 @Slf4j
 public class UCSBDiningCommonsController extends ApiController {
 
+    private static final Set<String> PAGED_FIELDS = Set.of(
+            "code", "name", "hasSackMeal", "hasTakeOutMeal", "hasDiningCam", "latitude", "longitude");
+
     @Autowired
     UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
 
+    @Autowired
+    EntityChangeService entityChanges;
+
+    @Autowired
+    ReferenceKeyService referenceKeys;
+
+    @Autowired
+    DiningCommonsMenuService diningCommonsMenus;
+
+    @Autowired
+    DiningTreeService diningTree;
+
     @Operation(summary= "List all ucsb dining commons")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("/all")
     public Iterable<UCSBDiningCommons> allCommonss() {
         Iterable<UCSBDiningCommons> commons = ucsbDiningCommonsRepository.findAll();
         return commons;
     }
 
+    @Operation(summary= "Get one page of commons, sorted and filtered in the database")
+    @RequiresRole(Role.USER)
+    @GetMapping("/paged")
+    public Page<UCSBDiningCommons> pagedCommons(
+            @Parameter(name="page", description="zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(name="size", description="page size (at most 100)") @RequestParam(defaultValue = "10") int size,
+            @Parameter(name="sort", description="comma separated fields, prefix with - for descending, e.g. name") @RequestParam(required = false) List<String> sort,
+            @Parameter(name="filter", description="field:value, field>=value or field<=value, e.g. hasDiningCam:true; repeat the parameter to combine terms") @RequestParam(required = false) String[] filter) {
+        return findPage(ucsbDiningCommonsRepository, UCSBDiningCommons.class, PAGED_FIELDS, page, size, sort, filter);
+    }
+
+    @Operation(summary= "Changes to dining commons since a version, for clients that keep a local copy")
+    @RequiresRole(Role.USER)
+    @GetMapping("/sync")
+    public SyncResponse syncUCSBDiningCommons(
+            @Parameter(name="since", description="version returned by the previous sync; 0 for everything") @RequestParam(defaultValue = "0") long since,
+            @Parameter(name="limit", description="at most this many changes (1 to 1000)") @RequestParam(defaultValue = "500") int limit) {
+        return entityChanges.sync(UCSBDiningCommons.class, since, limit);
+    }
+
+    @Operation(summary= "Get several dining commons by id, in the order requested")
+    @RequiresRole(Role.USER)
+    @GetMapping("/many")
+    public ManyResponse<UCSBDiningCommons, String> getManyUCSBDiningCommons(
+            @Parameter(name="ids", description="comma separated ids (at most 100), e.g. ortega,portola") @RequestParam List<String> ids) {
+        return findMany(ucsbDiningCommonsRepository, ids, UCSBDiningCommons::getCode);
+    }
+
     @Operation(summary= "Create a new commons")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PostMapping("/post")
     public UCSBDiningCommons postCommons(
         @Parameter(name="code") @RequestParam String code,
@@ -63,12 +125,15 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(longitude);
 
         UCSBDiningCommons savedCommons = ucsbDiningCommonsRepository.save(commons);
+        entityChanges.created(savedCommons);
+        referenceKeys.diningCommonsAdded(savedCommons.getCode());
+        diningCommonsMenus.invalidate();
 
         return savedCommons;
     }
 
     @Operation(summary= "Get a single commons")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("")
     public UCSBDiningCommons getById(
             @Parameter(name="code") @RequestParam String code) {
@@ -78,8 +143,28 @@ public class UCSBDiningCommonsController extends ApiController {
         return commons;
     }
 
+    @Operation(summary= "Get a commons with its menu items grouped by station")
+    @RequiresRole(Role.USER)
+    @GetMapping("/{code}/menu")
+    public ResponseEntity<byte[]> getMenu(
+            @Parameter(name="code") @PathVariable String code) throws JsonProcessingException {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(diningCommonsMenus.menuJson(code));
+    }
+
+    @Operation(summary= "Get commons with their menu items and reviews in one request")
+    @RequiresRole(Role.USER)
+    @GetMapping("/tree")
+    public List<DiningCommonsNode> getTree(
+            @Parameter(name="code", description="commons codes, e.g. ortega,portola; all commons if omitted") @RequestParam(required = false) List<String> code,
+            @Parameter(name="include", description="items, or items,reviews; commons only if omitted") @RequestParam(required = false) List<String> include) {
+        return diningTree.load(code, include);
+    }
+
     @Operation(summary= "Delete a UCSBDiningCommons")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @DeleteMapping("")
     public Object deleteCommons(
             @Parameter(name="code") @RequestParam String code) {
@@ -87,11 +172,15 @@ public class UCSBDiningCommonsController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
 
         ucsbDiningCommonsRepository.delete(commons);
+        entityChanges.deleted(commons);
+        referenceKeys.diningCommonsRemoved(code);
+        diningCommonsMenus.invalidate();
         return genericMessage("UCSBDiningCommons with id %s deleted".formatted(code));
     }
 
     @Operation(summary= "Update a single commons")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PutMapping("")
     public UCSBDiningCommons updateCommons(
             @Parameter(name="code") @RequestParam String code,
@@ -109,6 +198,8 @@ public class UCSBDiningCommonsController extends ApiController {
         commons.setLongitude(incoming.getLongitude());
 
         ucsbDiningCommonsRepository.save(commons);
+        entityChanges.updated(commons);
+        diningCommonsMenus.invalidate();
 
         return commons;
     }
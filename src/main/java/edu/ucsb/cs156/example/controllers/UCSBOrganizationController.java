@@ -2,7 +2,12 @@ package edu.ucsb.cs156.example.controllers;
 
 import edu.ucsb.cs156.example.entities.UCSBOrganization;
 import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
 import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+import edu.ucsb.cs156.example.security.RequiresRole;
+import edu.ucsb.cs156.example.security.Role;
+import edu.ucsb.cs156.example.services.EntityChangeService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -10,7 +15,8 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.extern.slf4j.Slf4j;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.data.domain.Page;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -22,25 +28,63 @@ import org.springframework.web.bind.annotation.RestController;
 
 import javax.validation.Valid;
 
+import java.util.List;
+import java.util.Set;
+
 @Tag(name = "UCSBOrganization")
 @RequestMapping("/api/UCSBOrganization")
 @RestController
 @Slf4j
 public class UCSBOrganizationController extends ApiController {
 
+    private static final Set<String> PAGED_FIELDS = Set.of(
+            "orgCode", "orgTranslationShort", "orgTranslation", "inactive");
+
     @Autowired
     UCSBOrganizationRepository ucsbOrganizationRepository;
 
+    @Autowired
+    EntityChangeService entityChanges;
+
     @Operation(summary= "List all ucsb organization")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("/all")
     public Iterable<UCSBOrganization> allOrganizations() {
         Iterable<UCSBOrganization> organizations = ucsbOrganizationRepository.findAll();
         return organizations;
     }
 
+    @Operation(summary= "Get one page of organizations, sorted and filtered in the database")
+    @RequiresRole(Role.USER)
+    @GetMapping("/paged")
+    public Page<UCSBOrganization> pagedOrganizations(
+            @Parameter(name="page", description="zero-based page number") @RequestParam(defaultValue = "0") int page,
+            @Parameter(name="size", description="page size (at most 100)") @RequestParam(defaultValue = "10") int size,
+            @Parameter(name="sort", description="comma separated fields, prefix with - for descending, e.g. orgCode") @RequestParam(required = false) List<String> sort,
+            @Parameter(name="filter", description="field:value, field>=value or field<=value, e.g. inactive:false; repeat the parameter to combine terms") @RequestParam(required = false) String[] filter) {
+        return findPage(ucsbOrganizationRepository, UCSBOrganization.class, PAGED_FIELDS, page, size, sort, filter);
+    }
+
+    @Operation(summary= "Changes to organizations since a version, for clients that keep a local copy")
+    @RequiresRole(Role.USER)
+    @GetMapping("/sync")
+    public SyncResponse syncUCSBOrganization(
+            @Parameter(name="since", description="version returned by the previous sync; 0 for everything") @RequestParam(defaultValue = "0") long since,
+            @Parameter(name="limit", description="at most this many changes (1 to 1000)") @RequestParam(defaultValue = "500") int limit) {
+        return entityChanges.sync(UCSBOrganization.class, since, limit);
+    }
+
+    @Operation(summary= "Get several organizations by id, in the order requested")
+    @RequiresRole(Role.USER)
+    @GetMapping("/many")
+    public ManyResponse<UCSBOrganization, String> getManyUCSBOrganization(
+            @Parameter(name="ids", description="comma separated ids (at most 100), e.g. ZPR,SKY") @RequestParam List<String> ids) {
+        return findMany(ucsbOrganizationRepository, ids, UCSBOrganization::getOrgCode);
+    }
+
     @Operation(summary= "Create a new organization")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PostMapping("/post")
     public UCSBOrganization postOrganization(
          @Parameter(name = "orgCode") @RequestParam String orgCode,
@@ -56,12 +100,14 @@ public class UCSBOrganizationController extends ApiController {
         organizations.setInactive(inactive);
 
         UCSBOrganization savedOrganization = ucsbOrganizationRepository.save(organizations);
+        entityChanges.created(savedOrganization);
 
         return savedOrganization;
     }
 
     @Operation(summary= "Delete a UCSBOrganization")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @DeleteMapping("")
     public Object deleteOrganization(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
@@ -69,11 +115,12 @@ public class UCSBOrganizationController extends ApiController {
                 .orElseThrow(() -> new EntityNotFoundException(UCSBOrganization.class, orgCode));
 
         ucsbOrganizationRepository.delete(organization);
+        entityChanges.deleted(organization);
         return genericMessage("UCSBOrganization with id %s deleted".formatted(orgCode));
     }
 
     @Operation(summary= "Get a single UCSBOrganization")
-    @PreAuthorize("hasRole('ROLE_USER')")
+    @RequiresRole(Role.USER)
     @GetMapping("")
     public UCSBOrganization getById(
             @Parameter(name="orgCode") @RequestParam String orgCode) {
@@ -83,7 +130,8 @@ public class UCSBOrganizationController extends ApiController {
         return organization;
     }
     @Operation(summary= "Update a single UCSBOrganization")
-    @PreAuthorize("hasRole('ROLE_ADMIN')")
+    @RequiresRole(Role.ADMIN)
+    @Transactional
     @PutMapping("")
     public UCSBOrganization updateOrganization(
             @Parameter(name="orgCode") @RequestParam String orgCode,
@@ -96,6 +144,7 @@ public class UCSBOrganizationController extends ApiController {
         organization.setInactive(incoming.getInactive());
 
         ucsbOrganizationRepository.save(organization);
+        entityChanges.updated(organization);
 
         return organization;
     }
@@ -1,26 +1,48 @@
 package edu.ucsb.cs156.example.controllers;
 
-import edu.ucsb.cs156.example.entities.User;
-import edu.ucsb.cs156.example.models.CurrentUser;
-import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.models.CurrentUserSnapshot;
+import edu.ucsb.cs156.example.security.RequiresRole;
+import edu.ucsb.cs156.example.security.Role;
+import edu.ucsb.cs156.example.services.CurrentUserSnapshotService;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 
-import org.springframework.security.access.prepost.PreAuthorize;
+import com.fasterxml.jackson.core.JsonProcessingException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import javax.servlet.http.HttpServletRequest;
 
 @Tag(name="Current User Information")
 @RequestMapping("/api/currentUser")
 @RestController
 public class UserInfoController extends ApiController {
- 
+
+  @Autowired
+  CurrentUserSnapshotService currentUserSnapshotService;
+
   @Operation(summary= "Get information about current user")
-  @PreAuthorize("hasRole('ROLE_USER')")
-  @GetMapping("")
-  public CurrentUser getCurrentUser() {
-    return super.getCurrentUser();
+  @RequiresRole(Role.USER)
+  @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
+  public ResponseEntity<String> getCurrentUser(HttpServletRequest servletRequest, WebRequest request) throws JsonProcessingException {
+    CurrentUserSnapshot snapshot = currentUserSnapshotService.getSnapshot(servletRequest);
+    // no-cache (rather than Spring Security's default no-store) lets the browser revalidate with If-None-Match
+    CacheControl cacheControl = CacheControl.noCache().cachePrivate();
+    if (request.checkNotModified(snapshot.getEtag())) {
+      return ResponseEntity.status(304).cacheControl(cacheControl).eTag(snapshot.getEtag()).build();
+    }
+    return ResponseEntity.ok()
+        .cacheControl(cacheControl)
+        .eTag(snapshot.getEtag())
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(snapshot.getJson());
   }
 }
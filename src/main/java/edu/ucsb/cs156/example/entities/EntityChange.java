@@ -0,0 +1,46 @@
+package edu.ucsb.cs156.example.entities;
+
+import java.time.LocalDateTime;
+
+import javax.persistence.Entity;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.GeneratedValue;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+/**
+ * One row of the append-only change outbox, written in the same transaction
+ * as the entity write it describes.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Entity(name = "entity_changes")
+public class EntityChange {
+  public static final String CREATE = "CREATE";
+  public static final String UPDATE = "UPDATE";
+  public static final String DELETE = "DELETE";
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  private long seq;
+
+  /** simple class name of the entity, e.g. HelpRequest */
+  private String entityType;
+  /** the entity's primary key, as a string since some keys are codes */
+  private String entityId;
+  /** CREATE, UPDATE or DELETE */
+  private String operation;
+  private LocalDateTime changedAt;
+
+  /** the entity as JSON after the change; null for DELETE */
+  @JsonRawValue
+  private String payload;
+}
@@ -0,0 +1,13 @@
+package edu.ucsb.cs156.example.errors;
+
+/**
+ * The request itself is invalid (a bad parameter, filter or body);
+ * ApiController maps it to 400 Bad Request.  It extends
+ * IllegalArgumentException, but only this subclass is reported as a
+ * client error; any other IllegalArgumentException is a server fault.
+ */
+public class BadRequestException extends IllegalArgumentException {
+  public BadRequestException(String message) {
+    super(message);
+  }
+}
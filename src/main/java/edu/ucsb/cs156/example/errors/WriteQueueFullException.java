@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.errors;
+
+public class WriteQueueFullException extends RuntimeException {
+  public WriteQueueFullException(Class<?> entityType) {
+    super("Too many pending %s writes, try again shortly"
+      .formatted(entityType.getSimpleName()));
+  }
+}
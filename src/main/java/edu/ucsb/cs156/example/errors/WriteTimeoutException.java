@@ -0,0 +1,8 @@
+package edu.ucsb.cs156.example.errors;
+
+public class WriteTimeoutException extends RuntimeException {
+  public WriteTimeoutException(Class<?> entityType, long timeoutMs) {
+    super("%s write was not confirmed within %d ms; it may still be saved"
+      .formatted(entityType.getSimpleName(), timeoutMs));
+  }
+}
@@ -0,0 +1,25 @@
+package edu.ucsb.cs156.example.events;
+
+import java.util.List;
+
+import org.springframework.context.ApplicationEvent;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+
+/**
+ * Published with a batch of pending recommendation requests whose
+ * dateNeeded is within the reminder lead time.
+ */
+public class RecommendationRequestReminderEvent extends ApplicationEvent {
+
+  private final List<RecommendationRequest> requests;
+
+  public RecommendationRequestReminderEvent(Object source, List<RecommendationRequest> requests) {
+    super(source);
+    this.requests = List.copyOf(requests);
+  }
+
+  public List<RecommendationRequest> getRequests() {
+    return requests;
+  }
+}
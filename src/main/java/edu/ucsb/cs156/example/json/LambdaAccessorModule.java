@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.json;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.List;
+import java.util.function.Function;
+
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializationConfig;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMember;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.databind.ser.BeanSerializerModifier;
+import com.fasterxml.jackson.databind.ser.impl.PropertySerializerMap;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Replaces the reflective Method.invoke in Jackson's bean serializers with
+ * getters compiled once per property through LambdaMetafactory (the same
+ * idea as jackson-module-blackbird, limited to what our entities need).
+ *
+ * Only public getter-backed properties of classes in this application are
+ * rewritten.  Fields, type info, or a getter that cannot be bound keep the
+ * stock BeanPropertyWriter; nulls and @JsonInclude filtering are handed back
+ * to it at write time.  Output
+ * is byte-for-byte identical either way.
+ */
+@Slf4j
+@Component
+public class LambdaAccessorModule extends SimpleModule {
+
+  private static final String APP_PACKAGE = "edu.ucsb.cs156.example.";
+
+  public LambdaAccessorModule() {
+    super("LambdaAccessorModule");
+    setSerializerModifier(new BeanSerializerModifier() {
+      @Override
+      public List<BeanPropertyWriter> changeProperties(SerializationConfig config, BeanDescription beanDesc,
+          List<BeanPropertyWriter> beanProperties) {
+        if (!beanDesc.getBeanClass().getName().startsWith(APP_PACKAGE)) {
+          return beanProperties;
+        }
+        for (int i = 0; i < beanProperties.size(); i++) {
+          Function<Object, Object> getter = getterFor(beanProperties.get(i));
+          if (getter != null) {
+            beanProperties.set(i, new LambdaPropertyWriter(beanProperties.get(i), getter));
+          }
+        }
+        return beanProperties;
+      }
+    });
+  }
+
+  static Function<Object, Object> getterFor(BeanPropertyWriter writer) {
+    AnnotatedMember member = writer.getMember();
+    if (!(member instanceof AnnotatedMethod) || writer.getTypeSerializer() != null) {
+      return null;
+    }
+    Method method = ((AnnotatedMethod) member).getAnnotated();
+    if (!Modifier.isPublic(method.getModifiers()) || !Modifier.isPublic(method.getDeclaringClass().getModifiers())) {
+      return null;
+    }
+    try {
+      return compile(method);
+    } catch (Throwable t) {
+      log.debug("falling back to reflection for {}: {}", method, t.toString());
+      return null;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Function<Object, Object> compile(Method method) throws Throwable {
+    Class<?> owner = method.getDeclaringClass();
+    MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(owner, MethodHandles.lookup());
+    MethodHandle handle = lookup.unreflect(method);
+    Class<?> returnType = MethodType.methodType(method.getReturnType()).wrap().returnType();
+    CallSite site = LambdaMetafactory.metafactory(lookup, "apply",
+        MethodType.methodType(Function.class),
+        MethodType.methodType(Object.class, Object.class),
+        handle,
+        MethodType.methodType(returnType, owner));
+    return (Function<Object, Object>) site.getTarget().invoke();
+  }
+
+  static class LambdaPropertyWriter extends BeanPropertyWriter {
+    private static final long serialVersionUID = 1L;
+
+    private final transient Function<Object, Object> getter;
+
+    LambdaPropertyWriter(BeanPropertyWriter base, Function<Object, Object> getter) {
+      super(base);
+      this.getter = getter;
+    }
+
+    @Override
+    public void serializeAsField(Object bean, JsonGenerator gen, SerializerProvider prov) throws Exception {
+      Object value = getter.apply(bean);
+      if (value == null || value == bean || _suppressableValue != null) {
+        // null, self-reference and inclusion handling stay on the stock path
+        super.serializeAsField(bean, gen, prov);
+        return;
+      }
+      JsonSerializer<Object> ser = _serializer;
+      if (ser == null) {
+        Class<?> cls = value.getClass();
+        PropertySerializerMap map = _dynamicSerializers;
+        ser = map.serializerFor(cls);
+        if (ser == null) {
+          ser = _findAndAddDynamic(map, cls, prov);
+        }
+      }
+      gen.writeFieldName(_name);
+      ser.serialize(value, gen, prov);
+    }
+  }
+}
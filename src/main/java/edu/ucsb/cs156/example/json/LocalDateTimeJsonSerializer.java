@@ -0,0 +1,75 @@
+package edu.ucsb.cs156.example.json;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.springframework.boot.jackson.JsonComponent;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+/**
+ * Writes LocalDateTime exactly as DateTimeFormatter.ISO_LOCAL_DATE_TIME does
+ * (the jsr310 module's default), e.g. 2022-01-03T00:00:00 or
+ * 2022-01-03T00:00:00.25, but straight into a char buffer instead of going
+ * through the formatter's field resolution.  Years outside 0000-9999 fall
+ * back to the formatter.
+ */
+@JsonComponent
+public class LocalDateTimeJsonSerializer extends JsonSerializer<LocalDateTime> {
+
+  @Override
+  public void serialize(LocalDateTime value, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+    int year = value.getYear();
+    if (year < 0 || year > 9999) {
+      gen.writeString(DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value));
+      return;
+    }
+    char[] buf = new char[29];
+    put4(buf, 0, year);
+    buf[4] = '-';
+    put2(buf, 5, value.getMonthValue());
+    buf[7] = '-';
+    put2(buf, 8, value.getDayOfMonth());
+    buf[10] = 'T';
+    put2(buf, 11, value.getHour());
+    buf[13] = ':';
+    put2(buf, 14, value.getMinute());
+    buf[16] = ':';
+    put2(buf, 17, value.getSecond());
+    int len = 19;
+    int nano = value.getNano();
+    if (nano != 0) {
+      // as many digits as needed, trailing zeros dropped
+      buf[len++] = '.';
+      int digits = 9;
+      while (nano % 10 == 0) {
+        nano /= 10;
+        digits--;
+      }
+      for (int i = len + digits - 1; i >= len; i--) {
+        buf[i] = (char) ('0' + nano % 10);
+        nano /= 10;
+      }
+      len += digits;
+    }
+    gen.writeString(buf, 0, len);
+  }
+
+  @Override
+  public Class<LocalDateTime> handledType() {
+    return LocalDateTime.class;
+  }
+
+  private static void put2(char[] buf, int at, int n) {
+    buf[at] = (char) ('0' + n / 10);
+    buf[at + 1] = (char) ('0' + n % 10);
+  }
+
+  private static void put4(char[] buf, int at, int n) {
+    put2(buf, at, n / 100);
+    put2(buf, at + 2, n % 100);
+  }
+}
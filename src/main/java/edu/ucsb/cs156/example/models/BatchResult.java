@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.models;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The outcome of one sub-request of POST /api/batch.  body is the JSON the
+ * endpoint returned (embedded as is), a string for other content types, or
+ * null if the response was empty.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BatchResult {
+  private String path;
+  private int status;
+  private Object body;
+}
@@ -0,0 +1,19 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import edu.ucsb.cs156.example.entities.EntityChange;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ChangeFeed {
+  private List<EntityChange> changes;
+  /** pass this as since= on the next call */
+  private long next;
+}
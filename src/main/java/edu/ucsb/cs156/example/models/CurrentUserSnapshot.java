@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.models;
+
+import java.io.Serializable;
+import java.util.Set;
+
+import lombok.Value;
+
+/**
+ * The JSON for /api/currentUser, as it was when it was last built for this
+ * session, together with the principal and authorities it was built for.
+ *
+ * Stored in the HTTP session, so it only holds strings.
+ */
+@Value
+public class CurrentUserSnapshot implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  String principalName;
+  Set<String> authorities;
+  String json;
+  String etag;
+}
@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A dining commons with its menu items grouped by station, as served by
+ * GET /api/ucsbdiningcommons/{code}/menu.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class DiningCommonsMenu {
+  private UCSBDiningCommons commons;
+  private List<Station> stations;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  @Builder
+  public static class Station {
+    private String name;
+    private List<UCSBDiningCommonsMenuItem> items;
+  }
+}
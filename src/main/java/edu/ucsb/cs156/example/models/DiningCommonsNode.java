@@ -0,0 +1,38 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One dining commons in the response of GET /api/ucsbdiningcommons/tree.
+ * items (and each item's reviews) are only present when requested with
+ * include=items (include=items,reviews).
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class DiningCommonsNode {
+  private UCSBDiningCommons commons;
+  private List<MenuItemNode> items;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  @Builder
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public static class MenuItemNode {
+    private UCSBDiningCommonsMenuItem item;
+    private List<MenuItemReview> reviews;
+  }
+}
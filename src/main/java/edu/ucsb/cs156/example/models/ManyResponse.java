@@ -0,0 +1,21 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response of the GET /many?ids= endpoints: the entities that exist, in the
+ * order their ids were requested, and the requested ids that don't.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ManyResponse<T, ID> {
+  private List<T> found;
+  private List<ID> missing;
+}
@@ -0,0 +1,27 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.Set;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * The claims carried by the signed token cookie in stateless mode.
+ * Field names are kept short since the token is sent on every request.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SignedToken {
+  /** users.id */
+  private long uid;
+  /** OAuth2 subject (Google sub) */
+  private String sub;
+  private String email;
+  private Set<String> roles;
+  /** expiry, in epoch seconds */
+  private long exp;
+}
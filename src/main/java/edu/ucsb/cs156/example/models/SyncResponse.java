@@ -0,0 +1,32 @@
+package edu.ucsb.cs156.example.models;
+
+import java.util.List;
+
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Response of the per-entity GET .../sync?since= endpoints.
+ *
+ * Apply upserts (keyed by id) and tombstones (ids to drop) to the local
+ * copy, then call again with since=version; repeat while more is true.
+ * When reset is true the watermark is older than the retained history:
+ * fetch /all, replace the local copy, and continue from version.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class SyncResponse {
+  /** latest state of each changed entity, as written */
+  private List<RawValue> upserts;
+  /** ids of deleted entities */
+  private List<Object> tombstones;
+  private long version;
+  private boolean more;
+  private boolean reset;
+}
@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * Rate limits writes (anything but GET, HEAD and OPTIONS) to controllers.
+ * Rejected requests get 429 with a Retry-After header, in seconds.
+ *
+ * Registered after RoleCheckInterceptor, so requests that would be
+ * forbidden anyway do not use up tokens.
+ */
+public class RateLimitInterceptor implements HandlerInterceptor {
+
+  private static final Set<String> READS = Set.of("GET", "HEAD", "OPTIONS");
+
+  private final RateLimiter rateLimiter;
+  private final Map<Class<?>, String> controllerNames = new ConcurrentHashMap<>();
+
+  public RateLimitInterceptor(RateLimiter rateLimiter) {
+    this.rateLimiter = rateLimiter;
+  }
+
+  @Override
+  public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+      throws IOException {
+    if (!rateLimiter.isEnabled() || !(handler instanceof HandlerMethod) || READS.contains(request.getMethod())) {
+      return true;
+    }
+    String controller = controllerNames.computeIfAbsent(((HandlerMethod) handler).getBeanType(),
+        RateLimitInterceptor::controllerName);
+    long waitNanos = rateLimiter.tryAcquire(controller, user(request));
+    if (waitNanos == 0) {
+      return true;
+    }
+    long retryAfter = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+    response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(retryAfter));
+    response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+    response.getWriter().write(String.format(
+        "{\"type\":\"TooManyRequests\",\"message\":\"Too many requests to %s, retry after %d seconds\"}",
+        controller, retryAfter));
+    return false;
+  }
+
+  static String controllerName(Class<?> beanType) {
+    RequestMapping mapping = AnnotatedElementUtils.findMergedAnnotation(beanType, RequestMapping.class);
+    if (mapping == null || mapping.path().length == 0) {
+      return beanType.getSimpleName().toLowerCase(Locale.ROOT);
+    }
+    String path = mapping.path()[0];
+    return path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+  }
+
+  private static String user(HttpServletRequest request) {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    if (authentication == null || authentication instanceof AnonymousAuthenticationToken) {
+      return "addr:" + request.getRemoteAddr();
+    }
+    return authentication.getName();
+  }
+}
@@ -0,0 +1,87 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * app.ratelimit.* settings.  Controllers are named by the last segment of
+ * their @RequestMapping path, lower-cased, e.g.
+ *
+ * app.ratelimit.controllers.helprequest.per-user.capacity=5
+ *
+ * Every limit that is given must set a positive per-second rate; startup
+ * fails otherwise.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.ratelimit")
+public class RateLimitProperties implements InitializingBean {
+
+  private boolean enabled = true;
+  private Limits defaults = new Limits(new Limit(30, 1.0), new Limit(500, 50.0));
+  private Map<String, Limits> controllers = new HashMap<>();
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Limits {
+    /** the bucket for each user (or client address, if logged out) */
+    private Limit perUser;
+    /** the bucket shared by everyone */
+    private Limit global;
+  }
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Limit {
+    /** burst size */
+    private int capacity;
+    /** steady-state refill rate */
+    private double perSecond;
+  }
+
+  @Override
+  public void afterPropertiesSet() {
+    check("defaults", defaults);
+    controllers.forEach((controller, limits) -> check("controllers." + controller, limits));
+  }
+
+  private static void check(String name, Limits limits) {
+    if (limits == null) {
+      return;
+    }
+    check(name + ".per-user", limits.getPerUser());
+    check(name + ".global", limits.getGlobal());
+  }
+
+  private static void check(String name, Limit limit) {
+    if (limit == null) {
+      return;
+    }
+    if (!(limit.getPerSecond() > 0)) {
+      throw new IllegalArgumentException("app.ratelimit.%s.per-second must be positive, got %s"
+          .formatted(name, limit.getPerSecond()));
+    }
+    if (limit.getCapacity() < 0) {
+      throw new IllegalArgumentException("app.ratelimit.%s.capacity must not be negative, got %d"
+          .formatted(name, limit.getCapacity()));
+    }
+  }
+
+  public Limits limitsFor(String controller) {
+    Limits limits = controllers.get(controller);
+    if (limits == null) {
+      return defaults;
+    }
+    return new Limits(
+        limits.getPerUser() != null ? limits.getPerUser() : defaults.getPerUser(),
+        limits.getGlobal() != null ? limits.getGlobal() : defaults.getGlobal());
+  }
+}
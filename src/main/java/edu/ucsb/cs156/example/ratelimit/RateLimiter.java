@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Per-user and global token buckets for each controller, plus counts of
+ * admitted and rejected requests.
+ *
+ * All state is in memory and lock-free (ConcurrentHashMap plus CAS on each
+ * bucket), so with several nodes the effective limits are per node.
+ */
+@Slf4j
+public class RateLimiter {
+
+  static final int SWEEP_EVERY = 1024;
+
+  private final RateLimitProperties properties;
+  private final LongSupplier clock;
+
+  private final Map<String, TokenBucket> globalBuckets = new ConcurrentHashMap<>();
+  private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+  private final Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+  private final AtomicLong created = new AtomicLong();
+
+  public RateLimiter(RateLimitProperties properties) {
+    this(properties, System::nanoTime);
+  }
+
+  RateLimiter(RateLimitProperties properties, LongSupplier clock) {
+    this.properties = properties;
+    this.clock = clock;
+  }
+
+  public boolean isEnabled() {
+    return properties.getEnabled();
+  }
+
+  /**
+   * Takes a token from the user's bucket and then from the global bucket
+   * for this controller.  If the global bucket refuses, the user's token is
+   * given back, so a request that is not admitted never counts against the
+   * caller's own limit.
+   *
+   * @return 0 if admitted, otherwise the number of nanoseconds to wait
+   */
+  public long tryAcquire(String controller, String user) {
+    long now = clock.getAsLong();
+    RateLimitProperties.Limits limits = properties.limitsFor(controller);
+
+    TokenBucket userBucket = userBuckets.computeIfAbsent(controller + "|" + user, k -> newBucket(limits.getPerUser(), now));
+    long wait = userBucket.tryAcquire(now);
+    if (wait > 0) {
+      count(controller + ".rejected.perUser");
+      log.debug("rate limited {} on {}", user, controller);
+      return wait;
+    }
+    wait = globalBuckets.computeIfAbsent(controller, k -> new TokenBucket(limits.getGlobal(), now))
+        .tryAcquire(now);
+    if (wait > 0) {
+      userBucket.refund();
+      count(controller + ".rejected.global");
+      log.debug("rate limited {} (global limit)", controller);
+      return wait;
+    }
+    count(controller + ".admitted");
+    return 0;
+  }
+
+  /**
+   * @return counter name to count, e.g. helprequest.rejected.perUser
+   */
+  public Map<String, Long> getCounts() {
+    Map<String, Long> counts = new TreeMap<>();
+    counters.forEach((name, adder) -> counts.put(name, adder.sum()));
+    return counts;
+  }
+
+  int trackedUsers() {
+    return userBuckets.size();
+  }
+
+  private TokenBucket newBucket(RateLimitProperties.Limit limit, long now) {
+    // every so often, drop buckets that have refilled; they behave the same
+    // as a fresh one
+    if (created.incrementAndGet() % SWEEP_EVERY == 0) {
+      userBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+    return new TokenBucket(limit, now);
+  }
+
+  private void count(String name) {
+    counters.computeIfAbsent(name, k -> new LongAdder()).increment();
+  }
+}
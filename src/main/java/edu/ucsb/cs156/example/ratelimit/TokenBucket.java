@@ -0,0 +1,51 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free token bucket, implemented as a generic cell rate algorithm:
+ * instead of a token count it keeps the time at which the bucket would be
+ * full again, and a request is admitted if taking one more token would not
+ * push that time more than capacity tokens' worth into the future.
+ */
+final class TokenBucket {
+
+  private final long nanosPerToken;
+  private final long burstNanos;
+  private final AtomicLong fullAt;
+
+  TokenBucket(RateLimitProperties.Limit limit, long now) {
+    this.nanosPerToken = (long) (1_000_000_000L / limit.getPerSecond());
+    this.burstNanos = nanosPerToken * limit.getCapacity();
+    this.fullAt = new AtomicLong(now);
+  }
+
+  /**
+   * @return 0 if a token was taken, otherwise how many nanoseconds until one
+   *         will be available
+   */
+  long tryAcquire(long now) {
+    while (true) {
+      long current = fullAt.get();
+      long next = Math.max(current, now) + nanosPerToken;
+      long wait = next - burstNanos - now;
+      if (wait > 0) {
+        return wait;
+      }
+      if (fullAt.compareAndSet(current, next)) {
+        return 0;
+      }
+    }
+  }
+
+  /**
+   * Gives back a token taken by tryAcquire.
+   */
+  void refund() {
+    fullAt.addAndGet(-nanosPerToken);
+  }
+
+  boolean isFull(long now) {
+    return fullAt.get() - now <= 0;
+  }
+}
@@ -0,0 +1,39 @@
+package edu.ucsb.cs156.example.repositories;
+
+import edu.ucsb.cs156.example.entities.EntityChange;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+
+@Repository
+public interface EntityChangeRepository extends CrudRepository<EntityChange, Long> {
+    List<EntityChange> findBySeqGreaterThanAndChangedAtBeforeOrderBySeq(long seq, LocalDateTime before, Pageable pageable);
+
+    List<EntityChange> findByEntityTypeAndSeqGreaterThanAndChangedAtBeforeOrderBySeq(String entityType, long seq,
+            LocalDateTime before, Pageable pageable);
+
+    @Query("SELECT MIN(c.seq) FROM entity_changes c")
+    Long minSeq();
+
+    @Query("SELECT MAX(c.seq) FROM entity_changes c WHERE c.changedAt < :before")
+    Long maxSeqChangedBefore(@Param("before") LocalDateTime before);
+
+    /**
+     * The newest row is always kept, so that minSeq() still tells sync
+     * clients how far back the history goes.
+     */
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM entity_changes c WHERE c.changedAt < :before"
+            + " AND c.seq < (SELECT MAX(n.seq) FROM entity_changes n)")
+    int deleteChangedBefore(@Param("before") LocalDateTime before);
+}
@@ -0,0 +1,180 @@
+package edu.ucsb.cs156.example.repositories;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+
+/**
+ * Builds Sort and Specification objects from the sort= and filter= query
+ * parameters of the paged list endpoints.
+ *
+ * sort is a list of field names, each optionally prefixed with - for
+ * descending order, e.g. sort=name,-localDateTime
+ *
+ * filter is a list of field:value, field>=value or field<=value terms that
+ * are ANDed together, one per repeated filter= parameter so that values may
+ * contain commas. On String fields, field:value is a case-insensitive
+ * substring match; on all other fields it is an equality test. The range
+ * operators only apply to numeric and LocalDateTime fields.
+ *
+ * Every field must be in the whitelist the controller passes in, otherwise an
+ * BadRequestException (400) is thrown.
+ */
+public final class EntitySpecifications {
+
+  private static final Pattern FILTER = Pattern.compile("^(\\w+)(:|>=|<=)(.*)$");
+
+  private EntitySpecifications() {
+  }
+
+  public static Sort sort(Collection<String> sort, Set<String> allowedFields) {
+    if (sort == null) {
+      return Sort.unsorted();
+    }
+    List<Sort.Order> orders = new ArrayList<>();
+    for (String term : sort) {
+      String field = term.trim();
+      if (field.isEmpty()) {
+        continue;
+      }
+      boolean descending = field.startsWith("-");
+      if (descending) {
+        field = field.substring(1);
+      }
+      checkAllowed(field, allowedFields);
+      orders.add(descending ? Sort.Order.desc(field) : Sort.Order.asc(field));
+    }
+    return Sort.by(orders);
+  }
+
+  public static <T> Specification<T> filter(Class<T> entityClass, String[] filter, Set<String> allowedFields) {
+    return filter(entityClass, filter == null ? null : Arrays.asList(filter), allowedFields);
+  }
+
+  public static <T> Specification<T> filter(Class<T> entityClass, Collection<String> filter, Set<String> allowedFields) {
+    List<Specification<T>> terms = new ArrayList<>();
+    if (filter != null) {
+      for (String term : filter) {
+        if (!term.isBlank()) {
+          terms.add(term(entityClass, term.trim(), allowedFields));
+        }
+      }
+    }
+    return (root, query, cb) -> cb.and(terms.stream()
+        .map(s -> s.toPredicate(root, query, cb))
+        .toArray(Predicate[]::new));
+  }
+
+  /**
+   * Values are parsed here rather than in toPredicate, so that a bad value
+   * surfaces as a BadRequestException before the query runs.
+   */
+  private static <T> Specification<T> term(Class<T> entityClass, String term, Set<String> allowedFields) {
+    Matcher m = FILTER.matcher(term);
+    if (!m.matches()) {
+      throw new BadRequestException(String.format("Invalid filter '%s', expected field:value", term));
+    }
+    String field = m.group(1);
+    String op = m.group(2);
+    String value = m.group(3);
+    checkAllowed(field, allowedFields);
+    Class<?> type = fieldType(entityClass, field);
+
+    if (type == String.class) {
+      checkEquality(field, op);
+      String pattern = "%" + escapeLike(value.toLowerCase(Locale.ROOT)) + "%";
+      return (root, query, cb) -> cb.like(cb.lower(root.get(field)), pattern, '\\');
+    }
+    if (type == boolean.class || type == Boolean.class) {
+      checkEquality(field, op);
+      boolean flag = parseBoolean(field, value);
+      return (root, query, cb) -> cb.equal(root.get(field), flag);
+    }
+    Comparable<?> parsed = parseComparable(field, type, value);
+    return (root, query, cb) -> compare(cb, root, field, op, parsed);
+  }
+
+  @SuppressWarnings({ "unchecked", "rawtypes" })
+  private static Predicate compare(CriteriaBuilder cb, Root<?> root, String field, String op, Comparable value) {
+    Path<Comparable> path = root.get(field);
+    switch (op) {
+      case ">=":
+        return cb.greaterThanOrEqualTo(path, value);
+      case "<=":
+        return cb.lessThanOrEqualTo(path, value);
+      default:
+        return cb.equal(path, value);
+    }
+  }
+
+  private static Class<?> fieldType(Class<?> entityClass, String field) {
+    try {
+      return entityClass.getDeclaredField(field).getType();
+    } catch (NoSuchFieldException e) {
+      throw new BadRequestException(String.format("Cannot filter on '%s'", field));
+    }
+  }
+
+  private static void checkEquality(String field, String op) {
+    if (!op.equals(":")) {
+      throw new BadRequestException(String.format("Operator %s is not supported on '%s'", op, field));
+    }
+  }
+
+  private static Comparable<?> parseComparable(String field, Class<?> type, String value) {
+    try {
+      if (type == long.class || type == Long.class) {
+        return Long.valueOf(value);
+      }
+      if (type == int.class || type == Integer.class) {
+        return Integer.valueOf(value);
+      }
+      if (type == double.class || type == Double.class) {
+        return Double.valueOf(value);
+      }
+      if (type == LocalDateTime.class) {
+        return LocalDateTime.parse(value);
+      }
+    } catch (NumberFormatException | DateTimeParseException e) {
+      throw new BadRequestException(String.format("Invalid value '%s' for '%s'", value, field));
+    }
+    throw new BadRequestException(String.format("Cannot filter on '%s'", field));
+  }
+
+  private static boolean parseBoolean(String field, String value) {
+    if (value.equalsIgnoreCase("true")) {
+      return true;
+    }
+    if (value.equalsIgnoreCase("false")) {
+      return false;
+    }
+    throw new BadRequestException(String.format("Invalid value '%s' for '%s'", value, field));
+  }
+
+  private static String escapeLike(String value) {
+    return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+  }
+
+  private static void checkAllowed(String field, Set<String> allowedFields) {
+    if (!allowedFields.contains(field)) {
+      throw new BadRequestException(String.format("Cannot sort or filter on '%s'", field));
+    }
+  }
+}
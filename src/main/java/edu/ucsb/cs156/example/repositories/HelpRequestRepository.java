@@ -2,11 +2,12 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.HelpRequest;
 
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 
 @Repository
-public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long> {
+public interface HelpRequestRepository extends CrudRepository<HelpRequest, Long>, JpaSpecificationExecutor<HelpRequest> {
   //Iterable<HelpRequest> findAllByQuarterYYYYQ(String quarterYYYYQ);
 }
\ No newline at end of file
@@ -2,11 +2,19 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.MenuItemReview;
 
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 
 @Repository
-public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long> {
+public interface MenuItemReviewRepository extends CrudRepository<MenuItemReview, Long>, JpaSpecificationExecutor<MenuItemReview> {
       // Iterable<MenuItemReview> findAllByItemId(String itemId);
+
+      List<MenuItemReview> findAllByItemIdInOrderById(Collection<Long> itemIds);
+
+      long countByItemIdIn(Collection<Long> itemIds);
 }
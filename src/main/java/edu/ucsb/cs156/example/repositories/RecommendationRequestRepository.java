@@ -1,12 +1,28 @@
 package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.RecommendationRequestCount;
 
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 
 @Repository
-public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long> {
-    
-}
\ No newline at end of file
+public interface RecommendationRequestRepository extends CrudRepository<RecommendationRequest, Long>, JpaSpecificationExecutor<RecommendationRequest> {
+    // These use the IDX_RECOMMENDATIONREQUESTS_DUE index on (DONE, DATE_NEEDED)
+    Iterable<RecommendationRequest> findAllByDoneFalseAndDateNeededBefore(LocalDateTime dateNeeded);
+    Iterable<RecommendationRequest> findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(LocalDateTime after, LocalDateTime until);
+
+    @Query("SELECT new edu.ucsb.cs156.example.models.RecommendationRequestCount(r.professorEmail, r.done, COUNT(r)) "
+            + "FROM recommendationrequests r GROUP BY r.professorEmail, r.done ORDER BY r.professorEmail, r.done")
+    List<RecommendationRequestCount> countByProfessorEmailAndDone();
+
+    @Query("SELECT new edu.ucsb.cs156.example.models.RecommendationRequestCount(r.requesterEmail, r.done, COUNT(r)) "
+            + "FROM recommendationrequests r GROUP BY r.requesterEmail, r.done ORDER BY r.requesterEmail, r.done")
+    List<RecommendationRequestCount> countByRequesterEmailAndDone();
+}
@@ -2,11 +2,12 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDate;
 
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 
 @Repository
-public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long> {
+public interface UCSBDateRepository extends CrudRepository<UCSBDate, Long>, JpaSpecificationExecutor<UCSBDate> {
   Iterable<UCSBDate> findAllByQuarterYYYYQ(String quarterYYYYQ);
 }
\ No newline at end of file
@@ -2,10 +2,24 @@ package edu.ucsb.cs156.example.repositories;
 
 import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
 
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 
 @Repository
-public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItem, Long> {
+public interface UCSBDiningCommonsMenuItemRepository extends CrudRepository<UCSBDiningCommonsMenuItem, Long>, JpaSpecificationExecutor<UCSBDiningCommonsMenuItem> {
+
+    @Query("SELECT i.id FROM ucsbdiningcommonsmenuitem i")
+    List<Long> findAllIds();
+
+    List<UCSBDiningCommonsMenuItem> findAllByDiningCommonsCodeOrderByStationAscNameAsc(String diningCommonsCode);
+
+    List<UCSBDiningCommonsMenuItem> findAllByDiningCommonsCodeInOrderById(Collection<String> diningCommonsCodes);
+
+    long countByDiningCommonsCodeIn(Collection<String> diningCommonsCodes);
 }
\ No newline at end of file
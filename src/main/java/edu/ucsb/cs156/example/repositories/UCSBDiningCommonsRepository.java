@@ -3,11 +3,17 @@ package edu.ucsb.cs156.example.repositories;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 
 @Repository
-public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String> {
- 
+public interface UCSBDiningCommonsRepository extends CrudRepository<UCSBDiningCommons, String>, JpaSpecificationExecutor<UCSBDiningCommons> {
+
+    @Query("SELECT c.code FROM ucsbdiningcommons c")
+    List<String> findAllCodes();
 }
\ No newline at end of file
@@ -4,11 +4,12 @@ import edu.ucsb.cs156.example.entities.UCSBOrganization;
 
 
 import org.springframework.beans.propertyeditors.StringArrayPropertyEditor;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 
 @Repository
-public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String> {
+public interface UCSBOrganizationRepository extends CrudRepository<UCSBOrganization, String>, JpaSpecificationExecutor<UCSBOrganization> {
 
 }
\ No newline at end of file
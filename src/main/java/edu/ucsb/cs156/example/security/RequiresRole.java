@@ -0,0 +1,22 @@
+package edu.ucsb.cs156.example.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Only lets the request through if the current user has the given role;
+ * otherwise the request fails with 403, as with
+ * {@code @PreAuthorize("hasRole('ROLE_...')")}.
+ *
+ * Checked by RoleCheckInterceptor. On a class, it applies to every handler
+ * method that does not have its own.
+ */
+@Target({ ElementType.METHOD, ElementType.TYPE })
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface RequiresRole {
+  Role value();
+}
@@ -0,0 +1,64 @@
+package edu.ucsb.cs156.example.security;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+/**
+ * The roles the app hands out, each with a bit so that a set of roles can be
+ * checked or cached as a single int.
+ */
+public enum Role {
+  USER, ADMIN, MEMBER;
+
+  private static final Map<String, Role> BY_AUTHORITY = Map.of(
+      USER.authority, USER,
+      ADMIN.authority, ADMIN,
+      MEMBER.authority, MEMBER);
+
+  private static final Set<GrantedAuthority>[] AUTHORITIES_BY_MASK = authoritiesByMask();
+
+  public final int bit = 1 << ordinal();
+  public final String authority = "ROLE_" + name();
+
+  /**
+   * @return the bits of every Role among the authorities; others are ignored
+   */
+  public static int mask(Collection<? extends GrantedAuthority> authorities) {
+    int mask = 0;
+    for (GrantedAuthority authority : authorities) {
+      Role role = BY_AUTHORITY.get(authority.getAuthority());
+      if (role != null) {
+        mask |= role.bit;
+      }
+    }
+    return mask;
+  }
+
+  /**
+   * @return an immutable, shared set of the authorities for these bits
+   */
+  public static Set<GrantedAuthority> authorities(int mask) {
+    return AUTHORITIES_BY_MASK[mask & (AUTHORITIES_BY_MASK.length - 1)];
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Set<GrantedAuthority>[] authoritiesByMask() {
+    Role[] roles = values();
+    Set<GrantedAuthority>[] byMask = new Set[1 << roles.length];
+    for (int mask = 0; mask < byMask.length; mask++) {
+      Set<GrantedAuthority> authorities = new HashSet<>();
+      for (Role role : roles) {
+        if ((mask & role.bit) != 0) {
+          authorities.add(new SimpleGrantedAuthority(role.authority));
+        }
+      }
+      byMask[mask] = Set.copyOf(authorities);
+    }
+    return byMask;
+  }
+}
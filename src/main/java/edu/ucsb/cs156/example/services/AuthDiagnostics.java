@@ -0,0 +1,31 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A sampled DEBUG channel for authentication diagnostics (raw OAuth2
+ * attributes, authority lists, ...).  These used to be logged at INFO on
+ * every login and request; now they go to the "auth.diagnostics" logger at
+ * DEBUG, and only one call in SAMPLE_EVERY is logged.
+ *
+ * Enable with logging.level.auth.diagnostics=DEBUG.
+ */
+public final class AuthDiagnostics {
+
+  public static final int SAMPLE_EVERY = 100;
+
+  private static final Logger log = LoggerFactory.getLogger("auth.diagnostics");
+  private static final AtomicLong calls = new AtomicLong();
+
+  private AuthDiagnostics() {
+  }
+
+  public static void debug(String format, Object... args) {
+    if (log.isDebugEnabled() && calls.getAndIncrement() % SAMPLE_EVERY == 0) {
+      log.debug(format, args);
+    }
+  }
+}
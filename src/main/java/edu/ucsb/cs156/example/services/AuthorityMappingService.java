@@ -0,0 +1,130 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.security.Role;
+
+/**
+ * Adds ROLE_ADMIN and ROLE_MEMBER to the authorities Google grants at login.
+ *
+ * The extra roles for a subject are kept as a Role bitmask and memoized
+ * for app.auth.roleCacheSeconds, so repeated logins (and, in stateless mode,
+ * token refreshes) do not hit the users table each time.  At most
+ * MAX_ENTRIES subjects are kept; the least recently used one is dropped to
+ * make room.  Code that changes a user's admin flag calls adminChanged(user)
+ * so the change applies once it commits; an edit made directly in the
+ * users table applies within roleCacheSeconds.
+ */
+@Service("authorityMapping")
+public class AuthorityMappingService {
+
+  static final int MAX_ENTRIES = 10_000;
+
+  @Autowired
+  UserRepository userRepository;
+
+  @Value("${app.admin.emails}")
+  List<String> adminEmails = new ArrayList<>();
+
+  @Value("${app.auth.roleCacheSeconds:300}")
+  long roleCacheSeconds;
+
+  private final Map<String, CachedMask> masks = Collections.synchronizedMap(
+      new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedMask> eldest) {
+          return size() > MAX_ENTRIES;
+        }
+      });
+
+  private static class CachedMask {
+    final int mask;
+    final long expiresAt;
+
+    CachedMask(int mask, long expiresAt) {
+      this.mask = mask;
+      this.expiresAt = expiresAt;
+    }
+  }
+
+  public Set<GrantedAuthority> mapAuthorities(Collection<? extends GrantedAuthority> authorities) {
+    return mapAuthorities(authorities, Instant.now());
+  }
+
+  public Set<GrantedAuthority> mapAuthorities(Collection<? extends GrantedAuthority> authorities, Instant now) {
+    Set<GrantedAuthority> mapped = new HashSet<>(authorities);
+    for (GrantedAuthority authority : authorities) {
+      if (authority instanceof OAuth2UserAuthority) {
+        Map<String, Object> attributes = ((OAuth2UserAuthority) authority).getAttributes();
+        mapped.addAll(Role.authorities(roleMask((String) attributes.get("sub"), (String) attributes.get("email"), now)));
+      }
+    }
+    AuthDiagnostics.debug("authorities={} mappedAuthorities={}", authorities, mapped);
+    return mapped;
+  }
+
+  /**
+   * @return the Role.ADMIN and/or Role.MEMBER bits for this subject
+   */
+  public int roleMask(String sub, String email, Instant now) {
+    if (email == null) {
+      return 0;
+    }
+    String key = sub != null ? sub : email;
+    CachedMask cached = masks.get(key);
+    if (cached != null && cached.expiresAt > now.getEpochSecond()) {
+      return cached.mask;
+    }
+    int mask = (isAdmin(email) ? Role.ADMIN.bit : 0) | (email.endsWith("@ucsb.edu") ? Role.MEMBER.bit : 0);
+    masks.put(key, new CachedMask(mask, now.getEpochSecond() + roleCacheSeconds));
+    return mask;
+  }
+
+  public boolean isAdmin(String email) {
+    if (adminEmails.contains(email)) {
+      return true;
+    }
+    Optional<User> u = userRepository.findByEmail(email);
+    return u.isPresent() && u.get().getAdmin();
+  }
+
+  /**
+   * Forgets the cached roles of this user once the current transaction
+   * commits, so the next login or token refresh sees the new admin flag.
+   */
+  public void adminChanged(User user) {
+    AfterCommit.run(() -> {
+      if (user.getGoogleSub() != null) {
+        evict(user.getGoogleSub());
+      }
+      if (user.getEmail() != null) {
+        evict(user.getEmail());
+      }
+    });
+  }
+
+  public void evict(String sub) {
+    masks.remove(sub);
+  }
+
+  public void evictAll() {
+    masks.clear();
+  }
+}
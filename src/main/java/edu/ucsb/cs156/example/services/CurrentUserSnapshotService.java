@@ -0,0 +1,80 @@
+package edu.ucsb.cs156.example.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.models.CurrentUser;
+import edu.ucsb.cs156.example.models.CurrentUserSnapshot;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serves /api/currentUser from a snapshot kept in the HTTP session.
+ *
+ * The snapshot is built (one user lookup plus JSON serialization) the first
+ * time it is asked for in a session, and rebuilt only when the principal or
+ * its granted authorities no longer match it.
+ *
+ * In stateless mode (app.auth.stateless=true) there is no session, so the
+ * snapshot is rebuilt per request; the ETag still lets the browser skip the
+ * response body.
+ */
+@Slf4j
+@Service("currentUserSnapshot")
+public class CurrentUserSnapshotService {
+
+  public static final String SESSION_ATTRIBUTE = CurrentUserSnapshot.class.getName();
+
+  @Autowired
+  CurrentUserService currentUserService;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Value("${app.auth.stateless:false}")
+  boolean stateless;
+
+  public CurrentUserSnapshot getSnapshot(HttpServletRequest request) throws JsonProcessingException {
+    return getSnapshot(request.getSession(!stateless));
+  }
+
+  /**
+   * @param session may be null, in which case nothing is cached
+   */
+  public CurrentUserSnapshot getSnapshot(HttpSession session) throws JsonProcessingException {
+    Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+    Set<String> authorities = AuthorityUtils.authorityListToSet(authentication.getAuthorities());
+
+    Object stored = session == null ? null : session.getAttribute(SESSION_ATTRIBUTE);
+    if (stored instanceof CurrentUserSnapshot) {
+      CurrentUserSnapshot snapshot = (CurrentUserSnapshot) stored;
+      if (snapshot.getPrincipalName().equals(authentication.getName())
+          && snapshot.getAuthorities().equals(authorities)) {
+        return snapshot;
+      }
+    }
+
+    CurrentUser currentUser = currentUserService.getCurrentUser();
+    String json = objectMapper.writeValueAsString(currentUser);
+    String etag = "\"" + DigestUtils.md5DigestAsHex(json.getBytes(StandardCharsets.UTF_8)) + "\"";
+    CurrentUserSnapshot snapshot = new CurrentUserSnapshot(authentication.getName(), Set.copyOf(authorities), json, etag);
+    if (session != null) {
+      session.setAttribute(SESSION_ATTRIBUTE, snapshot);
+    }
+    log.debug("built current user snapshot for {} with etag {}", authentication.getName(), etag);
+    return snapshot;
+  }
+}
@@ -0,0 +1,94 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.models.DiningCommonsMenu;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Serialized DiningCommonsMenu JSON per dining commons code, built on first
+ * request and served as bytes until the next write.
+ *
+ * The commons and menu item controllers call invalidate() on every write;
+ * it takes effect when the write commits.  As in
+ * RecommendationRequestStatsService, entries carry the generation they were
+ * built in, so a build that raced a write is never served.
+ */
+@Slf4j
+@Service("diningCommonsMenus")
+public class DiningCommonsMenuService {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  private final AtomicLong generation = new AtomicLong();
+  private final Map<String, Cached> menus = new ConcurrentHashMap<>();
+
+  private static class Cached {
+    final long generation;
+    final byte[] json;
+
+    Cached(long generation, byte[] json) {
+      this.generation = generation;
+      this.json = json;
+    }
+  }
+
+  /**
+   * @throws EntityNotFoundException if there is no commons with this code
+   */
+  public byte[] menuJson(String code) throws JsonProcessingException {
+    Cached cached = menus.get(code);
+    if (cached != null && cached.generation == generation.get()) {
+      return cached.json;
+    }
+    long startGeneration = generation.get();
+    byte[] json = objectMapper.writeValueAsBytes(build(code));
+    menus.put(code, new Cached(startGeneration, json));
+    return json;
+  }
+
+  public void invalidate() {
+    AfterCommit.run(() -> {
+      generation.incrementAndGet();
+      menus.clear();
+    });
+  }
+
+  DiningCommonsMenu build(String code) {
+    UCSBDiningCommons commons = ucsbDiningCommonsRepository.findById(code)
+        .orElseThrow(() -> new EntityNotFoundException(UCSBDiningCommons.class, code));
+    List<DiningCommonsMenu.Station> stations = new ArrayList<>();
+    DiningCommonsMenu.Station station = null;
+    for (UCSBDiningCommonsMenuItem item : ucsbDiningCommonsMenuItemRepository.findAllByDiningCommonsCodeOrderByStationAscNameAsc(code)) {
+      if (station == null || !station.getName().equals(item.getStation())) {
+        station = new DiningCommonsMenu.Station(item.getStation(), new ArrayList<>());
+        stations.add(station);
+      }
+      station.getItems().add(item);
+    }
+    log.debug("built menu for {}: {} stations", code, stations.size());
+    return new DiningCommonsMenu(commons, stations);
+  }
+}
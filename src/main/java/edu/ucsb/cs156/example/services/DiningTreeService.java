@@ -0,0 +1,138 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.DiningCommonsNode;
+import edu.ucsb.cs156.example.models.DiningCommonsNode.MenuItemNode;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Loads dining commons, their menu items and the items' reviews in one
+ * request, so that clients don't need a call per commons and per item.
+ *
+ * Each level is fetched with IN (...) queries over the keys of the level
+ * above, batchSize keys per query, i.e. at most a handful of queries in
+ * total however many commons and items there are.  Before fetching a level
+ * its size is counted, and the request is rejected (400) if the response
+ * would hold more than maxNodes records.
+ */
+@Slf4j
+@Service("diningTree")
+public class DiningTreeService {
+
+  public static final Set<String> INCLUDES = Set.of("items", "reviews");
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Value("${app.diningTree.maxNodes:5000}")
+  long maxNodes;
+
+  @Value("${app.diningTree.batchSize:500}")
+  int batchSize;
+
+  /**
+   * @param codes   the commons to load, or null/empty for all of them
+   * @param include subset of INCLUDES; reviews requires items
+   */
+  @Transactional(readOnly = true)
+  public List<DiningCommonsNode> load(List<String> codes, Collection<String> include) {
+    boolean withItems = include != null && include.contains("items");
+    boolean withReviews = include != null && include.contains("reviews");
+    checkInclude(include, withItems, withReviews);
+
+    long nodes = codes == null || codes.isEmpty() ? ucsbDiningCommonsRepository.count() : codes.size();
+    checkCost(nodes);
+    Iterable<UCSBDiningCommons> commons = codes == null || codes.isEmpty()
+        ? ucsbDiningCommonsRepository.findAll()
+        : ucsbDiningCommonsRepository.findAllById(codes);
+
+    Map<String, DiningCommonsNode> commonsByCode = new LinkedHashMap<>();
+    commons.forEach(c -> commonsByCode.put(c.getCode(), new DiningCommonsNode(c, withItems ? new ArrayList<>() : null)));
+    if (!withItems || commonsByCode.isEmpty()) {
+      return new ArrayList<>(commonsByCode.values());
+    }
+
+    List<String> loadedCodes = new ArrayList<>(commonsByCode.keySet());
+    nodes += count(loadedCodes, ucsbDiningCommonsMenuItemRepository::countByDiningCommonsCodeIn);
+    checkCost(nodes);
+    Map<Long, MenuItemNode> itemsById = new LinkedHashMap<>();
+    for (UCSBDiningCommonsMenuItem item : fetch(loadedCodes, ucsbDiningCommonsMenuItemRepository::findAllByDiningCommonsCodeInOrderById)) {
+      MenuItemNode node = new MenuItemNode(item, withReviews ? new ArrayList<>() : null);
+      itemsById.put(item.getId(), node);
+      commonsByCode.get(item.getDiningCommonsCode()).getItems().add(node);
+    }
+
+    if (withReviews && !itemsById.isEmpty()) {
+      List<Long> itemIds = new ArrayList<>(itemsById.keySet());
+      nodes += count(itemIds, menuItemReviewRepository::countByItemIdIn);
+      checkCost(nodes);
+      for (MenuItemReview review : fetch(itemIds, menuItemReviewRepository::findAllByItemIdInOrderById)) {
+        itemsById.get(review.getItemId()).getReviews().add(review);
+      }
+    }
+    log.debug("loaded {} commons, {} items, {} nodes in total", commonsByCode.size(), itemsById.size(), nodes);
+    return new ArrayList<>(commonsByCode.values());
+  }
+
+  private <K> long count(List<K> keys, ToLongFunction<List<K>> query) {
+    long total = 0;
+    for (int from = 0; from < keys.size(); from += batchSize) {
+      total += query.applyAsLong(keys.subList(from, Math.min(from + batchSize, keys.size())));
+    }
+    return total;
+  }
+
+  private <K, V> List<V> fetch(List<K> keys, Function<List<K>, List<V>> query) {
+    List<V> values = new ArrayList<>();
+    for (int from = 0; from < keys.size(); from += batchSize) {
+      values.addAll(query.apply(keys.subList(from, Math.min(from + batchSize, keys.size()))));
+    }
+    return values;
+  }
+
+  private void checkCost(long nodes) {
+    if (nodes > maxNodes) {
+      throw new BadRequestException(String.format(
+          "The response would contain %d records, at most %d are allowed; request fewer commons or include less", nodes, maxNodes));
+    }
+  }
+
+  private static void checkInclude(Collection<String> include, boolean withItems, boolean withReviews) {
+    if (include != null) {
+      for (String level : include) {
+        if (!INCLUDES.contains(level)) {
+          throw new BadRequestException(String.format("Cannot include '%s', expected items or reviews", level));
+        }
+      }
+    }
+    if (withReviews && !withItems) {
+      throw new BadRequestException("include=reviews also requires include=items");
+    }
+  }
+}
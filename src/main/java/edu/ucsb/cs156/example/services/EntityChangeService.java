@@ -0,0 +1,166 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.RawValue;
+
+import edu.ucsb.cs156.example.entities.EntityChange;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.ChangeFeed;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.repositories.EntityChangeRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Records entity writes in the entity_changes outbox and serves them back
+ * as a feed ordered by sequence number.
+ *
+ * The controllers call created/updated/deleted from inside the
+ * @Transactional write method, so a change row exists if and only if the
+ * write committed.
+ *
+ * Sequence numbers are assigned at insert but rows become visible at
+ * commit, so a slow transaction could commit a lower seq after a reader
+ * has moved past it.  The feed therefore only returns rows at least
+ * app.changes.settleMillis old, which keeps it gap-free as long as write
+ * transactions are shorter than that.
+ *
+ * sync() is the per-entity view of the same rows for clients that keep a
+ * local copy: repeated changes to one entity collapse to its latest state,
+ * and DELETE rows are the tombstones.
+ */
+@Slf4j
+@Service("entityChanges")
+public class EntityChangeService {
+
+  public static final int MAX_LIMIT = 1000;
+
+  @Autowired
+  EntityChangeRepository entityChangeRepository;
+
+  @Autowired
+  EntityManagerFactory entityManagerFactory;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Value("${app.changes.settleMillis:2000}")
+  long settleMillis;
+
+  @Value("${app.changes.retentionDays:30}")
+  long retentionDays;
+
+  public void created(Object entity) {
+    record(entity, EntityChange.CREATE, LocalDateTime.now());
+  }
+
+  public void updated(Object entity) {
+    record(entity, EntityChange.UPDATE, LocalDateTime.now());
+  }
+
+  public void deleted(Object entity) {
+    record(entity, EntityChange.DELETE, LocalDateTime.now());
+  }
+
+  EntityChange record(Object entity, String operation, LocalDateTime now) {
+    Object id = entityManagerFactory.getPersistenceUnitUtil().getIdentifier(entity);
+    String payload = operation.equals(EntityChange.DELETE) ? null : objectMapper.valueToTree(entity).toString();
+    return entityChangeRepository.save(EntityChange.builder()
+        .entityType(entity.getClass().getSimpleName())
+        .entityId(String.valueOf(id))
+        .operation(operation)
+        .changedAt(now)
+        .payload(payload)
+        .build());
+  }
+
+  public ChangeFeed feed(long since, int limit) {
+    return feed(since, limit, LocalDateTime.now());
+  }
+
+  public ChangeFeed feed(long since, int limit, LocalDateTime now) {
+    checkArguments(since, limit);
+    List<EntityChange> changes = entityChangeRepository.findBySeqGreaterThanAndChangedAtBeforeOrderBySeq(
+        since, now.minusNanos(settleMillis * 1_000_000), PageRequest.of(0, limit));
+    long next = changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq();
+    return new ChangeFeed(changes, next);
+  }
+
+  public SyncResponse sync(Class<?> entityType, long since, int limit) {
+    return sync(entityType, since, limit, LocalDateTime.now());
+  }
+
+  public SyncResponse sync(Class<?> entityType, long since, int limit, LocalDateTime now) {
+    checkArguments(since, limit);
+    LocalDateTime settled = now.minusNanos(settleMillis * 1_000_000);
+
+    Long oldest = entityChangeRepository.minSeq();
+    if (oldest == null ? since > 0 : since < oldest - 1) {
+      // history the client needs has been pruned
+      Long newest = entityChangeRepository.maxSeqChangedBefore(settled);
+      return SyncResponse.builder()
+          .upserts(List.of())
+          .tombstones(List.of())
+          .version(newest == null ? 0 : newest)
+          .reset(true)
+          .build();
+    }
+
+    List<EntityChange> changes = entityChangeRepository.findByEntityTypeAndSeqGreaterThanAndChangedAtBeforeOrderBySeq(
+        entityType.getSimpleName(), since, settled, PageRequest.of(0, limit));
+    Map<String, EntityChange> latest = new LinkedHashMap<>();
+    for (EntityChange change : changes) {
+      latest.remove(change.getEntityId());
+      latest.put(change.getEntityId(), change);
+    }
+    boolean stringIds = entityManagerFactory.getMetamodel().entity(entityType).getIdType().getJavaType() == String.class;
+    List<RawValue> upserts = new ArrayList<>();
+    List<Object> tombstones = new ArrayList<>();
+    for (EntityChange change : latest.values()) {
+      if (change.getOperation().equals(EntityChange.DELETE)) {
+        tombstones.add(stringIds ? change.getEntityId() : Long.valueOf(change.getEntityId()));
+      } else {
+        upserts.add(new RawValue(change.getPayload()));
+      }
+    }
+    return SyncResponse.builder()
+        .upserts(upserts)
+        .tombstones(tombstones)
+        .version(changes.isEmpty() ? since : changes.get(changes.size() - 1).getSeq())
+        .more(changes.size() == limit)
+        .build();
+  }
+
+  private static void checkArguments(long since, int limit) {
+    if (since < 0) {
+      throw new BadRequestException("since must not be negative");
+    }
+    if (limit < 1 || limit > MAX_LIMIT) {
+      throw new BadRequestException("limit must be between 1 and " + MAX_LIMIT);
+    }
+  }
+
+  @Scheduled(cron = "${app.changes.pruneCron:0 30 3 * * *}")
+  public void prune() {
+    prune(LocalDateTime.now());
+  }
+
+  public int prune(LocalDateTime now) {
+    int deleted = entityChangeRepository.deleteChangedBefore(now.minusDays(retentionDays));
+    log.info("pruned {} entity changes older than {} days", deleted, retentionDays);
+    return deleted;
+  }
+}
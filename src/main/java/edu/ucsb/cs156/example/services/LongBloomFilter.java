@@ -0,0 +1,58 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size Bloom filter over long keys: mightContain never returns
+ * false for a key that was added, and returns true for a key that was
+ * not added with probability about (1 - e^(-HASHES * n / bits))^HASHES.
+ * Keys cannot be removed.  Safe for concurrent add and mightContain.
+ */
+final class LongBloomFilter {
+
+  static final int HASHES = 4;
+
+  private final AtomicLongArray words;
+  private final long bits;
+
+  /**
+   * @param log2Bits size of the filter, as a power of two (20 = 128 KiB)
+   */
+  LongBloomFilter(int log2Bits) {
+    this.bits = 1L << log2Bits;
+    this.words = new AtomicLongArray((int) (bits >>> 6));
+  }
+
+  void add(long key) {
+    long h = mix(key);
+    long step = (h >>> 32) | 1;
+    for (int i = 0; i < HASHES; i++, h += step) {
+      long bit = h & (bits - 1);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long old;
+      while (((old = words.get(word)) & mask) == 0 && !words.compareAndSet(word, old, old | mask)) {
+        // lost a race with another add to the same word; retry
+      }
+    }
+  }
+
+  boolean mightContain(long key) {
+    long h = mix(key);
+    long step = (h >>> 32) | 1;
+    for (int i = 0; i < HASHES; i++, h += step) {
+      long bit = h & (bits - 1);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** the splitmix64 finalizer, so sequential ids spread over the whole filter */
+  private static long mix(long z) {
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+}
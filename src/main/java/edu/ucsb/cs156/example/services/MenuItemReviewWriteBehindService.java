@@ -0,0 +1,250 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionOperations;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.errors.WriteQueueFullException;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Optional write-behind for new menu item reviews
+ * (app.menuItemReviews.writeBehind.enabled=true).
+ *
+ * Reviews are put on a bounded queue and a single writer thread saves them
+ * with one saveAll (one transaction) per batch of up to batchSize rows, or
+ * whatever arrived within flushIntervalMs of the first one.
+ *
+ * When the queue is full, submit waits up to offerTimeoutMs and then throws
+ * WriteQueueFullException (503).  On shutdown, everything still queued is
+ * flushed before the context closes; a review submitted after that is saved
+ * right away on the caller's thread.  Each submitted review gets a future
+ * that completes once it is saved (or fails), which the controller waits on
+ * (for at most ackTimeoutMs) when syncAck is set.
+ *
+ * Each batch and its entity_changes rows are written in one transaction.
+ */
+@Slf4j
+@Service("menuItemReviewWriteBehind")
+public class MenuItemReviewWriteBehindService {
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  EntityChangeService entityChanges;
+
+  @Autowired
+  TransactionOperations transactionOperations;
+
+  @Value("${app.menuItemReviews.writeBehind.enabled:false}")
+  boolean enabled;
+
+  @Value("${app.menuItemReviews.writeBehind.syncAck:true}")
+  boolean syncAck;
+
+  @Value("${app.menuItemReviews.writeBehind.queueCapacity:1000}")
+  int queueCapacity;
+
+  @Value("${app.menuItemReviews.writeBehind.batchSize:100}")
+  int batchSize;
+
+  @Value("${app.menuItemReviews.writeBehind.flushIntervalMs:50}")
+  long flushIntervalMs;
+
+  @Value("${app.menuItemReviews.writeBehind.offerTimeoutMs:500}")
+  long offerTimeoutMs;
+
+  @Value("${app.menuItemReviews.writeBehind.ackTimeoutMs:5000}")
+  long ackTimeoutMs;
+
+  private BlockingQueue<Pending> queue;
+  private Thread writer;
+  private volatile boolean running = false;
+
+  // submit checks running and enqueues under the read lock; stop clears
+  // running under the write lock, so nothing is enqueued after its final drain
+  private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();
+
+  private static class Pending {
+    final MenuItemReview review;
+    final CompletableFuture<MenuItemReview> saved = new CompletableFuture<>();
+
+    Pending(MenuItemReview review) {
+      this.review = review;
+    }
+  }
+
+  @PostConstruct
+  void start() {
+    if (!enabled) {
+      return;
+    }
+    queue = new ArrayBlockingQueue<>(queueCapacity);
+    running = true;
+    writer = new Thread(this::run, "menuitemreview-writer");
+    writer.setDaemon(true);
+    writer.start();
+    log.info("menu item review write-behind started (batchSize={}, flushIntervalMs={}, queueCapacity={})",
+        batchSize, flushIntervalMs, queueCapacity);
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    lifecycle.writeLock().lock();
+    try {
+      if (!running) {
+        return;
+      }
+      running = false;
+    } finally {
+      lifecycle.writeLock().unlock();
+    }
+    writer.join();
+    // anything offered while the writer was finishing up
+    List<Pending> rest = new ArrayList<>();
+    queue.drainTo(rest);
+    if (!rest.isEmpty()) {
+      flush(rest);
+    }
+    log.info("menu item review write-behind stopped");
+  }
+
+  public boolean isEnabled() {
+    return running;
+  }
+
+  public boolean isSyncAck() {
+    return syncAck;
+  }
+
+  public long getAckTimeoutMs() {
+    return ackTimeoutMs;
+  }
+
+  public int pending() {
+    return queue == null ? 0 : queue.size();
+  }
+
+  /**
+   * @return completes with the saved review (id assigned) once its batch is
+   *         written
+   * @throws WriteQueueFullException if the queue stays full for offerTimeoutMs
+   */
+  public CompletableFuture<MenuItemReview> submit(MenuItemReview review) throws InterruptedException {
+    if (!enabled) {
+      throw new IllegalStateException("menu item review write-behind is not enabled");
+    }
+    Pending pending = new Pending(review);
+    lifecycle.readLock().lock();
+    try {
+      if (!running) {
+        // stopped for shutdown: the writer is gone, so save it here
+        return CompletableFuture.completedFuture(saveOne(review));
+      }
+      if (!queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+        throw new WriteQueueFullException(MenuItemReview.class);
+      }
+    } finally {
+      lifecycle.readLock().unlock();
+    }
+    return pending.saved;
+  }
+
+  private void run() {
+    List<Pending> batch = new ArrayList<>(batchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        Pending first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+          queue.drainTo(batch, batchSize - batch.size());
+          long remaining = deadline - System.nanoTime();
+          if (batch.size() >= batchSize || remaining <= 0) {
+            break;
+          }
+          Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        flush(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        flush(batch);
+        return;
+      } finally {
+        batch.clear();
+      }
+    }
+  }
+
+  void flush(List<Pending> batch) {
+    if (batch.isEmpty()) {
+      return;
+    }
+    List<MenuItemReview> reviews = new ArrayList<>(batch.size());
+    batch.forEach(pending -> reviews.add(pending.review));
+    try {
+      List<MenuItemReview> saved = new ArrayList<>();
+      transactionOperations.executeWithoutResult(status -> {
+        menuItemReviewRepository.saveAll(reviews).forEach(saved::add);
+        saved.forEach(entityChanges::created);
+      });
+      for (int i = 0; i < batch.size(); i++) {
+        batch.get(i).saved.complete(saved.get(i));
+      }
+      log.debug("wrote {} menu item reviews", batch.size());
+    } catch (RuntimeException e) {
+      // one bad row should not fail the whole batch; retry them one at a time
+      log.warn("batch of {} menu item reviews failed, retrying singly: {}", batch.size(), e.toString());
+      for (Pending pending : batch) {
+        try {
+          // saveAll gave each review an id from the rolled back batch; save
+          // would merge onto those missing rows, so start from a fresh copy
+          pending.saved.complete(saveOne(unsaved(pending.review)));
+        } catch (RuntimeException single) {
+          pending.saved.completeExceptionally(single);
+        }
+      }
+    }
+  }
+
+  private MenuItemReview saveOne(MenuItemReview review) {
+    return transactionOperations.execute(status -> {
+      MenuItemReview saved = menuItemReviewRepository.save(review);
+      entityChanges.created(saved);
+      return saved;
+    });
+  }
+
+  private static MenuItemReview unsaved(MenuItemReview review) {
+    return MenuItemReview.builder()
+        .itemId(review.getItemId())
+        .reviewerEmail(review.getReviewerEmail())
+        .stars(review.getStars())
+        .dateReviewed(review.getDateReviewed())
+        .comments(review.getComments())
+        .build();
+  }
+}
@@ -0,0 +1,61 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.events.RecommendationRequestReminderEvent;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Sends the reminders published by RecommendationRequestReminderService.
+ *
+ * Each batch is POSTed as a JSON array of recommendation requests to
+ * app.reminders.webhookUrl.  A failed POST is logged and not retried, so
+ * that one unreachable endpoint cannot hold up the reminder queue.  When no
+ * URL is configured the reminders are only logged.
+ */
+@Slf4j
+@Service("recommendationRequestReminderNotifier")
+public class RecommendationRequestReminderNotifier {
+
+  private final RestTemplate restTemplate;
+  private final String webhookUrl;
+
+  public RecommendationRequestReminderNotifier(RestTemplateBuilder restTemplateBuilder,
+      @Value("${app.reminders.webhookUrl:}") String webhookUrl,
+      @Value("${app.reminders.webhookTimeoutMs:5000}") long webhookTimeoutMs) {
+    this.restTemplate = restTemplateBuilder
+        .setConnectTimeout(Duration.ofMillis(webhookTimeoutMs))
+        .setReadTimeout(Duration.ofMillis(webhookTimeoutMs))
+        .build();
+    this.webhookUrl = webhookUrl;
+  }
+
+  @EventListener
+  public void sendReminders(RecommendationRequestReminderEvent event) {
+    if (webhookUrl.isBlank()) {
+      for (RecommendationRequest request : event.getRequests()) {
+        log.info("reminder: recommendation request {} from {} to {} is due {}", request.getId(),
+            request.getRequesterEmail(), request.getProfessorEmail(), request.getDateNeeded());
+      }
+      return;
+    }
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    try {
+      restTemplate.postForEntity(webhookUrl, new HttpEntity<>(event.getRequests(), headers), Void.class);
+    } catch (RestClientException e) {
+      log.warn("could not send reminders for {} recommendation requests: {}", event.getRequests().size(), e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.events.RecommendationRequestReminderEvent;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Keeps a priority queue (ordered by dateNeeded) of pending recommendation
+ * requests that fall due within the next leadTime + lookahead minutes.
+ *
+ * On each tick, every request due within leadTime is removed from the queue
+ * and published in batches as RecommendationRequestReminderEvents. The
+ * database is only queried when the loaded window runs out; in between,
+ * RecommendationRequestController keeps the queue current via track/untrack.
+ *
+ * The first load only picks up requests that are not yet past due: those
+ * were already reminded before a restart, and would otherwise be reminded
+ * again every time the application starts.  An update only re-queues a
+ * request when its dateNeeded or done flag changed, so editing a request
+ * that was already reminded does not remind it again.
+ *
+ * The queue lives in memory, so only one node may send reminders: set
+ * app.reminders.leader=false on every other node.  The reminders themselves
+ * are delivered by RecommendationRequestReminderNotifier.
+ */
+@Slf4j
+@Service("recommendationRequestReminders")
+public class RecommendationRequestReminderService {
+
+  private static final Comparator<RecommendationRequest> BY_DATE_NEEDED = Comparator
+      .comparing(RecommendationRequest::getDateNeeded)
+      .thenComparingLong(RecommendationRequest::getId);
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  ApplicationEventPublisher publisher;
+
+  @Value("${app.reminders.leadTimeMinutes:1440}")
+  long leadTimeMinutes;
+
+  @Value("${app.reminders.lookaheadMinutes:1440}")
+  long lookaheadMinutes;
+
+  @Value("${app.reminders.batchSize:50}")
+  int batchSize;
+
+  @Value("${app.reminders.leader:true}")
+  boolean leader;
+
+  private final PriorityQueue<RecommendationRequest> queue = new PriorityQueue<>(BY_DATE_NEEDED);
+  private final Map<Long, RecommendationRequest> queued = new HashMap<>();
+  private LocalDateTime loadedUntil = null;
+
+  @Scheduled(fixedDelayString = "${app.reminders.fixedDelayMs:60000}")
+  public void sendReminders() {
+    if (leader) {
+      sendReminders(LocalDateTime.now());
+    }
+  }
+
+  /**
+   * Publishes reminders for everything due on or before now + leadTime.
+   *
+   * @return the number of requests reminded
+   */
+  public synchronized int sendReminders(LocalDateTime now) {
+    LocalDateTime remindUntil = now.plusMinutes(leadTimeMinutes);
+    if (loadedUntil == null || loadedUntil.isBefore(remindUntil)) {
+      refill(now, remindUntil.plusMinutes(lookaheadMinutes));
+    }
+
+    int reminded = 0;
+    List<RecommendationRequest> batch = new ArrayList<>();
+    while (!queue.isEmpty() && !queue.peek().getDateNeeded().isAfter(remindUntil)) {
+      RecommendationRequest request = queue.poll();
+      queued.remove(request.getId());
+      batch.add(request);
+      if (batch.size() == batchSize) {
+        reminded += publish(batch);
+        batch = new ArrayList<>();
+      }
+    }
+    if (!batch.isEmpty()) {
+      reminded += publish(batch);
+    }
+    return reminded;
+  }
+
+  /**
+   * Called after a request is created or updated; takes effect once the
+   * transaction commits.
+   */
+  public void track(RecommendationRequest request) {
+    AfterCommit.run(() -> trackNow(request));
+  }
+
+  /**
+   * Called after a request is updated, with its dateNeeded and done flag
+   * from before the update.  Other edits only refresh the copy in the queue.
+   */
+  public void updated(LocalDateTime previousDateNeeded, boolean wasDone, RecommendationRequest request) {
+    if (Objects.equals(previousDateNeeded, request.getDateNeeded()) && wasDone == request.getDone()) {
+      AfterCommit.run(() -> refreshNow(request));
+    } else {
+      track(request);
+    }
+  }
+
+  /**
+   * Called after a request is deleted; takes effect once the transaction
+   * commits.
+   */
+  public void untrack(long id) {
+    AfterCommit.run(() -> untrackNow(id));
+  }
+
+  public synchronized int size() {
+    return queue.size();
+  }
+
+  private synchronized void trackNow(RecommendationRequest request) {
+    dequeue(request.getId());
+    if (loadedUntil != null && !request.getDone() && request.getDateNeeded() != null
+        && !request.getDateNeeded().isAfter(loadedUntil)) {
+      enqueue(request);
+    }
+  }
+
+  private synchronized void refreshNow(RecommendationRequest request) {
+    if (queued.containsKey(request.getId())) {
+      dequeue(request.getId());
+      enqueue(request);
+    }
+  }
+
+  private synchronized void untrackNow(long id) {
+    dequeue(id);
+  }
+
+  private void refill(LocalDateTime now, LocalDateTime until) {
+    LocalDateTime after = loadedUntil == null ? now : loadedUntil;
+    Iterable<RecommendationRequest> due = recommendationRequestRepository
+        .findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(after, until);
+    due.forEach(request -> {
+      dequeue(request.getId());
+      enqueue(request);
+    });
+    loadedUntil = until;
+    log.debug("reminder queue loaded until {}, {} pending", until, queue.size());
+  }
+
+  private void enqueue(RecommendationRequest request) {
+    queue.add(request);
+    queued.put(request.getId(), request);
+  }
+
+  private void dequeue(long id) {
+    RecommendationRequest old = queued.remove(id);
+    if (old != null) {
+      queue.remove(old);
+    }
+  }
+
+  private int publish(List<RecommendationRequest> batch) {
+    log.info("sending reminders for {} recommendation requests", batch.size());
+    publisher.publishEvent(new RecommendationRequestReminderEvent(this, batch));
+    return batch.size();
+  }
+}
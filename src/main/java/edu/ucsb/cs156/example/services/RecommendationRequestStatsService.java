@@ -0,0 +1,81 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.models.RecommendationRequestCount;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Cached GROUP BY (email, done) counts of recommendation requests.
+ *
+ * RecommendationRequestController calls invalidate() on every write; the
+ * generation moves once the write's transaction commits.  The generation
+ * counter keeps a query that started before the commit from caching its
+ * (stale) result after the invalidation.
+ */
+@Slf4j
+@Service("recommendationRequestStats")
+public class RecommendationRequestStatsService {
+
+  @Autowired
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  private final AtomicLong generation = new AtomicLong();
+  private volatile Cached byProfessor = null;
+  private volatile Cached byRequester = null;
+
+  private static class Cached {
+    final long generation;
+    final List<RecommendationRequestCount> counts;
+
+    Cached(long generation, List<RecommendationRequestCount> counts) {
+      this.generation = generation;
+      this.counts = counts;
+    }
+  }
+
+  public List<RecommendationRequestCount> countsByProfessor(String professorEmail) {
+    Cached cached = byProfessor;
+    if (cached == null || cached.generation != generation.get()) {
+      cached = load(recommendationRequestRepository::countByProfessorEmailAndDone);
+      byProfessor = cached;
+    }
+    return filter(cached.counts, professorEmail);
+  }
+
+  public List<RecommendationRequestCount> countsByRequester(String requesterEmail) {
+    Cached cached = byRequester;
+    if (cached == null || cached.generation != generation.get()) {
+      cached = load(recommendationRequestRepository::countByRequesterEmailAndDone);
+      byRequester = cached;
+    }
+    return filter(cached.counts, requesterEmail);
+  }
+
+  public void invalidate() {
+    AfterCommit.run(generation::incrementAndGet);
+  }
+
+  private Cached load(Supplier<List<RecommendationRequestCount>> query) {
+    long startGeneration = generation.get();
+    List<RecommendationRequestCount> counts = List.copyOf(query.get());
+    log.debug("loaded {} recommendation request counts", counts.size());
+    return new Cached(startGeneration, counts);
+  }
+
+  private static List<RecommendationRequestCount> filter(List<RecommendationRequestCount> counts, String email) {
+    if (email == null) {
+      return counts;
+    }
+    return counts.stream()
+        .filter(c -> email.equals(c.getEmail()))
+        .collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,134 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory checks that UCSBDiningCommonsMenuItem.diningCommonsCode and
+ * MenuItemReview.itemId point at existing rows, so writes are validated
+ * without a query each.  The FK constraints added in
+ * UCSBDiningCommonsMenuItem.json remain the authority.
+ *
+ * Dining commons codes are few and are kept as an exact set.  Menu item
+ * ids go into a Bloom filter; the rare false positive (or an item deleted
+ * since the filter was built) is caught by the FK.  Since Bloom filters
+ * cannot forget, the filter is rebuilt once deletes reach a quarter of the
+ * items it was built from.
+ *
+ * Both are loaded on first use and kept current by this node's commons and
+ * menu item controllers.  Additions take effect at once; removals only
+ * after the deleting transaction commits, so a rollback cannot hide a live
+ * key.  Keys created elsewhere (another node, a migration, plain SQL) are
+ * not in memory, so a miss is confirmed with existsById before the write
+ * is rejected with a 400, and a key found that way is remembered.
+ */
+@Slf4j
+@Service("referenceKeys")
+public class ReferenceKeyService {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Value("${app.referenceKeys.bloomLog2Bits:20}")
+  int bloomLog2Bits;
+
+  private volatile Set<String> commonsCodes;
+  private volatile LongBloomFilter menuItemIds;
+  private long menuItemsAtBuild;
+  private long menuItemsDeleted;
+
+  public void checkDiningCommonsCode(String code) {
+    if (code == null || commonsCodes().contains(code)) {
+      return;
+    }
+    if (!ucsbDiningCommonsRepository.existsById(code)) {
+      throw new BadRequestException("Unknown dining commons code '%s'".formatted(code));
+    }
+    log.debug("dining commons code '{}' was not in memory, found in the database", code);
+    commonsCodes().add(code);
+  }
+
+  public void checkMenuItemId(Long itemId) {
+    if (itemId == null || menuItemIds().mightContain(itemId)) {
+      return;
+    }
+    if (!ucsbDiningCommonsMenuItemRepository.existsById(itemId)) {
+      throw new BadRequestException("Unknown menu item id %d".formatted(itemId));
+    }
+    log.debug("menu item id {} was not in memory, found in the database", itemId);
+    menuItemIds().add(itemId);
+  }
+
+  public void diningCommonsAdded(String code) {
+    commonsCodes().add(code);
+  }
+
+  public void diningCommonsRemoved(String code) {
+    AfterCommit.run(() -> commonsCodes().remove(code));
+  }
+
+  public void menuItemAdded(long id) {
+    menuItemIds().add(id);
+  }
+
+  public void menuItemRemoved(long id) {
+    AfterCommit.run(() -> {
+      synchronized (this) {
+        menuItemsDeleted++;
+        if (menuItemsDeleted * 4 > menuItemsAtBuild) {
+          menuItemIds = null;
+        }
+      }
+    });
+  }
+
+  private Set<String> commonsCodes() {
+    Set<String> codes = commonsCodes;
+    if (codes == null) {
+      synchronized (this) {
+        if (commonsCodes == null) {
+          Set<String> loaded = ConcurrentHashMap.newKeySet();
+          loaded.addAll(ucsbDiningCommonsRepository.findAllCodes());
+          commonsCodes = loaded;
+          log.info("loaded {} dining commons codes", loaded.size());
+        }
+        codes = commonsCodes;
+      }
+    }
+    return codes;
+  }
+
+  private LongBloomFilter menuItemIds() {
+    LongBloomFilter ids = menuItemIds;
+    if (ids == null) {
+      synchronized (this) {
+        if (menuItemIds == null) {
+          LongBloomFilter loaded = new LongBloomFilter(bloomLog2Bits);
+          long count = 0;
+          for (long id : ucsbDiningCommonsMenuItemRepository.findAllIds()) {
+            loaded.add(id);
+            count++;
+          }
+          menuItemsAtBuild = count;
+          menuItemsDeleted = 0;
+          menuItemIds = loaded;
+          log.info("built menu item id filter from {} ids", count);
+        }
+        ids = menuItemIds;
+      }
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,174 @@
+package edu.ucsb.cs156.example.services;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Optional;
+
+import javax.annotation.PostConstruct;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.SignedToken;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Issues and verifies the compact HMAC-SHA256 signed tokens used when
+ * app.auth.stateless=true.  A token is base64url(payload).base64url(hmac).
+ *
+ * The HMAC also covers a purpose string (AUTH_TOKEN, AUTH_REQUEST), so a
+ * value signed for one cookie is never accepted as the other.
+ *
+ * Every node behind a load balancer must share app.auth.tokenSecret, so the
+ * application refuses to start in stateless mode without one.
+ */
+@Slf4j
+@Service("signedTokens")
+@ConditionalOnProperty(name = "app.auth.stateless", havingValue = "true")
+public class SignedTokenService {
+
+  public static final String COOKIE_NAME = "AUTH_TOKEN";
+
+  /** purpose of the AUTH_TOKEN cookie's claims */
+  public static final String AUTH_TOKEN = "auth-token";
+  /** purpose of SignedCookieAuthorizationRequestRepository's cookie */
+  public static final String AUTH_REQUEST = "oauth2-auth-request";
+
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  @Autowired
+  CurrentUserService currentUserService;
+
+  @Autowired
+  ObjectMapper objectMapper;
+
+  @Value("${app.auth.tokenSecret:}")
+  String tokenSecret;
+
+  @Value("${app.auth.tokenTtlMinutes:480}")
+  long tokenTtlMinutes;
+
+  private SecretKeySpec key;
+
+  private final ThreadLocal<Mac> mac = ThreadLocal.withInitial(() -> {
+    try {
+      Mac m = Mac.getInstance("HmacSHA256");
+      m.init(key);
+      return m;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  });
+
+  @PostConstruct
+  void init() {
+    if (tokenSecret == null || tokenSecret.isBlank()) {
+      throw new IllegalStateException("app.auth.tokenSecret (AUTH_TOKEN_SECRET) must be set when app.auth.stateless=true");
+    }
+    key = new SecretKeySpec(tokenSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+  }
+
+  public long getTokenTtlSeconds() {
+    return tokenTtlMinutes * 60;
+  }
+
+  /**
+   * Called once, right after OAuth2 login; this is the only point at which
+   * stateless mode looks up (or creates) the user.
+   */
+  public String issue(Authentication authentication, Instant now) {
+    User user = currentUserService.getUser();
+    SignedToken token = SignedToken.builder()
+        .uid(user.getId())
+        .sub(user.getGoogleSub())
+        .email(user.getEmail())
+        .roles(AuthorityUtils.authorityListToSet(authentication.getAuthorities()))
+        .exp(now.getEpochSecond() + getTokenTtlSeconds())
+        .build();
+    try {
+      return sign(AUTH_TOKEN, objectMapper.writeValueAsBytes(token));
+    } catch (java.io.IOException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * @return the claims, or empty if the token is malformed, forged, expired
+   *         or missing any of sub, email and roles
+   */
+  public Optional<SignedToken> verify(String token, Instant now) {
+    return unsign(AUTH_TOKEN, token).flatMap(payload -> {
+      try {
+        SignedToken claims = objectMapper.readValue(payload, SignedToken.class);
+        if (claims.getSub() == null || claims.getEmail() == null || claims.getRoles() == null) {
+          return Optional.empty();
+        }
+        return claims.getExp() > now.getEpochSecond() ? Optional.of(claims) : Optional.empty();
+      } catch (java.io.IOException e) {
+        return Optional.empty();
+      }
+    });
+  }
+
+  public String sign(String purpose, byte[] payload) {
+    return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(hmac(purpose, payload));
+  }
+
+  public Optional<byte[]> unsign(String purpose, String signed) {
+    int dot = signed == null ? -1 : signed.indexOf('.');
+    if (dot < 0) {
+      return Optional.empty();
+    }
+    try {
+      byte[] payload = DECODER.decode(signed.substring(0, dot));
+      byte[] signature = DECODER.decode(signed.substring(dot + 1));
+      return MessageDigest.isEqual(signature, hmac(purpose, payload)) ? Optional.of(payload) : Optional.empty();
+    } catch (IllegalArgumentException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Signs the payload together with an expiry, for values that carry none
+   * of their own.
+   */
+  public String sign(String purpose, byte[] payload, Instant expiresAt) {
+    return sign(purpose, ByteBuffer.allocate(Long.BYTES + payload.length)
+        .putLong(expiresAt.getEpochSecond())
+        .put(payload)
+        .array());
+  }
+
+  /**
+   * @return the payload signed with sign(purpose, payload, expiresAt), or
+   *         empty if it is forged or has expired
+   */
+  public Optional<byte[]> unsign(String purpose, String signed, Instant now) {
+    return unsign(purpose, signed)
+        .filter(bytes -> bytes.length >= Long.BYTES)
+        .filter(bytes -> ByteBuffer.wrap(bytes).getLong() > now.getEpochSecond())
+        .map(bytes -> Arrays.copyOfRange(bytes, Long.BYTES, bytes.length));
+  }
+
+  private byte[] hmac(String purpose, byte[] payload) {
+    Mac m = mac.get();
+    m.update(purpose.getBytes(StandardCharsets.UTF_8));
+    m.update((byte) 0);
+    return m.doFinal(payload);
+  }
+}
@@ -0,0 +1,132 @@
+package edu.ucsb.cs156.example.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Root;
+import javax.persistence.metamodel.Attribute;
+import javax.persistence.metamodel.EntityType;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Reads only the requested columns of an entity (a "sparse fieldset"),
+ * so list endpoints can skip long text columns the caller does not need.
+ */
+@Slf4j
+@Service("sparseFieldset")
+public class SparseFieldsetService {
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  @Transactional(readOnly = true)
+  public List<Map<String, Object>> findAll(Class<?> entityClass, Collection<String> fields) {
+    EntityType<?> entityType = entityManager.getMetamodel().entity(entityClass);
+    Set<String> selected = validFields(entityType, fields);
+    log.debug("selecting {} from {}", selected, entityType.getName());
+
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = cb.createTupleQuery();
+    Root<?> root = query.from(entityClass);
+    select(query, root, selected);
+    return rows(entityManager.createQuery(query).getResultList(), selected);
+  }
+
+  /**
+   * One page of the selected columns, filtered and sorted the same way
+   * JpaSpecificationExecutor.findAll(spec, pageable) would.  The count
+   * query is skipped when the page itself shows where the results end.
+   */
+  @Transactional(readOnly = true)
+  public <T> Page<Map<String, Object>> findPage(Class<T> entityClass, Collection<String> fields,
+      Specification<T> spec, Pageable pageable) {
+    EntityType<T> entityType = entityManager.getMetamodel().entity(entityClass);
+    Set<String> selected = validFields(entityType, fields);
+    log.debug("selecting {} from {}, {}", selected, entityType.getName(), pageable);
+
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Tuple> query = cb.createTupleQuery();
+    Root<T> root = query.from(entityClass);
+    select(query, root, selected);
+    query.where(spec.toPredicate(root, query, cb));
+    query.orderBy(QueryUtils.toOrders(pageable.getSort(), root, cb));
+
+    List<Tuple> tuples = entityManager.createQuery(query)
+        .setFirstResult((int) pageable.getOffset())
+        .setMaxResults(pageable.getPageSize())
+        .getResultList();
+    return PageableExecutionUtils.getPage(rows(tuples, selected), pageable, () -> count(entityClass, spec));
+  }
+
+  private <T> long count(Class<T> entityClass, Specification<T> spec) {
+    CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = cb.createQuery(Long.class);
+    Root<T> root = query.from(entityClass);
+    query.select(cb.count(root));
+    query.where(spec.toPredicate(root, query, cb));
+    return entityManager.createQuery(query).getSingleResult();
+  }
+
+  private static void select(CriteriaQuery<Tuple> query, Root<?> root, Set<String> selected) {
+    query.multiselect(selected.stream()
+        .map(field -> root.get(field).alias(field))
+        .collect(Collectors.toList()));
+  }
+
+  private static List<Map<String, Object>> rows(List<Tuple> tuples, Set<String> selected) {
+    List<Map<String, Object>> rows = new ArrayList<>();
+    for (Tuple tuple : tuples) {
+      Map<String, Object> row = new LinkedHashMap<>();
+      for (String field : selected) {
+        row.put(field, tuple.get(field));
+      }
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  private Set<String> validFields(EntityType<?> entityType, Collection<String> fields) {
+    Set<String> known = entityType.getAttributes().stream()
+        .map(Attribute::getName)
+        .collect(Collectors.toSet());
+    Set<String> selected = new LinkedHashSet<>();
+    for (String field : fields) {
+      String name = field.trim();
+      if (name.isEmpty()) {
+        continue;
+      }
+      if (!known.contains(name)) {
+        throw new BadRequestException("Unknown field '%s' for %s"
+            .formatted(name, entityType.getJavaType().getSimpleName()));
+      }
+      selected.add(name);
+    }
+    if (selected.isEmpty()) {
+      throw new BadRequestException("No fields requested for %s"
+          .formatted(entityType.getJavaType().getSimpleName()));
+    }
+    return selected;
+  }
+}
@@ -0,0 +1,178 @@
+package edu.ucsb.cs156.example.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * In-memory calendar of all UCSBDates, sorted by localDateTime.
+ *
+ * The index is loaded from the database on first use; after that
+ * UCSBDatesController keeps it current by calling put/remove on every write,
+ * so calendar queries never go back to the database.  Both take effect once
+ * the write's transaction commits, so a rolled-back write never shows up.
+ */
+@Slf4j
+@Service("ucsbDateCalendar")
+public class UCSBDateCalendarIndex {
+
+  private static final Comparator<UCSBDate> BY_TIME = Comparator
+      .comparing(UCSBDate::getLocalDateTime, Comparator.nullsFirst(Comparator.naturalOrder()))
+      .thenComparingLong(UCSBDate::getId);
+
+  @Autowired
+  UCSBDateRepository ucsbDateRepository;
+
+  private final ReadWriteLock lock = new ReentrantReadWriteLock();
+  private final Map<Long, UCSBDate> byId = new HashMap<>();
+  private final NavigableSet<UCSBDate> timeline = new TreeSet<>(BY_TIME);
+  private final Map<String, NavigableSet<UCSBDate>> byQuarter = new HashMap<>();
+  private boolean loaded = false;
+
+  public List<UCSBDate> inQuarter(String quarterYYYYQ) {
+    ensureLoaded();
+    lock.readLock().lock();
+    try {
+      NavigableSet<UCSBDate> dates = byQuarter.get(quarterYYYYQ);
+      return dates == null ? List.of() : copyOf(dates, Integer.MAX_VALUE);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public List<UCSBDate> between(LocalDateTime start, LocalDateTime end) {
+    ensureLoaded();
+    lock.readLock().lock();
+    try {
+      return copyOf(timeline.subSet(probe(start, Long.MIN_VALUE), true, probe(end, Long.MAX_VALUE), true),
+          Integer.MAX_VALUE);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public List<UCSBDate> upcoming(LocalDateTime from, int count) {
+    ensureLoaded();
+    lock.readLock().lock();
+    try {
+      return copyOf(timeline.tailSet(probe(from, Long.MIN_VALUE), true), count);
+    } finally {
+      lock.readLock().unlock();
+    }
+  }
+
+  public void put(UCSBDate ucsbDate) {
+    UCSBDate snapshot = copy(ucsbDate);
+    AfterCommit.run(() -> {
+      lock.writeLock().lock();
+      try {
+        if (loaded) {
+          removeLocked(snapshot.getId());
+          addLocked(snapshot);
+        }
+      } finally {
+        lock.writeLock().unlock();
+      }
+    });
+  }
+
+  public void remove(long id) {
+    AfterCommit.run(() -> {
+      lock.writeLock().lock();
+      try {
+        removeLocked(id);
+      } finally {
+        lock.writeLock().unlock();
+      }
+    });
+  }
+
+  public void reload() {
+    lock.writeLock().lock();
+    try {
+      byId.clear();
+      timeline.clear();
+      byQuarter.clear();
+      ucsbDateRepository.findAll().forEach(d -> addLocked(copy(d)));
+      loaded = true;
+      log.info("loaded {} UCSBDates into calendar index", byId.size());
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void ensureLoaded() {
+    lock.readLock().lock();
+    try {
+      if (loaded) {
+        return;
+      }
+    } finally {
+      lock.readLock().unlock();
+    }
+    lock.writeLock().lock();
+    try {
+      if (!loaded) {
+        reload();
+      }
+    } finally {
+      lock.writeLock().unlock();
+    }
+  }
+
+  private void addLocked(UCSBDate ucsbDate) {
+    byId.put(ucsbDate.getId(), ucsbDate);
+    timeline.add(ucsbDate);
+    byQuarter.computeIfAbsent(ucsbDate.getQuarterYYYYQ(), q -> new TreeSet<>(BY_TIME)).add(ucsbDate);
+  }
+
+  private void removeLocked(long id) {
+    UCSBDate old = byId.remove(id);
+    if (old == null) {
+      return;
+    }
+    timeline.remove(old);
+    NavigableSet<UCSBDate> quarter = byQuarter.get(old.getQuarterYYYYQ());
+    quarter.remove(old);
+    if (quarter.isEmpty()) {
+      byQuarter.remove(old.getQuarterYYYYQ());
+    }
+  }
+
+  private static List<UCSBDate> copyOf(NavigableSet<UCSBDate> dates, int limit) {
+    List<UCSBDate> result = new ArrayList<>();
+    Iterator<UCSBDate> it = dates.iterator();
+    while (it.hasNext() && result.size() < limit) {
+      result.add(copy(it.next()));
+    }
+    return result;
+  }
+
+  private static UCSBDate copy(UCSBDate d) {
+    return UCSBDate.builder()
+        .id(d.getId())
+        .quarterYYYYQ(d.getQuarterYYYYQ())
+        .name(d.getName())
+        .localDateTime(d.getLocalDateTime())
+        .build();
+  }
+
+  private static UCSBDate probe(LocalDateTime localDateTime, long id) {
+    return UCSBDate.builder().localDateTime(localDateTime).id(id).build();
+  }
+}
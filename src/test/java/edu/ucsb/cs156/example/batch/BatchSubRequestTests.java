@@ -0,0 +1,66 @@
+package edu.ucsb.cs156.example.batch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpSession;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+class BatchSubRequestTests {
+
+  @Test
+  void test_caller_state_is_copied_when_the_sub_request_is_built() {
+    MockHttpServletRequest batchRequest = batchRequest();
+    HttpSession session = batchRequest.getSession();
+
+    BatchSubRequest request = new BatchSubRequest(batchRequest, "/api/systemInfo?x=1", Map.of());
+
+    // the container reuses the batch request for someone else
+    batchRequest.setRemoteAddr("10.0.0.99");
+    batchRequest.setCookies(new Cookie("JSESSIONID", "someone-else"));
+    batchRequest.setSession(null);
+
+    assertEquals("10.0.0.1", request.getRemoteAddr());
+    assertEquals("abc", request.getCookies()[0].getValue());
+    assertSame(session, request.getSession(false));
+    assertEquals("http://localhost/api/systemInfo", request.getRequestURL().toString());
+    assertEquals("x=1", request.getQueryString());
+  }
+
+  @Test
+  void test_none_of_the_batch_headers_are_forwarded() {
+    BatchSubRequest request = new BatchSubRequest(batchRequest(), "/api/currentUser", Map.of());
+
+    assertNull(request.getHeader(HttpHeaders.ACCEPT));
+    assertNull(request.getHeader(HttpHeaders.IF_NONE_MATCH));
+    assertEquals(-1, request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE));
+    assertFalse(request.getHeaderNames().hasMoreElements());
+  }
+
+  @Test
+  void test_calls_that_are_not_copied_never_reach_the_batch_request() {
+    BatchSubRequest request = new BatchSubRequest(batchRequest(), "/api/currentUser", Map.of());
+
+    assertThrows(UnsupportedOperationException.class, () -> request.getPart("file"));
+    assertThrows(UnsupportedOperationException.class, () -> request.changeSessionId());
+  }
+
+  private static MockHttpServletRequest batchRequest() {
+    MockHttpServletRequest batchRequest = new MockHttpServletRequest("POST", "/api/batch");
+    batchRequest.setRemoteAddr("10.0.0.1");
+    batchRequest.setCookies(new Cookie("JSESSIONID", "abc"));
+    batchRequest.addHeader(HttpHeaders.ACCEPT, "application/cbor");
+    batchRequest.addHeader(HttpHeaders.IF_NONE_MATCH, "\"etag\"");
+    batchRequest.addHeader(HttpHeaders.IF_MODIFIED_SINCE, "Wed, 21 Oct 2015 07:28:00 GMT");
+    return batchRequest;
+  }
+}
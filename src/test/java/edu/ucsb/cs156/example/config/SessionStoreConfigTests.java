@@ -0,0 +1,99 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.serializer.DefaultSerializer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.session.MapSession;
+import org.springframework.session.MapSessionRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import edu.ucsb.cs156.example.config.ThrottledSessionRepository.ThrottledSession;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(SessionStoreConfig.Jdbc.class)
+@TestPropertySource(properties = {
+    "app.session.store=jdbc",
+    "app.session.lastAccessGranularitySeconds=60"
+})
+class SessionStoreConfigTests {
+
+  static final String LARGE = "x".repeat(4000);
+
+  @Autowired
+  ThrottledSessionRepository<?> sessionRepository;
+
+  @Autowired
+  JdbcTemplate jdbcTemplate;
+
+  @Test
+  void test_jdbc_sessions_round_trip_with_compressed_attributes() {
+    String id = saveNewSession(sessionRepository);
+
+    ThrottledSession<?> loaded = sessionRepository.findById(id);
+    assertEquals(LARGE, loaded.getAttribute("large"));
+    assertEquals("small", loaded.getAttribute("small"));
+    assertEquals(Duration.ofMinutes(30), loaded.getMaxInactiveInterval());
+
+    byte[] stored = jdbcTemplate.queryForObject(
+        "SELECT ATTRIBUTE_BYTES FROM SPRING_SESSION_ATTRIBUTES WHERE ATTRIBUTE_NAME = 'large'", byte[].class);
+    assertEquals(CompactSessionSerializer.DEFLATED, stored[0]);
+    assertTrue(stored.length < 200, "stored " + stored.length + " bytes");
+
+    sessionRepository.deleteById(id);
+    assertNull(sessionRepository.findById(id));
+  }
+
+  @Test
+  void test_last_access_is_only_written_once_per_granularity() {
+    MapSessionRepository delegate = new MapSessionRepository(new ConcurrentHashMap<>());
+    ThrottledSessionRepository<MapSession> repository = new ThrottledSessionRepository<>(delegate, Duration.ofSeconds(60));
+    ThrottledSession<MapSession> session = repository.createSession();
+    Instant start = session.getLastAccessedTime();
+    repository.save(session);
+
+    ThrottledSession<MapSession> touched = repository.findById(session.getId());
+    touched.setLastAccessedTime(start.plusSeconds(59));
+    assertEquals(start, touched.getLastAccessedTime());
+    touched.setLastAccessedTime(start.plusSeconds(60));
+    assertEquals(start.plusSeconds(60), touched.getLastAccessedTime());
+    repository.save(touched);
+
+    assertEquals(start.plusSeconds(60), delegate.findById(session.getId()).getLastAccessedTime());
+    assertEquals(delegate, repository.getDelegate());
+  }
+
+  @Test
+  void test_serializer_leaves_small_values_alone_and_reads_plain_java_serialization() throws Exception {
+    CompactSessionSerializer serializer = new CompactSessionSerializer(getClass().getClassLoader());
+    byte[] plain = new DefaultSerializer().serializeToByteArray("small");
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    serializer.serialize("small", out);
+    assertEquals(plain.length, out.size());
+    assertEquals("small", serializer.deserialize(new ByteArrayInputStream(plain)));
+  }
+
+  private static <S extends org.springframework.session.Session> String saveNewSession(
+      ThrottledSessionRepository<S> repository) {
+    ThrottledSession<S> session = repository.createSession();
+    session.setAttribute("large", LARGE);
+    session.setAttribute("small", "small");
+    repository.save(session);
+    return session.getId();
+  }
+}
@@ -0,0 +1,78 @@
+package edu.ucsb.cs156.example.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.Set;
+
+import javax.servlet.http.Cookie;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+
+import edu.ucsb.cs156.example.models.SignedToken;
+import edu.ucsb.cs156.example.services.SignedTokenService;
+
+class SignedTokenAuthenticationFilterTests {
+
+  SignedTokenService signedTokenService = mock(SignedTokenService.class);
+  SignedTokenAuthenticationFilter filter = new SignedTokenAuthenticationFilter(signedTokenService);
+
+  @AfterEach
+  void clearContext() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void test_a_valid_cookie_authenticates_the_request() throws Exception {
+    SignedToken token = new SignedToken(7L, "115856948234298493496", "cgaucho@ucsb.edu", Set.of("ROLE_USER"), 9999999999L);
+    when(signedTokenService.verify(eq("good"), any())).thenReturn(Optional.of(token));
+
+    MockHttpServletResponse response = filter(new Cookie(SignedTokenService.COOKIE_NAME, "good"));
+
+    OAuth2AuthenticationToken authentication = (OAuth2AuthenticationToken) SecurityContextHolder.getContext().getAuthentication();
+    assertEquals("115856948234298493496", authentication.getName());
+    assertEquals("cgaucho@ucsb.edu", authentication.getPrincipal().getAttribute("email"));
+    assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+  }
+
+  @Test
+  void test_a_cookie_that_does_not_verify_is_cleared() throws Exception {
+    when(signedTokenService.verify(eq("bad"), any())).thenReturn(Optional.empty());
+
+    MockHttpServletResponse response = filter(new Cookie(SignedTokenService.COOKIE_NAME, "bad"));
+
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+    String cleared = response.getHeader(HttpHeaders.SET_COOKIE);
+    assertTrue(cleared.startsWith(SignedTokenService.COOKIE_NAME + "=;"), cleared);
+    assertTrue(cleared.contains("Max-Age=0"), cleared);
+  }
+
+  @Test
+  void test_no_cookie_leaves_the_request_alone() throws Exception {
+    MockHttpServletResponse response = filter(new Cookie("OTHER", "x"));
+
+    assertNull(SecurityContextHolder.getContext().getAuthentication());
+    assertNull(response.getHeader(HttpHeaders.SET_COOKIE));
+  }
+
+  private MockHttpServletResponse filter(Cookie cookie) throws Exception {
+    MockHttpServletRequest request = new MockHttpServletRequest();
+    request.setCookies(cookie);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    filter.doFilter(request, response, new MockFilterChain());
+    return response;
+  }
+}
@@ -3,13 +3,25 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.entities.Articles;
 import edu.ucsb.cs156.example.repositories.ArticlesRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.List;
 import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -42,6 +54,12 @@ public class ArticlesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityChangeService entityChanges;
+
+        @MockBean
+        SparseFieldsetService sparseFieldsetService;
+
         // Tests for GET /api/articles/all
         
         @Test
@@ -336,4 +354,185 @@ public class ArticlesControllerTests extends ControllerTestCase {
                 assertEquals("Articles with id 67 not found", json.get("message"));
 
         }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_selected_fields_of_all_articles() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> expectedRows = List.of(
+                                Map.of("id", 1, "title", "a"),
+                                Map.of("id", 2, "title", "b"));
+
+                when(sparseFieldsetService.findAll(eq(Articles.class), eq(List.of("id", "title"))))
+                                .thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/all?fields=id,title"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(articlesRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(expectedRows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/articles/paged
+
+        @Test
+        public void logged_out_users_cannot_get_paged() throws Exception {
+                mockMvc.perform(get("/api/articles/paged"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_sorted_and_filtered_page() throws Exception {
+
+                // arrange
+
+                Articles article = Articles.builder()
+                                .title("Using testing-playground")
+                                .url("https://yt.be/x")
+                                .explanation("testing")
+                                .email("phtcon@ucsb.edu")
+                                .dateAdded(LocalDateTime.parse("2022-04-20T00:00:00"))
+                                .build();
+
+                PageRequest pageRequest = PageRequest.of(1, 5, Sort.by(Sort.Order.desc("dateAdded")));
+                Page<Articles> expectedPage = new PageImpl<>(List.of(article), pageRequest, 6);
+                when(articlesRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(expectedPage);
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/articles/paged?page=1&size=5&sort=-dateAdded&filter=email:ucsb.edu"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(articlesRepository, times(1)).findAll(any(Specification.class), eq(pageRequest));
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void paged_rejects_fields_that_are_not_whitelisted() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/articles/paged?sort=-explanation"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Cannot sort or filter on 'explanation'", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void paged_keeps_commas_inside_a_filter_value() throws Exception {
+
+                // arrange
+
+                PageRequest pageRequest = PageRequest.of(0, 10);
+                Page<Articles> expectedPage = new PageImpl<>(List.of(), pageRequest, 0);
+                when(articlesRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(expectedPage);
+
+                // act
+
+                mockMvc.perform(get("/api/articles/paged").param("filter", "title:good, cheap"))
+                                .andExpect(status().isOk());
+
+                // assert
+
+                verify(articlesRepository, times(1)).findAll(any(Specification.class), eq(pageRequest));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void paged_checks_every_repeated_filter() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/articles/paged")
+                                .param("filter", "title:good, cheap")
+                                .param("filter", "explanation:testing"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Cannot sort or filter on 'explanation'", json.get("message"));
+        }
+
+        // Tests for GET /api/articles/sync
+
+        @Test
+        public void logged_out_users_cannot_sync() throws Exception {
+                mockMvc.perform(get("/api/articles/sync"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_sync_from_a_version() throws Exception {
+                // arrange
+
+                SyncResponse changes = SyncResponse.builder()
+                                .upserts(List.of(new RawValue("{\"id\":1}")))
+                                .tombstones(List.of(7L))
+                                .version(12L)
+                                .build();
+                when(entityChanges.sync(Articles.class, 10L, 500)).thenReturn(changes);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/sync?since=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals("{\"upserts\":[{\"id\":1}],\"tombstones\":[7],\"version\":12,\"more\":false,\"reset\":false}",
+                                response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/articles/many
+
+        @Test
+        public void logged_out_users_cannot_get_many() throws Exception {
+                mockMvc.perform(get("/api/articles/many?ids=2,1,3,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_many_in_request_order_with_missing_ids() throws Exception {
+                // arrange
+
+                Articles first = Articles.builder().id(1L).build();
+                Articles second = Articles.builder().id(2L).build();
+                when(articlesRepository.findAllById(new LinkedHashSet<>(List.of(2L, 1L, 3L)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/many?ids=2,1,3,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(1)).findAllById(any());
+                String expectedJson = mapper.writeValueAsString(new ManyResponse<>(List.of(second, first), List.of(3L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_selected_fields_of_a_page() throws Exception {
+
+                // arrange
+                PageRequest pageRequest = PageRequest.of(1, 5, Sort.by(Sort.Order.desc("dateAdded")));
+                Page<Map<String, Object>> expectedPage = new PageImpl<>(List.of(Map.of("id", 6, "title", "Using testing-playground")), pageRequest, 6);
+                when(sparseFieldsetService.findPage(eq(Articles.class), eq(List.of("id", "title")), any(Specification.class), eq(pageRequest)))
+                                .thenReturn(expectedPage);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/articles/paged?page=1&size=5&sort=-dateAdded&filter=email:ucsb.edu&fields=id,title"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(articlesRepository, times(0)).findAll(any(Specification.class), eq(pageRequest));
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
 }
@@ -0,0 +1,154 @@
+package edu.ucsb.cs156.example.controllers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.batch.BatchService;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.models.SystemInfo;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.DiningCommonsMenuService;
+import edu.ucsb.cs156.example.services.DiningTreeService;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.ReferenceKeyService;
+import edu.ucsb.cs156.example.services.SystemInfoService;
+
+@WebMvcTest(controllers = { BatchController.class, SystemInfoController.class, RateLimitController.class,
+    UCSBDiningCommonsController.class })
+@Import(BatchService.class)
+public class BatchControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  SystemInfoService systemInfoService;
+
+  @MockBean
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @MockBean
+  EntityChangeService entityChanges;
+
+  @MockBean
+  ReferenceKeyService referenceKeys;
+
+  @MockBean
+  DiningCommonsMenuService diningCommonsMenus;
+
+  @MockBean
+  DiningTreeService diningTree;
+
+  @Autowired
+  BatchService batchService;
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void sub_requests_run_through_the_controllers_with_their_own_checks() throws Exception {
+    // arrange
+
+    SystemInfo systemInfo = SystemInfo.builder().showSwaggerUILink(true).build();
+    when(systemInfoService.getSystemInfo()).thenReturn(systemInfo);
+    UCSBDiningCommons dlg = UCSBDiningCommons.builder().code("de la guerra").name("De La Guerra").build();
+    when(ucsbDiningCommonsRepository.findById("de la guerra")).thenReturn(Optional.of(dlg));
+    when(ucsbDiningCommonsRepository.findById("munger-hall")).thenReturn(Optional.empty());
+
+    // act
+    MvcResult response = batch(List.of(
+        "/api/systemInfo",
+        "/api/ucsbdiningcommons?code=de%20la+guerra",
+        "/api/ucsbdiningcommons?code=munger-hall",
+        "/api/admin/ratelimits",
+        "/api/nothing-here"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+    String expectedJson = "["
+        + "{\"path\":\"/api/systemInfo\",\"status\":200,\"body\":" + mapper.writeValueAsString(systemInfo) + "},"
+        + "{\"path\":\"/api/ucsbdiningcommons?code=de%20la+guerra\",\"status\":200,\"body\":" + mapper.writeValueAsString(dlg) + "},"
+        + "{\"path\":\"/api/ucsbdiningcommons?code=munger-hall\",\"status\":404,\"body\":"
+        + "{\"message\":\"UCSBDiningCommons with id munger-hall not found\",\"type\":\"EntityNotFoundException\"}},"
+        + "{\"path\":\"/api/admin/ratelimits\",\"status\":403,\"body\":{\"message\":\"Access is denied\",\"type\":\"AccessDeniedException\"}},"
+        + "{\"path\":\"/api/nothing-here\",\"status\":404,\"body\":null}"
+        + "]";
+    assertEquals(mapper.readTree(expectedJson), mapper.readTree(response.getResponse().getContentAsString()));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void a_sub_request_that_misses_the_deadline_is_interrupted() throws Exception {
+    // arrange
+
+    CountDownLatch interrupted = new CountDownLatch(1);
+    when(systemInfoService.getSystemInfo()).thenAnswer(invocation -> {
+      try {
+        Thread.sleep(60_000);
+      } catch (InterruptedException e) {
+        interrupted.countDown();
+        throw e;
+      }
+      return SystemInfo.builder().build();
+    });
+    ReflectionTestUtils.setField(batchService, "timeoutMs", 200L);
+
+    // act
+    MvcResult response;
+    try {
+      response = batch(List.of("/api/systemInfo")).andExpect(status().isOk()).andReturn();
+    } finally {
+      ReflectionTestUtils.setField(batchService, "timeoutMs", 10000L);
+    }
+
+    // assert
+    String expectedJson = "[{\"path\":\"/api/systemInfo\",\"status\":504,"
+        + "\"body\":{\"type\":\"Timeout\",\"message\":\"No response within 200 ms\"}}]";
+    assertEquals(mapper.readTree(expectedJson), mapper.readTree(response.getResponse().getContentAsString()));
+    assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void batches_are_limited_to_a_few_get_requests_under_api() throws Exception {
+    assertBadRequest(List.of(), "A batch must contain between 1 and 20 requests");
+    assertBadRequest(Collections.nCopies(21, "/api/systemInfo"), "A batch must contain between 1 and 20 requests");
+    assertBadRequest(List.of("/api/batch"), "Cannot batch '/api/batch', expected a path under /api/");
+    assertBadRequest(List.of("/h2-console"), "Cannot batch '/h2-console', expected a path under /api/");
+    assertBadRequest(List.of("/api/../h2-console"), "Cannot batch '/api/../h2-console', expected a path under /api/");
+  }
+
+  private void assertBadRequest(List<String> paths, String message) throws Exception {
+    MvcResult response = batch(paths).andExpect(status().isBadRequest()).andReturn();
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(message, json.get("message"));
+  }
+
+  private org.springframework.test.web.servlet.ResultActions batch(List<String> paths) throws Exception {
+    return mockMvc.perform(post("/api/batch")
+        .contentType(MediaType.APPLICATION_JSON)
+        .content(mapper.writeValueAsString(paths))
+        .with(csrf()));
+  }
+}
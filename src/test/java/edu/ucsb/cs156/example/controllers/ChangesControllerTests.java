@@ -0,0 +1,86 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.entities.EntityChange;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.ChangeFeed;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@WebMvcTest(controllers = ChangesController.class)
+public class ChangesControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @MockBean
+  EntityChangeService entityChangeService;
+
+  @Test
+  public void changes__logged_out() throws Exception {
+    mockMvc.perform(get("/api/changes"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void changes__payload_is_inlined_and_next_is_returned() throws Exception {
+
+    // arrange
+
+    EntityChange change = EntityChange.builder()
+        .seq(8L)
+        .entityType("UCSBOrganization")
+        .entityId("ZPR")
+        .operation(EntityChange.CREATE)
+        .changedAt(LocalDateTime.parse("2022-04-20T17:35:00"))
+        .payload("{\"orgCode\":\"ZPR\"}")
+        .build();
+    when(entityChangeService.feed(7L, 100)).thenReturn(new ChangeFeed(List.of(change), 8L));
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/changes?since=7"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    assertEquals("{\"changes\":[{\"seq\":8,\"entityType\":\"UCSBOrganization\",\"entityId\":\"ZPR\","
+        + "\"operation\":\"CREATE\",\"changedAt\":\"2022-04-20T17:35:00\",\"payload\":{\"orgCode\":\"ZPR\"}}],\"next\":8}",
+        response.getResponse().getContentAsString());
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void changes__bad_limit_is_a_400() throws Exception {
+
+    // arrange
+
+    when(entityChangeService.feed(0L, 5000)).thenThrow(new BadRequestException("limit must be between 1 and 1000"));
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/changes?limit=5000"))
+        .andExpect(status().isBadRequest()).andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals("limit must be between 1 and 1000", json.get("message"));
+  }
+}
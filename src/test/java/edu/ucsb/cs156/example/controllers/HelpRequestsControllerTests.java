@@ -1,15 +1,31 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.entities.HelpRequest;
 import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.List;
 import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -26,6 +42,7 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
@@ -42,6 +59,12 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityChangeService entityChanges;
+
+        @MockBean
+        SparseFieldsetService sparseFieldsetService;
+
         // Tests for GET /api/HelpRequest/all
         
         @Test
@@ -142,6 +165,7 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(helpRequestRepository, times(1)).save(hr1);
+                verify(entityChanges, times(1)).created(hr1);
                 String expectedJson = mapper.writeValueAsString(hr1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -234,6 +258,7 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
                 // assert
                 verify(helpRequestRepository, times(1)).findById(15L);
                 verify(helpRequestRepository, times(1)).delete(any());
+                verify(entityChanges, times(1)).deleted(hr1);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("HelpRequest with id 15 deleted", json.get("message"));
@@ -344,4 +369,342 @@ public class HelpRequestsControllerTests extends ControllerTestCase {
                 assertEquals("HelpRequest with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for PATCH /api/HelpRequest?id=...
+
+        @Test
+        public void logged_out_users_cannot_patch() throws Exception {
+                mockMvc.perform(patch("/api/HelpRequest?id=67"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_regular_users_cannot_patch() throws Exception {
+                mockMvc.perform(
+                                patch("/api/HelpRequest?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"solved\":true}")
+                                                .with(csrf()))
+                                .andExpect(status().is(403)); // only admins can patch
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_can_patch_only_the_solved_field_of_a_helprequest() throws Exception {
+                // arrange
+
+                LocalDateTime ldt1 = LocalDateTime.parse("2022-01-03T00:00:00");
+
+                HelpRequest hrOrig = HelpRequest.builder()
+                                .id(67L)
+                                .requesterEmail("achiang@ucsb.edu")
+                                .teamId("Test1")
+                                .tableOrBreakoutRoom("foo1")
+                                .requestTime(ldt1)
+                                .explanation("testing1")
+                                .solved(false)
+                                .build();
+
+                HelpRequest hrPatched = HelpRequest.builder()
+                                .id(67L)
+                                .requesterEmail("achiang@ucsb.edu")
+                                .teamId("Test1")
+                                .tableOrBreakoutRoom("foo1")
+                                .requestTime(ldt1)
+                                .explanation("testing1")
+                                .solved(true)
+                                .build();
+
+                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(hrOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/HelpRequest?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .characterEncoding("utf-8")
+                                                .content("{\"solved\":true,\"id\":99}")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findById(67L);
+                verify(helpRequestRepository, times(1)).save(hrPatched);
+                verify(entityChanges, times(1)).updated(hrPatched);
+                String expectedJson = mapper.writeValueAsString(hrPatched);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_patch_helprequest_that_does_not_exist() throws Exception {
+                // arrange
+
+                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/HelpRequest?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"solved\":true}")
+                                                .with(csrf()))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findById(67L);
+                verify(helpRequestRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("HelpRequest with id 67 not found", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_bad_request_when_patch_is_not_an_object() throws Exception {
+                // arrange
+
+                HelpRequest hrOrig = HelpRequest.builder()
+                                .id(67L)
+                                .solved(false)
+                                .build();
+
+                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(hrOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/HelpRequest?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .content("[true]")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+                assertEquals("Merge patch must be a JSON object", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_gets_bad_request_when_patch_has_wrong_types() throws Exception {
+                // arrange
+
+                HelpRequest hrOrig = HelpRequest.builder()
+                                .id(67L)
+                                .solved(false)
+                                .build();
+
+                when(helpRequestRepository.findById(eq(67L))).thenReturn(Optional.of(hrOrig));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                patch("/api/HelpRequest?id=67")
+                                                .contentType("application/merge-patch+json")
+                                                .content("{\"requestTime\":\"not a date\"}")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(0)).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("BadRequestException", json.get("type"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_selected_fields_of_all_helprequests() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> expectedRows = List.of(
+                                Map.of("id", 1, "solved", false),
+                                Map.of("id", 2, "solved", true));
+
+                when(sparseFieldsetService.findAll(eq(HelpRequest.class), eq(List.of("id", "solved"))))
+                                .thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/HelpRequest/all?fields=id,solved"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(expectedRows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/HelpRequest/paged
+
+        @Test
+        public void logged_out_users_cannot_get_paged() throws Exception {
+                mockMvc.perform(get("/api/HelpRequest/paged"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_sorted_and_filtered_page() throws Exception {
+
+                // arrange
+
+                HelpRequest helpRequest = HelpRequest.builder()
+                                .requesterEmail("cgaucho@ucsb.edu")
+                                .teamId("s22-5pm-3")
+                                .tableOrBreakoutRoom("7")
+                                .requestTime(LocalDateTime.parse("2022-04-20T17:35:00"))
+                                .explanation("Need help with Swagger-ui")
+                                .solved(false)
+                                .build();
+
+                PageRequest pageRequest = PageRequest.of(1, 5, Sort.by(Sort.Order.desc("requestTime")));
+                Page<HelpRequest> expectedPage = new PageImpl<>(List.of(helpRequest), pageRequest, 6);
+                when(helpRequestRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(expectedPage);
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/HelpRequest/paged?page=1&size=5&sort=-requestTime&filter=solved:false"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(helpRequestRepository, times(1)).findAll(any(Specification.class), eq(pageRequest));
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void paged_rejects_fields_that_are_not_whitelisted() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/HelpRequest/paged?sort=-explanation"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Cannot sort or filter on 'explanation'", json.get("message"));
+        }
+
+        // Tests for GET /api/HelpRequest/sync
+
+        @Test
+        public void logged_out_users_cannot_sync() throws Exception {
+                mockMvc.perform(get("/api/HelpRequest/sync"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_sync_from_a_version() throws Exception {
+                // arrange
+
+                SyncResponse changes = SyncResponse.builder()
+                                .upserts(List.of(new RawValue("{\"id\":1}")))
+                                .tombstones(List.of(7L))
+                                .version(12L)
+                                .build();
+                when(entityChanges.sync(HelpRequest.class, 10L, 500)).thenReturn(changes);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/HelpRequest/sync?since=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals("{\"upserts\":[{\"id\":1}],\"tombstones\":[7],\"version\":12,\"more\":false,\"reset\":false}",
+                                response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/HelpRequest/many
+
+        @Test
+        public void logged_out_users_cannot_get_many() throws Exception {
+                mockMvc.perform(get("/api/HelpRequest/many?ids=2,1,3,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_many_in_request_order_with_missing_ids() throws Exception {
+                // arrange
+
+                HelpRequest first = HelpRequest.builder().id(1L).build();
+                HelpRequest second = HelpRequest.builder().id(2L).build();
+                when(helpRequestRepository.findAllById(new LinkedHashSet<>(List.of(2L, 1L, 3L)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/HelpRequest/many?ids=2,1,3,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(1)).findAllById(any());
+                String expectedJson = mapper.writeValueAsString(new ManyResponse<>(List.of(second, first), List.of(3L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        // Tests for CBOR responses (Accept: application/cbor)
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_all_helprequests_as_cbor() throws Exception {
+                // arrange
+
+                HelpRequest hr1 = HelpRequest.builder()
+                                .id(1L)
+                                .requesterEmail("achiang@ucsb.edu")
+                                .teamId("Test1")
+                                .tableOrBreakoutRoom("foo1")
+                                .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .explanation("testing 1")
+                                .solved(false)
+                                .build();
+                when(helpRequestRepository.findAll()).thenReturn(List.of(hr1));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/HelpRequest/all").accept(MediaType.APPLICATION_CBOR))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                                .andReturn();
+
+                // assert
+                JsonNode cbor = new ObjectMapper(new CBORFactory()).readTree(response.getResponse().getContentAsByteArray());
+                assertEquals(mapper.writeValueAsString(List.of(hr1)), mapper.writeValueAsString(cbor));
+                assertTrue(cbor.get(0).get("id").isIntegralNumber());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void json_stays_the_default_for_clients_that_accept_anything() throws Exception {
+                // arrange
+
+                when(helpRequestRepository.findAll()).thenReturn(List.of());
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/HelpRequest/all").accept(MediaType.ALL))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                                .andReturn();
+
+                // assert
+                assertEquals("[]", response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_selected_fields_of_a_page() throws Exception {
+
+                // arrange
+                PageRequest pageRequest = PageRequest.of(1, 5, Sort.by(Sort.Order.desc("requestTime")));
+                Page<Map<String, Object>> expectedPage = new PageImpl<>(List.of(Map.of("id", 6, "solved", false)), pageRequest, 6);
+                when(sparseFieldsetService.findPage(eq(HelpRequest.class), eq(List.of("id", "solved")), any(Specification.class), eq(pageRequest)))
+                                .thenReturn(expectedPage);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/HelpRequest/paged?page=1&size=5&sort=-requestTime&filter=solved:false&fields=id,solved"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(helpRequestRepository, times(0)).findAll(any(Specification.class), eq(pageRequest));
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
 }
@@ -1,21 +1,40 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.services.ReferenceKeyService;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.MenuItemReviewWriteBehindService;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
 import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.errors.WriteQueueFullException;
 import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.Map;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.web.util.NestedServletException;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -26,8 +45,11 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -42,6 +64,18 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        ReferenceKeyService referenceKeys;
+
+        @MockBean
+        EntityChangeService entityChanges;
+
+        @MockBean
+        MenuItemReviewWriteBehindService menuItemReviewWriteBehind;
+
+        @MockBean
+        SparseFieldsetService sparseFieldsetService;
+
         // Tests for GET /api/menuitemreview/all
         
         @Test
@@ -139,11 +173,139 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(menuItemReviewRepository, times(1)).save(menuItemReview1);
+                verify(entityChanges, times(1)).created(menuItemReview1);
                 String expectedJson = mapper.writeValueAsString(menuItemReview1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
         }
 
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void with_write_behind_and_sync_ack_post_waits_for_the_batch_and_returns_the_saved_review() throws Exception {
+                // arrange
+
+                MenuItemReview queued = review(0L);
+                MenuItemReview saved = review(17L);
+
+                when(menuItemReviewWriteBehind.isEnabled()).thenReturn(true);
+                when(menuItemReviewWriteBehind.isSyncAck()).thenReturn(true);
+                when(menuItemReviewWriteBehind.submit(eq(queued))).thenReturn(CompletableFuture.completedFuture(saved));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreview/post?itemId=1&reviewerEmail=test@gmail.com&stars=5&dateReviewed=2022-01-03T00:00:00&comments=This is a test")
+                                                .with(csrf()))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).save(any());
+                assertEquals(mapper.writeValueAsString(saved), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void with_write_behind_and_no_sync_ack_post_returns_202_right_away() throws Exception {
+                // arrange
+
+                MenuItemReview queued = review(0L);
+
+                when(menuItemReviewWriteBehind.isEnabled()).thenReturn(true);
+                when(menuItemReviewWriteBehind.isSyncAck()).thenReturn(false);
+                when(menuItemReviewWriteBehind.submit(eq(queued))).thenReturn(new CompletableFuture<>());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreview/post?itemId=1&reviewerEmail=test@gmail.com&stars=5&dateReviewed=2022-01-03T00:00:00&comments=This is a test")
+                                                .with(csrf()))
+                                .andExpect(status().isAccepted()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(queued), response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void with_write_behind_a_failed_save_and_a_full_queue_are_reported() throws Exception {
+                // arrange
+
+                when(menuItemReviewWriteBehind.isEnabled()).thenReturn(true);
+                when(menuItemReviewWriteBehind.isSyncAck()).thenReturn(true);
+                when(menuItemReviewWriteBehind.submit(any()))
+                                .thenReturn(CompletableFuture.failedFuture(new BadRequestException("bad review")))
+                                .thenThrow(new WriteQueueFullException(MenuItemReview.class));
+
+                // act
+                MvcResult failed = mockMvc.perform(
+                                post("/api/menuitemreview/post?itemId=1&reviewerEmail=test@gmail.com&stars=5&dateReviewed=2022-01-03T00:00:00&comments=This is a test")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+                MvcResult full = mockMvc.perform(
+                                post("/api/menuitemreview/post?itemId=1&reviewerEmail=test@gmail.com&stars=5&dateReviewed=2022-01-03T00:00:00&comments=This is a test")
+                                                .with(csrf()))
+                                .andExpect(status().isServiceUnavailable()).andReturn();
+
+                // assert
+                assertEquals("bad review", responseToJson(failed).get("message"));
+                assertEquals(Map.of(
+                                "type", "WriteQueueFullException",
+                                "message", "Too many pending MenuItemReview writes, try again shortly"),
+                                responseToJson(full));
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void with_write_behind_a_checked_failure_is_wrapped_not_cast() throws Exception {
+                // arrange
+
+                Exception checked = new IOException("disk full");
+                when(menuItemReviewWriteBehind.isEnabled()).thenReturn(true);
+                when(menuItemReviewWriteBehind.isSyncAck()).thenReturn(true);
+                when(menuItemReviewWriteBehind.submit(any())).thenReturn(CompletableFuture.failedFuture(checked));
+
+                // act
+                NestedServletException e = assertThrows(NestedServletException.class, () -> mockMvc.perform(
+                                post("/api/menuitemreview/post?itemId=1&reviewerEmail=test@gmail.com&stars=5&dateReviewed=2022-01-03T00:00:00&comments=This is a test")
+                                                .with(csrf())));
+
+                // assert
+                assertEquals(IllegalStateException.class, e.getCause().getClass());
+                assertEquals(checked, e.getCause().getCause());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void with_write_behind_a_save_that_is_not_confirmed_in_time_is_503() throws Exception {
+                // arrange
+
+                when(menuItemReviewWriteBehind.isEnabled()).thenReturn(true);
+                when(menuItemReviewWriteBehind.isSyncAck()).thenReturn(true);
+                when(menuItemReviewWriteBehind.getAckTimeoutMs()).thenReturn(10L);
+                when(menuItemReviewWriteBehind.submit(any())).thenReturn(new CompletableFuture<>());
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreview/post?itemId=1&reviewerEmail=test@gmail.com&stars=5&dateReviewed=2022-01-03T00:00:00&comments=This is a test")
+                                                .with(csrf()))
+                                .andExpect(status().isServiceUnavailable()).andReturn();
+
+                // assert
+                assertEquals(Map.of(
+                                "type", "WriteTimeoutException",
+                                "message", "MenuItemReview write was not confirmed within 10 ms; it may still be saved"),
+                                responseToJson(response));
+        }
+
+        private static MenuItemReview review(long id) {
+                return MenuItemReview.builder()
+                                .id(id)
+                                .itemId(1L)
+                                .reviewerEmail("test@gmail.com")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+                                .comments("This is a test")
+                                .build();
+        }
+
         // Tests for GET /api/menuitemreview?id=... 
 
         @Test
@@ -334,6 +496,172 @@ public class MenuItemReviewControllerTests extends ControllerTestCase {
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("MenuItemReview with id 1 not found", json.get("message"));
         }
-}
 
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_selected_fields_of_all_menu_item_reviews() throws Exception {
+
+                // arrange
+                List<Map<String, Object>> expectedRows = List.of(
+                                Map.of("id", 1, "stars", 5),
+                                Map.of("id", 2, "stars", 3));
 
+                when(sparseFieldsetService.findAll(eq(MenuItemReview.class), eq(List.of("id", "stars"))))
+                                .thenReturn(expectedRows);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/all?fields=id,stars"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(expectedRows);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        // Tests for GET /api/menuitemreview/paged
+
+        @Test
+        public void logged_out_users_cannot_get_paged() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/paged"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_sorted_and_filtered_page() throws Exception {
+
+                // arrange
+
+                MenuItemReview review = MenuItemReview.builder()
+                                .itemId(27L)
+                                .reviewerEmail("cgaucho@ucsb.edu")
+                                .stars(5)
+                                .dateReviewed(LocalDateTime.parse("2022-04-20T12:00:00"))
+                                .comments("bueno")
+                                .build();
+
+                PageRequest pageRequest = PageRequest.of(1, 5, Sort.by(Sort.Order.desc("dateReviewed")));
+                Page<MenuItemReview> expectedPage = new PageImpl<>(List.of(review), pageRequest, 6);
+                when(menuItemReviewRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(expectedPage);
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/paged?page=1&size=5&sort=-dateReviewed&filter=stars>=4"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(menuItemReviewRepository, times(1)).findAll(any(Specification.class), eq(pageRequest));
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void paged_rejects_fields_that_are_not_whitelisted() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/paged?sort=-comments"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Cannot sort or filter on 'comments'", json.get("message"));
+        }
+
+        // Tests for GET /api/menuitemreview/sync
+
+        @Test
+        public void logged_out_users_cannot_sync() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/sync"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_sync_from_a_version() throws Exception {
+                // arrange
+
+                SyncResponse changes = SyncResponse.builder()
+                                .upserts(List.of(new RawValue("{\"id\":1}")))
+                                .tombstones(List.of(7L))
+                                .version(12L)
+                                .build();
+                when(entityChanges.sync(MenuItemReview.class, 10L, 500)).thenReturn(changes);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/sync?since=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals("{\"upserts\":[{\"id\":1}],\"tombstones\":[7],\"version\":12,\"more\":false,\"reset\":false}",
+                                response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "ADMIN", "USER" })
+        @Test
+        public void admin_cannot_review_an_unknown_menu_item() throws Exception {
+                // arrange
+                doThrow(new BadRequestException("Unknown menu item id 99"))
+                                .when(referenceKeys).checkMenuItemId(99L);
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                post("/api/menuitemreview/post?itemId=99&reviewerEmail=test@gmail.com&stars=5&dateReviewed=2022-01-03T00:00:00&comments=orphan")
+                                                .with(csrf()))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, never()).save(any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Unknown menu item id 99", json.get("message"));
+        }
+
+        // Tests for GET /api/menuitemreview/many
+
+        @Test
+        public void logged_out_users_cannot_get_many() throws Exception {
+                mockMvc.perform(get("/api/menuitemreview/many?ids=2,1,3,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_many_in_request_order_with_missing_ids() throws Exception {
+                // arrange
+
+                MenuItemReview first = MenuItemReview.builder().id(1L).build();
+                MenuItemReview second = MenuItemReview.builder().id(2L).build();
+                when(menuItemReviewRepository.findAllById(new LinkedHashSet<>(List.of(2L, 1L, 3L)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/many?ids=2,1,3,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(1)).findAllById(any());
+                String expectedJson = mapper.writeValueAsString(new ManyResponse<>(List.of(second, first), List.of(3L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_selected_fields_of_a_page() throws Exception {
+
+                // arrange
+                PageRequest pageRequest = PageRequest.of(1, 5, Sort.by(Sort.Order.desc("dateReviewed")));
+                Page<Map<String, Object>> expectedPage = new PageImpl<>(List.of(Map.of("id", 6, "stars", 5)), pageRequest, 6);
+                when(sparseFieldsetService.findPage(eq(MenuItemReview.class), eq(List.of("id", "stars")), any(Specification.class), eq(pageRequest)))
+                                .thenReturn(expectedPage);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/menuitemreview/paged?page=1&size=5&sort=-dateReviewed&filter=stars>=4&fields=id,stars"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(menuItemReviewRepository, times(0)).findAll(any(Specification.class), eq(pageRequest));
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+}
@@ -0,0 +1,60 @@
+package edu.ucsb.cs156.example.controllers;
+
+import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.ratelimit.RateLimiter;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MvcResult;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.util.Map;
+
+@WebMvcTest(controllers = RateLimitController.class)
+public class RateLimitControllerTests extends ControllerTestCase {
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Autowired
+  RateLimiter rateLimiter;
+
+  @Test
+  public void ratelimits__logged_out() throws Exception {
+    mockMvc.perform(get("/api/admin/ratelimits"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void ratelimits__user_logged_in() throws Exception {
+    mockMvc.perform(get("/api/admin/ratelimits"))
+        .andExpect(status().is(403));
+  }
+
+  @WithMockUser(roles = { "ADMIN", "USER" })
+  @Test
+  public void ratelimits__admin_logged_in() throws Exception {
+
+    // arrange
+
+    rateLimiter.tryAcquire("helprequest", "cgaucho");
+
+    // act
+
+    MvcResult response = mockMvc.perform(get("/api/admin/ratelimits"))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    Map<String, Object> json = responseToJson(response);
+    assertEquals(Map.of("helprequest.admitted", 1), json);
+  }
+}
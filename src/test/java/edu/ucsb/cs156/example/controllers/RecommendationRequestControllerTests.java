@@ -3,15 +3,31 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.services.SparseFieldsetService;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.RecommendationRequestStatsService;
+import edu.ucsb.cs156.example.services.RecommendationRequestReminderService;
 import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.models.RecommendationRequestCount;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
@@ -29,6 +45,7 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
@@ -44,6 +61,18 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
     @MockBean
     UserRepository userRepository;
 
+    @MockBean
+    SparseFieldsetService sparseFieldsetService;
+
+    @MockBean
+    EntityChangeService entityChanges;
+
+    @MockBean
+    RecommendationRequestStatsService recommendationRequestStatsService;
+
+    @MockBean
+    RecommendationRequestReminderService recommendationRequestReminderService;
+
     // Tests for GET /api/recommendationrequests/all
         
     @Test
@@ -207,6 +236,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
                 // assert
                 verify(recommendationRequestRepository, times(1)).findById(1L);
                 verify(recommendationRequestRepository, times(1)).save(RecRequest2); 
+                verify(recommendationRequestReminderService, times(1)).updated(needed1, false, RecRequest2);
+                verify(recommendationRequestStatsService, times(1)).invalidate();
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -278,6 +309,8 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
                 // assert
                 verify(recommendationRequestRepository, times(1)).findById(1L);
                 verify(recommendationRequestRepository, times(1)).delete(any());
+                verify(recommendationRequestReminderService, times(1)).untrack(1L);
+                verify(recommendationRequestStatsService, times(1)).invalidate();
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("RecommendationRequest with id 1 deleted", json.get("message"));
@@ -345,8 +378,355 @@ public class RecommendationRequestControllerTests extends ControllerTestCase{
 
             // assert
             verify(recommendationRequestRepository, times(1)).save(RecRequest1);
+            verify(recommendationRequestReminderService, times(1)).track(RecRequest1);
+            verify(recommendationRequestStatsService, times(1)).invalidate();
             String expectedJson = mapper.writeValueAsString(RecRequest1);
             String responseString = response.getResponse().getContentAsString();
             assertEquals(expectedJson, responseString);
     }
-}
\ No newline at end of file
+
+    // Tests for PATCH /api/recommendationrequests?id=...
+
+    @Test
+    public void logged_out_users_cannot_patch() throws Exception {
+            mockMvc.perform(patch("/api/recommendationrequests?id=67"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_regular_users_cannot_patch() throws Exception {
+            mockMvc.perform(
+                            patch("/api/recommendationrequests?id=67")
+                                            .contentType("application/merge-patch+json")
+                                            .content("{\"done\":true}")
+                                            .with(csrf()))
+                            .andExpect(status().is(403)); // only admins can patch
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_can_patch_only_the_done_field_of_a_request() throws Exception {
+            // arrange
+
+            LocalDateTime requested1 = LocalDateTime.parse("2022-01-03T00:00:00");
+            LocalDateTime needed1 = LocalDateTime.parse("2022-02-03T00:00:00");
+
+            RecommendationRequest orig = RecommendationRequest.builder()
+                            .id(67L)
+                            .requesterEmail("test@gmail.com")
+                            .professorEmail("prof@gmail.com")
+                            .explanation("na")
+                            .dateRequested(requested1)
+                            .dateNeeded(needed1)
+                            .done(false)
+                            .build();
+
+            RecommendationRequest patched = RecommendationRequest.builder()
+                            .id(67L)
+                            .requesterEmail("test@gmail.com")
+                            .professorEmail("prof@gmail.com")
+                            .explanation("na")
+                            .dateRequested(requested1)
+                            .dateNeeded(needed1)
+                            .done(true)
+                            .build();
+
+            when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.of(orig));
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/recommendationrequests?id=67")
+                                            .contentType("application/merge-patch+json")
+                                            .characterEncoding("utf-8")
+                                            .content("{\"done\":true}")
+                                            .with(csrf()))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(recommendationRequestRepository, times(1)).findById(67L);
+            verify(recommendationRequestRepository, times(1)).save(patched);
+            verify(recommendationRequestReminderService, times(1)).updated(needed1, false, patched);
+            verify(recommendationRequestStatsService, times(1)).invalidate();
+            String expectedJson = mapper.writeValueAsString(patched);
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "ADMIN", "USER" })
+    @Test
+    public void admin_cannot_patch_request_that_does_not_exist() throws Exception {
+            // arrange
+
+            when(recommendationRequestRepository.findById(eq(67L))).thenReturn(Optional.empty());
+
+            // act
+            MvcResult response = mockMvc.perform(
+                            patch("/api/recommendationrequests?id=67")
+                                            .contentType("application/merge-patch+json")
+                                            .content("{\"done\":true}")
+                                            .with(csrf()))
+                            .andExpect(status().isNotFound()).andReturn();
+
+            // assert
+            verify(recommendationRequestRepository, times(1)).findById(67L);
+            verify(recommendationRequestRepository, times(0)).save(any());
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("RecommendationRequest with id 67 not found", json.get("message"));
+    }
+
+    // Tests for GET /api/recommendationrequests/overdue
+
+    @Test
+    public void logged_out_users_cannot_get_overdue() throws Exception {
+            mockMvc.perform(get("/api/recommendationrequests/overdue"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_requests_overdue_as_of_a_time() throws Exception {
+            // arrange
+
+            LocalDateTime asOf = LocalDateTime.parse("2022-03-01T00:00:00");
+
+            RecommendationRequest overdue = RecommendationRequest.builder()
+                            .id(1L)
+                            .requesterEmail("test@gmail.com")
+                            .professorEmail("prof@gmail.com")
+                            .explanation("na")
+                            .dateRequested(LocalDateTime.parse("2022-01-03T00:00:00"))
+                            .dateNeeded(LocalDateTime.parse("2022-02-03T00:00:00"))
+                            .done(false)
+                            .build();
+
+            when(recommendationRequestRepository.findAllByDoneFalseAndDateNeededBefore(eq(asOf)))
+                            .thenReturn(List.of(overdue));
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/recommendationrequests/overdue?asOf=2022-03-01T00:00:00"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(recommendationRequestRepository, times(0)).findAll();
+            String expectedJson = mapper.writeValueAsString(List.of(overdue));
+            assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void overdue_defaults_to_now() throws Exception {
+            // arrange
+
+            LocalDateTime before = LocalDateTime.now();
+            when(recommendationRequestRepository.findAllByDoneFalseAndDateNeededBefore(any()))
+                            .thenReturn(List.of());
+
+            // act
+            mockMvc.perform(get("/api/recommendationrequests/overdue"))
+                            .andExpect(status().isOk());
+
+            // assert
+            ArgumentCaptor<LocalDateTime> asOfCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
+            verify(recommendationRequestRepository, times(1)).findAllByDoneFalseAndDateNeededBefore(asOfCaptor.capture());
+            assertFalse(asOfCaptor.getValue().isBefore(before));
+    }
+
+    // Tests for GET /api/recommendationrequests/counts/...
+
+    @Test
+    public void logged_out_users_cannot_get_counts() throws Exception {
+            mockMvc.perform(get("/api/recommendationrequests/counts/professors"))
+                            .andExpect(status().is(403));
+            mockMvc.perform(get("/api/recommendationrequests/counts/requesters"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_counts_for_one_professor() throws Exception {
+            // arrange
+
+            List<RecommendationRequestCount> counts = List.of(
+                            new RecommendationRequestCount("prof@ucsb.edu", false, 3L),
+                            new RecommendationRequestCount("prof@ucsb.edu", true, 7L));
+
+            when(recommendationRequestStatsService.countsByProfessor(eq("prof@ucsb.edu"))).thenReturn(counts);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/recommendationrequests/counts/professors?professorEmail=prof@ucsb.edu"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(recommendationRequestRepository, times(0)).findAll();
+            String expectedJson = mapper.writeValueAsString(counts);
+            assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_counts_for_all_requesters() throws Exception {
+            // arrange
+
+            List<RecommendationRequestCount> counts = List.of(
+                            new RecommendationRequestCount("a@ucsb.edu", false, 1L),
+                            new RecommendationRequestCount("b@ucsb.edu", true, 2L));
+
+            when(recommendationRequestStatsService.countsByRequester(null)).thenReturn(counts);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/recommendationrequests/counts/requesters"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            String expectedJson = mapper.writeValueAsString(counts);
+            assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    // Tests for GET /api/recommendationrequests/paged
+
+    @Test
+    public void logged_out_users_cannot_get_paged() throws Exception {
+            mockMvc.perform(get("/api/recommendationrequests/paged"))
+                            .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_a_sorted_and_filtered_page() throws Exception {
+
+            // arrange
+
+            RecommendationRequest request = RecommendationRequest.builder()
+                            .requesterEmail("cgaucho@ucsb.edu")
+                            .professorEmail("phtcon@ucsb.edu")
+                            .explanation("BS/MS program")
+                            .dateRequested(LocalDateTime.parse("2022-04-20T00:00:00"))
+                            .dateNeeded(LocalDateTime.parse("2022-05-01T00:00:00"))
+                            .done(false)
+                            .build();
+
+            PageRequest pageRequest = PageRequest.of(1, 5, Sort.by(Sort.Order.asc("dateNeeded")));
+            Page<RecommendationRequest> expectedPage = new PageImpl<>(List.of(request), pageRequest, 6);
+            when(recommendationRequestRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(expectedPage);
+
+            // act
+
+            MvcResult response = mockMvc.perform(get("/api/recommendationrequests/paged?page=1&size=5&sort=dateNeeded&filter=done:false"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+
+            verify(recommendationRequestRepository, times(1)).findAll(any(Specification.class), eq(pageRequest));
+            String expectedJson = mapper.writeValueAsString(expectedPage);
+            String responseString = response.getResponse().getContentAsString();
+            assertEquals(expectedJson, responseString);
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void paged_rejects_fields_that_are_not_whitelisted() throws Exception {
+            MvcResult response = mockMvc.perform(get("/api/recommendationrequests/paged?sort=-explanation"))
+                            .andExpect(status().isBadRequest()).andReturn();
+
+            Map<String, Object> json = responseToJson(response);
+            assertEquals("Cannot sort or filter on 'explanation'", json.get("message"));
+    }
+
+    // Tests for GET /api/recommendationrequests/sync
+
+    @Test
+    public void logged_out_users_cannot_sync() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequests/sync"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_sync_from_a_version() throws Exception {
+        // arrange
+
+        SyncResponse changes = SyncResponse.builder()
+                .upserts(List.of(new RawValue("{\"id\":1}")))
+                .tombstones(List.of(7L))
+                .version(12L)
+                .build();
+        when(entityChanges.sync(RecommendationRequest.class, 10L, 500)).thenReturn(changes);
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequests/sync?since=10"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        assertEquals("{\"upserts\":[{\"id\":1}],\"tombstones\":[7],\"version\":12,\"more\":false,\"reset\":false}",
+                response.getResponse().getContentAsString());
+    }
+
+    // Tests for GET /api/recommendationrequests/many
+
+    @Test
+    public void logged_out_users_cannot_get_many() throws Exception {
+        mockMvc.perform(get("/api/recommendationrequests/many?ids=2,1,3,2"))
+                .andExpect(status().is(403));
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_gets_many_in_request_order_with_missing_ids() throws Exception {
+        // arrange
+
+        RecommendationRequest first = RecommendationRequest.builder().id(1L).build();
+        RecommendationRequest second = RecommendationRequest.builder().id(2L).build();
+        when(recommendationRequestRepository.findAllById(new LinkedHashSet<>(List.of(2L, 1L, 3L)))).thenReturn(List.of(first, second));
+
+        // act
+        MvcResult response = mockMvc.perform(get("/api/recommendationrequests/many?ids=2,1,3,2"))
+                .andExpect(status().isOk()).andReturn();
+
+        // assert
+        verify(recommendationRequestRepository, times(1)).findAllById(any());
+        String expectedJson = mapper.writeValueAsString(new ManyResponse<>(List.of(second, first), List.of(3L)));
+        assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_selected_fields_of_all_recommendationrequests() throws Exception {
+
+            // arrange
+            List<Map<String, Object>> expectedRows = List.of(
+                            Map.of("id", 1, "done", false),
+                            Map.of("id", 2, "done", true));
+            when(sparseFieldsetService.findAll(eq(RecommendationRequest.class), eq(List.of("id", "done"))))
+                            .thenReturn(expectedRows);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/recommendationrequests/all?fields=id,done"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(recommendationRequestRepository, times(0)).findAll();
+            String expectedJson = mapper.writeValueAsString(expectedRows);
+            assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+
+    @WithMockUser(roles = { "USER" })
+    @Test
+    public void logged_in_user_can_get_selected_fields_of_a_page() throws Exception {
+
+            // arrange
+            PageRequest pageRequest = PageRequest.of(1, 5, Sort.by(Sort.Order.asc("dateNeeded")));
+            Page<Map<String, Object>> expectedPage = new PageImpl<>(List.of(Map.of("id", 6, "done", false)), pageRequest, 6);
+            when(sparseFieldsetService.findPage(eq(RecommendationRequest.class), eq(List.of("id", "done")), any(Specification.class), eq(pageRequest)))
+                            .thenReturn(expectedPage);
+
+            // act
+            MvcResult response = mockMvc.perform(get("/api/recommendationrequests/paged?page=1&size=5&sort=dateNeeded&filter=done:false&fields=id,done"))
+                            .andExpect(status().isOk()).andReturn();
+
+            // assert
+            verify(recommendationRequestRepository, times(0)).findAll(any(Specification.class), eq(pageRequest));
+            String expectedJson = mapper.writeValueAsString(expectedPage);
+            assertEquals(expectedJson, response.getResponse().getContentAsString());
+    }
+}
@@ -3,13 +3,26 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.services.EntityChangeService;
+import edu.ucsb.cs156.example.services.UCSBDateCalendarIndex;
 import edu.ucsb.cs156.example.entities.UCSBDate;
 import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.mockito.ArgumentCaptor;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -26,6 +39,7 @@ import java.time.LocalDateTime;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.times;
@@ -42,6 +56,12 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        EntityChangeService entityChanges;
+
+        @MockBean
+        UCSBDateCalendarIndex ucsbDateCalendarIndex;
+
         // Tests for GET /api/ucsbdates/all
         
         @Test
@@ -133,6 +153,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDateRepository, times(1)).save(ucsbDate1);
+                verify(ucsbDateCalendarIndex, times(1)).put(ucsbDate1);
                 String expectedJson = mapper.writeValueAsString(ucsbDate1);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -220,6 +241,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDateRepository, times(1)).findById(15L);
                 verify(ucsbDateRepository, times(1)).delete(any());
+                verify(ucsbDateCalendarIndex, times(1)).remove(15L);
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDate with id 15 deleted", json.get("message"));
@@ -283,6 +305,7 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDateRepository, times(1)).findById(67L);
                 verify(ucsbDateRepository, times(1)).save(ucsbDateEdited); // should be saved with correct user
+                verify(ucsbDateCalendarIndex, times(1)).put(ucsbDateEdited);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -320,4 +343,254 @@ public class UCSBDatesControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDate with id 67 not found", json.get("message"));
 
         }
+
+        // Tests for GET /api/ucsbdates/quarter, /between and /upcoming
+
+        @Test
+        public void logged_out_users_cannot_get_dates_in_quarter() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20222"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_dates_in_quarter() throws Exception {
+
+                // arrange
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-04-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateCalendarIndex.inQuarter(eq("20222"))).thenReturn(List.of(ucsbDate1));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/quarter?quarterYYYYQ=20222"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(0)).findAll();
+                String expectedJson = mapper.writeValueAsString(List.of(ucsbDate1));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_dates_between() throws Exception {
+
+                // arrange
+                LocalDateTime start = LocalDateTime.parse("2022-04-01T00:00:00");
+                LocalDateTime end = LocalDateTime.parse("2022-04-30T00:00:00");
+
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-04-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateCalendarIndex.between(eq(start), eq(end))).thenReturn(List.of(ucsbDate1));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                get("/api/ucsbdates/between?start=2022-04-01T00:00:00&end=2022-04-30T00:00:00"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(List.of(ucsbDate1));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void get_dates_between_rejects_end_before_start() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                get("/api/ucsbdates/between?start=2022-04-30T00:00:00&end=2022-04-01T00:00:00"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                verify(ucsbDateCalendarIndex, times(0)).between(any(), any());
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("end must not be before start", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_upcoming_dates_from_a_given_time() throws Exception {
+
+                // arrange
+                LocalDateTime from = LocalDateTime.parse("2022-04-01T00:00:00");
+
+                UCSBDate ucsbDate1 = UCSBDate.builder()
+                                .id(1L)
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20222")
+                                .localDateTime(LocalDateTime.parse("2022-04-03T00:00:00"))
+                                .build();
+
+                when(ucsbDateCalendarIndex.upcoming(eq(from), eq(3))).thenReturn(List.of(ucsbDate1));
+
+                // act
+                MvcResult response = mockMvc.perform(
+                                get("/api/ucsbdates/upcoming?count=3&from=2022-04-01T00:00:00"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                String expectedJson = mapper.writeValueAsString(List.of(ucsbDate1));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void upcoming_dates_default_to_five_from_now() throws Exception {
+
+                // arrange
+                LocalDateTime before = LocalDateTime.now();
+                when(ucsbDateCalendarIndex.upcoming(any(), eq(5))).thenReturn(List.of());
+
+                // act
+                mockMvc.perform(get("/api/ucsbdates/upcoming"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                ArgumentCaptor<LocalDateTime> fromCaptor = ArgumentCaptor.forClass(LocalDateTime.class);
+                verify(ucsbDateCalendarIndex, times(1)).upcoming(fromCaptor.capture(), eq(5));
+                assertFalse(fromCaptor.getValue().isBefore(before));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void upcoming_dates_rejects_count_less_than_one() throws Exception {
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/upcoming?count=0"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("count must be at least 1", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdates/paged
+
+        @Test
+        public void logged_out_users_cannot_get_paged() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/paged"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_sorted_and_filtered_page() throws Exception {
+
+                // arrange
+
+                UCSBDate ucsbDate = UCSBDate.builder()
+                                .name("firstDayOfClasses")
+                                .quarterYYYYQ("20224")
+                                .localDateTime(LocalDateTime.parse("2022-09-22T00:00:00"))
+                                .build();
+
+                PageRequest pageRequest = PageRequest.of(1, 5, Sort.by(Sort.Order.desc("localDateTime")));
+                Page<UCSBDate> expectedPage = new PageImpl<>(List.of(ucsbDate), pageRequest, 6);
+                when(ucsbDateRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(expectedPage);
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/paged?page=1&size=5&sort=-localDateTime&filter=quarterYYYYQ:20224"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDateRepository, times(1)).findAll(any(Specification.class), eq(pageRequest));
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void paged_rejects_fields_that_are_not_whitelisted() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/paged?sort=-secret"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Cannot sort or filter on 'secret'", json.get("message"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void paged_rejects_bad_page_and_size() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/paged?page=-1"))
+                                .andExpect(status().isBadRequest()).andReturn();
+                assertEquals("page must not be negative", responseToJson(response).get("message"));
+
+                response = mockMvc.perform(get("/api/ucsbdates/paged?size=101"))
+                                .andExpect(status().isBadRequest()).andReturn();
+                assertEquals("size must be between 1 and 100", responseToJson(response).get("message"));
+
+                response = mockMvc.perform(get("/api/ucsbdates/paged?size=0"))
+                                .andExpect(status().isBadRequest()).andReturn();
+                assertEquals("size must be between 1 and 100", responseToJson(response).get("message"));
+        }
+
+        // Tests for GET /api/ucsbdates/sync
+
+        @Test
+        public void logged_out_users_cannot_sync() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/sync"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_sync_from_a_version() throws Exception {
+                // arrange
+
+                SyncResponse changes = SyncResponse.builder()
+                                .upserts(List.of(new RawValue("{\"id\":1}")))
+                                .tombstones(List.of(7L))
+                                .version(12L)
+                                .build();
+                when(entityChanges.sync(UCSBDate.class, 10L, 500)).thenReturn(changes);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/sync?since=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals("{\"upserts\":[{\"id\":1}],\"tombstones\":[7],\"version\":12,\"more\":false,\"reset\":false}",
+                                response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdates/many
+
+        @Test
+        public void logged_out_users_cannot_get_many() throws Exception {
+                mockMvc.perform(get("/api/ucsbdates/many?ids=2,1,3,2"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_many_in_request_order_with_missing_ids() throws Exception {
+                // arrange
+
+                UCSBDate first = UCSBDate.builder().id(1L).build();
+                UCSBDate second = UCSBDate.builder().id(2L).build();
+                when(ucsbDateRepository.findAllById(new LinkedHashSet<>(List.of(2L, 1L, 3L)))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdates/many?ids=2,1,3,2"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDateRepository, times(1)).findAllById(any());
+                String expectedJson = mapper.writeValueAsString(new ManyResponse<>(List.of(second, first), List.of(3L)));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
 }
@@ -1,15 +1,34 @@
 package edu.ucsb.cs156.example.controllers;
 
+import edu.ucsb.cs156.example.errors.BadRequestException;
 import edu.ucsb.cs156.example.repositories.UserRepository;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 import edu.ucsb.cs156.example.ControllerTestCase;
+import edu.ucsb.cs156.example.models.ManyResponse;
+import edu.ucsb.cs156.example.services.DiningTreeService;
+import edu.ucsb.cs156.example.services.DiningCommonsMenuService;
+import edu.ucsb.cs156.example.services.ReferenceKeyService;
+import edu.ucsb.cs156.example.models.DiningCommonsNode;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.services.EntityChangeService;
 import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
 import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.Test;
+import com.fasterxml.jackson.databind.util.RawValue;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
@@ -40,6 +59,18 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
         @MockBean
         UserRepository userRepository;
 
+        @MockBean
+        DiningTreeService diningTree;
+
+        @MockBean
+        DiningCommonsMenuService diningCommonsMenus;
+
+        @MockBean
+        ReferenceKeyService referenceKeys;
+
+        @MockBean
+        EntityChangeService entityChanges;
+
         // Tests for GET /api/ucsbdiningcommons/all
 
         @Test
@@ -158,6 +189,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
 
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).save(ortega);
+                verify(referenceKeys, times(1)).diningCommonsAdded("ortega");
+                verify(diningCommonsMenus, times(1)).invalidate();
                 String expectedJson = mapper.writeValueAsString(ortega);
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(expectedJson, responseString);
@@ -230,6 +263,8 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).findById("portola");
                 verify(ucsbDiningCommonsRepository, times(1)).delete(any());
+                verify(referenceKeys, times(1)).diningCommonsRemoved("portola");
+                verify(diningCommonsMenus, times(1)).invalidate();
 
                 Map<String, Object> json = responseToJson(response);
                 assertEquals("UCSBDiningCommons with id portola deleted", json.get("message"));
@@ -298,6 +333,7 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 // assert
                 verify(ucsbDiningCommonsRepository, times(1)).findById("carrillo");
                 verify(ucsbDiningCommonsRepository, times(1)).save(carrilloEdited); // should be saved with updated info
+                verify(diningCommonsMenus, times(1)).invalidate();
                 String responseString = response.getResponse().getContentAsString();
                 assertEquals(requestBody, responseString);
         }
@@ -337,4 +373,200 @@ public class UCSBDiningCommonsControllerTests extends ControllerTestCase {
                 assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
 
         }
+
+        // Tests for GET /api/ucsbdiningcommons/{code}/menu
+
+        @Test
+        public void logged_out_users_cannot_get_a_menu() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/ortega/menu"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_the_cached_menu_bytes() throws Exception {
+                // arrange
+
+                String menu = "{\"commons\":{\"code\":\"ortega\"},\"stations\":[]}";
+                when(diningCommonsMenus.menuJson("ortega")).thenReturn(menu.getBytes(StandardCharsets.UTF_8));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/ortega/menu"))
+                                .andExpect(status().isOk())
+                                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                                .andReturn();
+
+                // assert
+                assertEquals(menu, response.getResponse().getContentAsString());
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void menu_of_a_commons_that_does_not_exist_is_not_found() throws Exception {
+                // arrange
+
+                when(diningCommonsMenus.menuJson("munger-hall"))
+                                .thenThrow(new EntityNotFoundException(UCSBDiningCommons.class, "munger-hall"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/munger-hall/menu"))
+                                .andExpect(status().isNotFound()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("UCSBDiningCommons with id munger-hall not found", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/tree
+
+        @Test
+        public void logged_out_users_cannot_get_the_tree() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/tree"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_commons_with_items() throws Exception {
+                // arrange
+
+                UCSBDiningCommons ortega = UCSBDiningCommons.builder().code("ortega").name("Ortega").build();
+                UCSBDiningCommonsMenuItem sushi = UCSBDiningCommonsMenuItem.builder()
+                                .id(1L).diningCommonsCode("ortega").name("sushi").station("Asian").build();
+                List<DiningCommonsNode> tree = List.of(new DiningCommonsNode(ortega,
+                                List.of(new DiningCommonsNode.MenuItemNode(sushi, null))));
+                when(diningTree.load(List.of("ortega"), List.of("items"))).thenReturn(tree);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/tree?code=ortega&include=items"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals(mapper.writeValueAsString(tree), response.getResponse().getContentAsString());
+                assertEquals(false, response.getResponse().getContentAsString().contains("reviews"));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void tree_requests_over_the_cost_limit_are_rejected() throws Exception {
+                // arrange
+
+                when(diningTree.load(null, List.of("items", "reviews")))
+                                .thenThrow(new BadRequestException("The response would contain 9000 records"));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/tree?include=items,reviews"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                // assert
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("The response would contain 9000 records", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/paged
+
+        @Test
+        public void logged_out_users_cannot_get_paged() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/paged"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_get_a_sorted_and_filtered_page() throws Exception {
+
+                // arrange
+
+                UCSBDiningCommons commons = UCSBDiningCommons.builder()
+                                .code("ortega")
+                                .name("Ortega")
+                                .hasSackMeal(true)
+                                .hasTakeOutMeal(true)
+                                .hasDiningCam(true)
+                                .latitude(34.410987)
+                                .longitude(-119.84709)
+                                .build();
+
+                PageRequest pageRequest = PageRequest.of(1, 5, Sort.by(Sort.Order.asc("name")));
+                Page<UCSBDiningCommons> expectedPage = new PageImpl<>(List.of(commons), pageRequest, 6);
+                when(ucsbDiningCommonsRepository.findAll(any(Specification.class), eq(pageRequest))).thenReturn(expectedPage);
+
+                // act
+
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/paged?page=1&size=5&sort=name&filter=hasDiningCam:true"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+
+                verify(ucsbDiningCommonsRepository, times(1)).findAll(any(Specification.class), eq(pageRequest));
+                String expectedJson = mapper.writeValueAsString(expectedPage);
+                String responseString = response.getResponse().getContentAsString();
+                assertEquals(expectedJson, responseString);
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void paged_rejects_fields_that_are_not_whitelisted() throws Exception {
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/paged?sort=-secret"))
+                                .andExpect(status().isBadRequest()).andReturn();
+
+                Map<String, Object> json = responseToJson(response);
+                assertEquals("Cannot sort or filter on 'secret'", json.get("message"));
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/sync
+
+        @Test
+        public void logged_out_users_cannot_sync() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/sync"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_can_sync_from_a_version() throws Exception {
+                // arrange
+
+                SyncResponse changes = SyncResponse.builder()
+                                .upserts(List.of(new RawValue("{\"id\":1}")))
+                                .tombstones(List.of("ZPR"))
+                                .version(12L)
+                                .build();
+                when(entityChanges.sync(UCSBDiningCommons.class, 10L, 500)).thenReturn(changes);
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/sync?since=10"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                assertEquals("{\"upserts\":[{\"id\":1}],\"tombstones\":[\"ZPR\"],\"version\":12,\"more\":false,\"reset\":false}",
+                                response.getResponse().getContentAsString());
+        }
+
+        // Tests for GET /api/ucsbdiningcommons/many
+
+        @Test
+        public void logged_out_users_cannot_get_many() throws Exception {
+                mockMvc.perform(get("/api/ucsbdiningcommons/many?ids=portola,ortega,munger-hall,portola"))
+                                .andExpect(status().is(403));
+        }
+
+        @WithMockUser(roles = { "USER" })
+        @Test
+        public void logged_in_user_gets_many_in_request_order_with_missing_ids() throws Exception {
+                // arrange
+
+                UCSBDiningCommons first = UCSBDiningCommons.builder().code("ortega").build();
+                UCSBDiningCommons second = UCSBDiningCommons.builder().code("portola").build();
+                when(ucsbDiningCommonsRepository.findAllById(new LinkedHashSet<>(List.of("portola", "ortega", "munger-hall")))).thenReturn(List.of(first, second));
+
+                // act
+                MvcResult response = mockMvc.perform(get("/api/ucsbdiningcommons/many?ids=portola,ortega,munger-hall,portola"))
+                                .andExpect(status().isOk()).andReturn();
+
+                // assert
+                verify(ucsbDiningCommonsRepository, times(1)).findAllById(any());
+                String expectedJson = mapper.writeValueAsString(new ManyResponse<>(List.of(second, first), List.of("munger-hall")));
+                assertEquals(expectedJson, response.getResponse().getContentAsString());
+        }
 }
@@ -3,26 +3,37 @@ package edu.ucsb.cs156.example.controllers;
 import edu.ucsb.cs156.example.ControllerTestCase;
 import edu.ucsb.cs156.example.models.CurrentUser;
 import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.services.CurrentUserService;
+import edu.ucsb.cs156.example.services.CurrentUserSnapshotService;
 import edu.ucsb.cs156.example.testconfig.TestConfig;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpSession;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MvcResult;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = UserInfoController.class)
-@Import(TestConfig.class)
+@Import({ TestConfig.class, CurrentUserSnapshotService.class })
 public class UserInfoControllerTests extends ControllerTestCase {
 
   @MockBean
   UserRepository userRepository;
 
+  @SpyBean
+  CurrentUserService currentUserServiceSpy;
+
   @Test
   public void currentUser__logged_out() throws Exception {
     mockMvc.perform(get("/api/currentUser"))
@@ -47,4 +58,58 @@ public class UserInfoControllerTests extends ControllerTestCase {
     String responseString = response.getResponse().getContentAsString();
     assertEquals(expectedJson, responseString);
   }
+
+  @WithMockUser(roles = { "USER" })
+  @Test
+  public void currentUser__is_built_once_per_session_and_revalidated_with_etag() throws Exception {
+
+    // arrange
+
+    MockHttpSession session = new MockHttpSession();
+
+    // act
+
+    MvcResult first = mockMvc.perform(get("/api/currentUser").session(session))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Cache-Control", "no-cache, private"))
+        .andReturn();
+    String etag = first.getResponse().getHeader("ETag");
+
+    MvcResult second = mockMvc.perform(get("/api/currentUser").session(session))
+        .andExpect(status().isOk()).andReturn();
+
+    mockMvc.perform(get("/api/currentUser").session(session).header("If-None-Match", etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", etag))
+        .andExpect(content().string(""));
+
+    // assert
+
+    assertEquals(first.getResponse().getContentAsString(), second.getResponse().getContentAsString());
+    assertEquals(etag, second.getResponse().getHeader("ETag"));
+    verify(currentUserServiceSpy, times(1)).getCurrentUser();
+  }
+
+  @Test
+  public void currentUser__is_rebuilt_when_roles_change() throws Exception {
+
+    // arrange
+
+    MockHttpSession session = new MockHttpSession();
+
+    // act
+
+    MvcResult asUser = mockMvc.perform(get("/api/currentUser").session(session).with(user("user").roles("USER")))
+        .andExpect(status().isOk()).andReturn();
+    MvcResult asAdmin = mockMvc.perform(get("/api/currentUser").session(session).with(user("user").roles("USER", "ADMIN")))
+        .andExpect(status().isOk()).andReturn();
+    MvcResult asOtherUser = mockMvc.perform(get("/api/currentUser").session(session).with(user("other").roles("USER", "ADMIN")))
+        .andExpect(status().isOk()).andReturn();
+
+    // assert
+
+    verify(currentUserServiceSpy, times(3)).getCurrentUser();
+    assertNotEquals(asUser.getResponse().getHeader("ETag"), asAdmin.getResponse().getHeader("ETag"));
+    assertNotEquals(asAdmin.getResponse().getHeader("ETag"), asOtherUser.getResponse().getHeader("ETag"));
+  }
 }
@@ -0,0 +1,122 @@
+package edu.ucsb.cs156.example.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.introspect.AnnotatedMethod;
+import com.fasterxml.jackson.databind.ser.BeanPropertyWriter;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.User;
+
+class LambdaAccessorModuleTests {
+
+  ObjectMapper stock = mapper();
+  ObjectMapper fast = mapper().registerModule(new LambdaAccessorModule());
+
+  private static ObjectMapper mapper() {
+    return new ObjectMapper()
+        .registerModule(new JavaTimeModule())
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+  }
+
+  @Test
+  void test_entities_serialize_identically() throws Exception {
+    HelpRequest request = HelpRequest.builder()
+        .id(7L)
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId("s22-5pm-1")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-04-20T17:35:00"))
+        .explanation(null)
+        .solved(true)
+        .build();
+    User user = User.builder().id(1L).email("cgaucho@ucsb.edu").admin(true).build();
+
+    assertEquals(stock.writeValueAsString(request), fast.writeValueAsString(request));
+    assertEquals(stock.writeValueAsString(List.of(user, user)), fast.writeValueAsString(List.of(user, user)));
+    assertEquals(stock.writeValueAsString(Sort.Order.desc("x")), fast.writeValueAsString(Sort.Order.desc("x")));
+  }
+
+  @Test
+  void test_dynamic_values_inclusion_and_fallbacks_behave_like_stock() throws Exception {
+    Sample sample = new Sample();
+    assertEquals(stock.writeValueAsString(sample), fast.writeValueAsString(sample));
+    sample.dynamic = 42;
+    sample.tags = List.of("a");
+    assertEquals(stock.writeValueAsString(sample), fast.writeValueAsString(sample));
+    assertEquals(stock.writeValueAsString(new Hidden()), fast.writeValueAsString(new Hidden()));
+    assertThrows(JsonMappingException.class, () -> fast.writeValueAsString(new Selfish()));
+  }
+
+  @Test
+  void test_getters_that_cannot_be_compiled_are_left_alone() throws Exception {
+    BeanPropertyWriter writer = mock(BeanPropertyWriter.class);
+    when(writer.getMember()).thenReturn(
+        new AnnotatedMethod(null, Sample.class.getMethod("staticValue"), null, null));
+    assertNull(LambdaAccessorModule.getterFor(writer));
+
+    when(writer.getMember()).thenReturn(
+        new AnnotatedMethod(null, Sample.class.getMethod("getDynamic"), null, null));
+    assertTrue(LambdaAccessorModule.getterFor(writer) != null);
+  }
+
+  public static class Sample {
+    Object dynamic = "text";
+    List<String> tags = List.of();
+    public String field = "f";
+    String secret = "s";
+
+    public Object getDynamic() {
+      return dynamic;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<String> getTags() {
+      return tags;
+    }
+
+    @JsonTypeInfo(use = JsonTypeInfo.Id.CLASS)
+    public Object getTyped() {
+      return "typed";
+    }
+
+    @JsonProperty
+    private String getSecret() {
+      return secret;
+    }
+
+    public static String staticValue() {
+      return "static";
+    }
+  }
+
+  static class Hidden {
+    public int getValue() {
+      return 1;
+    }
+  }
+
+  public static class Selfish {
+    public Selfish getSelf() {
+      return this;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package edu.ucsb.cs156.example.json;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+class LocalDateTimeJsonSerializerTests {
+
+  ObjectMapper stock = new ObjectMapper()
+      .registerModule(new JavaTimeModule())
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  ObjectMapper fast = new ObjectMapper()
+      .registerModule(new JavaTimeModule())
+      .registerModule(new SimpleModule().addSerializer(new LocalDateTimeJsonSerializer()))
+      .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+  @Test
+  void test_output_matches_the_iso_formatter() throws Exception {
+    List<LocalDateTime> values = List.of(
+        LocalDateTime.parse("2022-01-03T00:00:00"),
+        LocalDateTime.parse("1999-12-31T23:59:59"),
+        LocalDateTime.parse("0001-02-03T04:05:06.25"),
+        LocalDateTime.parse("2022-04-20T17:35:00.000000001"),
+        LocalDateTime.parse("2022-04-20T17:35:00.123456789"),
+        LocalDateTime.parse("2022-04-20T17:35:00.1000"),
+        LocalDateTime.of(10000, 1, 1, 0, 0),
+        LocalDateTime.of(-1, 1, 1, 0, 0));
+    for (LocalDateTime value : values) {
+      String expected = "\"" + DateTimeFormatter.ISO_LOCAL_DATE_TIME.format(value) + "\"";
+      assertEquals(expected, fast.writeValueAsString(value));
+      assertEquals(stock.writeValueAsString(value), fast.writeValueAsString(value));
+    }
+  }
+}
@@ -0,0 +1,90 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.method.HandlerMethod;
+
+class RateLimitInterceptorTests {
+
+  RateLimitProperties properties = new RateLimitProperties();
+  RateLimiter rateLimiter = new RateLimiter(properties);
+  RateLimitInterceptor interceptor = new RateLimitInterceptor(rateLimiter);
+
+  @RequestMapping("/api/HelpRequest")
+  static class Writes {
+    public void post() {
+    }
+  }
+
+  static class Unmapped {
+    public void post() {
+    }
+  }
+
+  @AfterEach
+  void clear() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void test_writes_over_the_limit_get_429_with_retry_after() throws Exception {
+    properties.getControllers().put("helprequest", new RateLimitProperties.Limits(
+        new RateLimitProperties.Limit(1, 0.5), null));
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("cgaucho", null, "ROLE_USER"));
+
+    assertTrue(interceptor.preHandle(request("POST"), new MockHttpServletResponse(), handler(new Writes())));
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    assertFalse(interceptor.preHandle(request("PUT"), response, handler(new Writes())));
+
+    assertEquals(429, response.getStatus());
+    assertEquals("2", response.getHeader("Retry-After"));
+    assertEquals("{\"type\":\"TooManyRequests\",\"message\":\"Too many requests to helprequest, retry after 2 seconds\"}",
+        response.getContentAsString());
+    assertEquals(1L, rateLimiter.getCounts().get("helprequest.rejected.perUser"));
+  }
+
+  @Test
+  void test_reads_other_handlers_and_disabled_limiter_are_let_through() throws Exception {
+    properties.getControllers().put("helprequest", new RateLimitProperties.Limits(
+        new RateLimitProperties.Limit(1, 0.001), null));
+    for (int i = 0; i < 3; i++) {
+      assertTrue(interceptor.preHandle(request("GET"), new MockHttpServletResponse(), handler(new Writes())));
+      assertTrue(interceptor.preHandle(request("POST"), new MockHttpServletResponse(), new Object()));
+    }
+    properties.setEnabled(false);
+    for (int i = 0; i < 3; i++) {
+      assertTrue(interceptor.preHandle(request("POST"), new MockHttpServletResponse(), handler(new Writes())));
+    }
+  }
+
+  @Test
+  void test_logged_out_clients_are_limited_by_address() throws Exception {
+    SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken("key", "anonymousUser",
+        AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+    interceptor.preHandle(request("DELETE"), new MockHttpServletResponse(), handler(new Unmapped()));
+    SecurityContextHolder.clearContext();
+    interceptor.preHandle(request("DELETE"), new MockHttpServletResponse(), handler(new Unmapped()));
+
+    assertEquals(2L, rateLimiter.getCounts().get("unmapped.admitted"));
+    assertEquals(1, rateLimiter.trackedUsers());
+  }
+
+  private static MockHttpServletRequest request(String method) {
+    return new MockHttpServletRequest(method, "/api/HelpRequest/post");
+  }
+
+  private static HandlerMethod handler(Object bean) throws Exception {
+    return new HandlerMethod(bean, bean.getClass().getMethod("post"));
+  }
+}
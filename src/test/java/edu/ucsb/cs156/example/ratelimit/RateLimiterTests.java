@@ -0,0 +1,102 @@
+package edu.ucsb.cs156.example.ratelimit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+class RateLimiterTests {
+
+  static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  AtomicLong now = new AtomicLong(-5 * SECOND);
+  RateLimitProperties properties = new RateLimitProperties();
+  RateLimiter rateLimiter = new RateLimiter(properties, now::get);
+
+  @Test
+  void test_per_user_bucket_allows_a_burst_then_refills_at_the_steady_rate() {
+    properties.setDefaults(new RateLimitProperties.Limits(
+        new RateLimitProperties.Limit(3, 1.0), new RateLimitProperties.Limit(100, 100.0)));
+
+    for (int i = 0; i < 3; i++) {
+      assertEquals(0, rateLimiter.tryAcquire("helprequest", "cgaucho"));
+    }
+    assertEquals(SECOND, rateLimiter.tryAcquire("helprequest", "cgaucho"));
+    assertEquals(0, rateLimiter.tryAcquire("helprequest", "ldelplaya"));
+    assertEquals(0, rateLimiter.tryAcquire("articles", "cgaucho"));
+
+    now.addAndGet(SECOND / 2);
+    assertEquals(SECOND / 2, rateLimiter.tryAcquire("helprequest", "cgaucho"));
+    now.addAndGet(SECOND / 2);
+    assertEquals(0, rateLimiter.tryAcquire("helprequest", "cgaucho"));
+
+    assertEquals(Map.of(
+        "articles.admitted", 1L,
+        "helprequest.admitted", 5L,
+        "helprequest.rejected.perUser", 2L), rateLimiter.getCounts());
+  }
+
+  @Test
+  void test_global_bucket_is_shared_and_can_be_overridden_per_controller() {
+    properties.getControllers().put("helprequest",
+        new RateLimitProperties.Limits(null, new RateLimitProperties.Limit(2, 1.0)));
+
+    assertEquals(0, rateLimiter.tryAcquire("helprequest", "a"));
+    assertEquals(0, rateLimiter.tryAcquire("helprequest", "b"));
+    assertEquals(SECOND, rateLimiter.tryAcquire("helprequest", "c"));
+    assertEquals(0, rateLimiter.tryAcquire("articles", "c"));
+    assertEquals(1L, rateLimiter.getCounts().get("helprequest.rejected.global"));
+    assertEquals(properties.getDefaults().getPerUser(), properties.limitsFor("helprequest").getPerUser());
+
+    properties.getControllers().put("articles",
+        new RateLimitProperties.Limits(new RateLimitProperties.Limit(1, 1.0), null));
+    assertEquals(properties.getDefaults().getGlobal(), properties.limitsFor("articles").getGlobal());
+  }
+
+  @Test
+  void test_refilled_user_buckets_are_swept() {
+    for (int i = 0; i < RateLimiter.SWEEP_EVERY - 1; i++) {
+      rateLimiter.tryAcquire("helprequest", "user" + i);
+    }
+    assertEquals(RateLimiter.SWEEP_EVERY - 1, rateLimiter.trackedUsers());
+
+    now.addAndGet(60 * SECOND);
+    rateLimiter.tryAcquire("helprequest", "latecomer");
+    assertEquals(1, rateLimiter.trackedUsers());
+  }
+
+
+  @Test
+  void test_a_request_refused_by_the_global_bucket_does_not_use_up_the_user_bucket() {
+    properties.setDefaults(new RateLimitProperties.Limits(
+        new RateLimitProperties.Limit(1, 0.01), new RateLimitProperties.Limit(1, 1.0)));
+
+    assertEquals(0, rateLimiter.tryAcquire("helprequest", "cgaucho"));
+    assertEquals(SECOND, rateLimiter.tryAcquire("helprequest", "ldelplaya"));
+
+    now.addAndGet(SECOND);
+    assertEquals(0, rateLimiter.tryAcquire("helprequest", "ldelplaya"));
+    assertEquals(Map.of(
+        "helprequest.admitted", 2L,
+        "helprequest.rejected.global", 1L), rateLimiter.getCounts());
+  }
+
+  @Test
+  void test_limits_without_a_positive_rate_are_rejected_when_bound() {
+    properties.afterPropertiesSet();
+
+    properties.getControllers().put("helprequest",
+        new RateLimitProperties.Limits(new RateLimitProperties.Limit(5, 0), null));
+    IllegalArgumentException e = assertThrows(IllegalArgumentException.class, properties::afterPropertiesSet);
+    assertEquals("app.ratelimit.controllers.helprequest.per-user.per-second must be positive, got 0.0", e.getMessage());
+
+    properties.getControllers().put("helprequest",
+        new RateLimitProperties.Limits(null, new RateLimitProperties.Limit(-1, 1.0)));
+    e = assertThrows(IllegalArgumentException.class, properties::afterPropertiesSet);
+    assertEquals("app.ratelimit.controllers.helprequest.global.capacity must not be negative, got -1", e.getMessage());
+  }
+}
@@ -0,0 +1,145 @@
+package edu.ucsb.cs156.example.repositories;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class EntitySpecificationsTests {
+
+  static final Set<String> REVIEW_FIELDS = Set.of("itemId", "reviewerEmail", "stars", "dateReviewed");
+  static final Set<String> HELP_FIELDS = Set.of("teamId", "solved", "explanation");
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  /** ids of menu items 1, 2 and 3; reviews must point at real items */
+  List<Long> items;
+
+  @BeforeEach
+  void setup() {
+    ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code("ortega").name("Ortega").build());
+    items = List.of(menuItem(), menuItem(), menuItem());
+    menuItemReviewRepository.saveAll(List.of(
+        review(1L, "cgaucho@ucsb.edu", 5, "2022-01-01T00:00:00"),
+        review(2L, "ldelplaya@ucsb.edu", 3, "2022-01-02T00:00:00"),
+        review(3L, "CGAUCHO100%@ucsb.edu", 4, "2022-01-03T00:00:00")));
+    helpRequestRepository.saveAll(List.of(
+        help("s22-5pm-1", false),
+        help("s22-6pm-2", true)));
+  }
+
+  @Test
+  void test_sort_parses_directions_and_skips_blanks() {
+    assertEquals(Sort.by(Sort.Order.desc("stars"), Sort.Order.asc("itemId")),
+        EntitySpecifications.sort(List.of("-stars", " ", "itemId"), REVIEW_FIELDS));
+    assertEquals(Sort.unsorted(), EntitySpecifications.sort(null, REVIEW_FIELDS));
+  }
+
+  @Test
+  void test_sort_and_filter_reject_fields_that_are_not_whitelisted() {
+    assertThrows(BadRequestException.class, () -> EntitySpecifications.sort(List.of("-comments"), REVIEW_FIELDS));
+    assertThrows(BadRequestException.class, () -> EntitySpecifications.filter(MenuItemReview.class, List.of("comments:x"), REVIEW_FIELDS));
+    assertThrows(BadRequestException.class, () -> EntitySpecifications.filter(MenuItemReview.class, List.of("stars"), REVIEW_FIELDS));
+    assertThrows(BadRequestException.class,
+        () -> EntitySpecifications.filter(MenuItemReview.class, List.of("rating:5"), Set.of("rating")));
+  }
+
+  @Test
+  void test_string_filter_is_a_case_insensitive_substring_match_with_wildcards_escaped() {
+    assertEquals(List.of(1L, 3L), itemIds(List.of("reviewerEmail:cGaUcHo"), Sort.by("itemId")));
+    assertEquals(List.of(3L), itemIds(List.of("reviewerEmail:100%"), Sort.by("itemId")));
+    assertEquals(List.of(), itemIds(List.of("reviewerEmail:_"), Sort.by("itemId")));
+  }
+
+  @Test
+  void test_comparable_filters_and_terms_are_anded() {
+    assertEquals(List.of(1L, 3L), itemIds(List.of("stars>=4"), Sort.by("itemId")));
+    assertEquals(List.of(2L), itemIds(List.of("stars<=4", "dateReviewed<=2022-01-02T00:00:00"), Sort.by("itemId")));
+    assertEquals(List.of(2L), itemIds(List.of("itemId:" + items.get(1), ""), Sort.by("itemId")));
+    assertEquals(List.of(3L, 2L, 1L), itemIds(null, Sort.by(Sort.Order.desc("dateReviewed"))));
+  }
+
+  @Test
+  void test_boolean_filter() {
+    List<String> teams = helpRequestRepository.findAll(EntitySpecifications.filter(HelpRequest.class, List.of("solved:TRUE"), HELP_FIELDS))
+        .stream().map(HelpRequest::getTeamId).collect(Collectors.toList());
+    assertEquals(List.of("s22-6pm-2"), teams);
+  }
+
+  @Test
+  void test_invalid_values_and_operators_are_rejected_before_the_query_runs() {
+    assertThrows(BadRequestException.class, () -> reviewFilter("stars:many"));
+    assertThrows(BadRequestException.class, () -> reviewFilter("dateReviewed>=yesterday"));
+    assertThrows(BadRequestException.class, () -> reviewFilter("reviewerEmail>=a"));
+    assertThrows(BadRequestException.class,
+        () -> EntitySpecifications.filter(HelpRequest.class, List.of("solved:maybe"), HELP_FIELDS));
+    assertThrows(BadRequestException.class,
+        () -> EntitySpecifications.filter(HelpRequest.class, List.of("solved<=true"), HELP_FIELDS));
+  }
+
+  private static void reviewFilter(String term) {
+    EntitySpecifications.filter(MenuItemReview.class, List.of(term), REVIEW_FIELDS);
+  }
+
+  private List<Long> itemIds(List<String> filter, Sort sort) {
+    return menuItemReviewRepository.findAll(EntitySpecifications.filter(MenuItemReview.class, filter, REVIEW_FIELDS), sort)
+        .stream().map(r -> items.indexOf(r.getItemId()) + 1L).collect(Collectors.toList());
+  }
+
+  private long menuItem() {
+    return ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode("ortega")
+        .name("sushi")
+        .station("Asian")
+        .build()).getId();
+  }
+
+  private MenuItemReview review(long item, String email, int stars, String when) {
+    return MenuItemReview.builder()
+        .itemId(items.get((int) item - 1))
+        .reviewerEmail(email)
+        .stars(stars)
+        .dateReviewed(LocalDateTime.parse(when))
+        .comments("ok")
+        .build();
+  }
+
+  private static HelpRequest help(String teamId, boolean solved) {
+    return HelpRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId(teamId)
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-04-20T17:35:00"))
+        .explanation("help")
+        .solved(solved)
+        .build();
+  }
+}
@@ -0,0 +1,84 @@
+package edu.ucsb.cs156.example.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.AuthenticationCredentialsNotFoundException;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.method.HandlerMethod;
+
+class RoleCheckInterceptorTests {
+
+  RoleCheckInterceptor interceptor = new RoleCheckInterceptor();
+
+  @RequiresRole(Role.USER)
+  static class Handlers {
+    public void inherited() {
+    }
+
+    @RequiresRole(Role.ADMIN)
+    public void adminOnly() {
+    }
+  }
+
+  static class Unannotated {
+    public void open() {
+    }
+  }
+
+  @AfterEach
+  void clear() {
+    SecurityContextHolder.clearContext();
+  }
+
+  @Test
+  void test_method_annotation_overrides_class_annotation() throws Exception {
+    loginAs("ROLE_USER");
+    assertTrue(check(new Handlers(), "inherited"));
+    assertThrows(AccessDeniedException.class, () -> check(new Handlers(), "adminOnly"));
+
+    loginAs("ROLE_USER", "ROLE_ADMIN");
+    assertTrue(check(new Handlers(), "adminOnly"));
+  }
+
+  @Test
+  void test_unannotated_handlers_and_other_handlers_are_let_through() throws Exception {
+    assertTrue(check(new Unannotated(), "open"));
+    assertTrue(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), new Object()));
+  }
+
+  @Test
+  void test_missing_authentication_is_rejected_like_method_security() {
+    assertThrows(AuthenticationCredentialsNotFoundException.class, () -> check(new Handlers(), "inherited"));
+  }
+
+  @Test
+  void test_role_mask_round_trips_and_ignores_unknown_authorities() {
+    int mask = Role.mask(List.of(new SimpleGrantedAuthority("ROLE_ADMIN"), new SimpleGrantedAuthority("SCOPE_email"),
+        new SimpleGrantedAuthority("ROLE_MEMBER")));
+    assertEquals(Role.ADMIN.bit | Role.MEMBER.bit, mask);
+    assertEquals(Set.of("ROLE_ADMIN", "ROLE_MEMBER"), AuthorityUtils.authorityListToSet(Role.authorities(mask)));
+    assertEquals(Set.of(), Role.authorities(0));
+  }
+
+  private boolean check(Object bean, String method) throws Exception {
+    HandlerMethod handlerMethod = new HandlerMethod(bean, bean.getClass().getMethod(method));
+    return interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), handlerMethod);
+  }
+
+  private static void loginAs(String... authorities) {
+    SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null, authorities));
+  }
+}
@@ -0,0 +1,47 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+
+class AuthDiagnosticsTests {
+
+  Logger logger = (Logger) LoggerFactory.getLogger("auth.diagnostics");
+  ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+  @BeforeEach
+  void attach() {
+    appender.start();
+    logger.addAppender(appender);
+  }
+
+  @AfterEach
+  void detach() {
+    logger.detachAppender(appender);
+    logger.setLevel(null);
+  }
+
+  @Test
+  void test_nothing_is_logged_unless_debug_is_enabled() {
+    logger.setLevel(Level.INFO);
+    AuthDiagnostics.debug("attrs={}", "x");
+    assertEquals(0, appender.list.size());
+  }
+
+  @Test
+  void test_one_call_in_SAMPLE_EVERY_is_logged() {
+    logger.setLevel(Level.DEBUG);
+    for (int i = 0; i < 3 * AuthDiagnostics.SAMPLE_EVERY; i++) {
+      AuthDiagnostics.debug("attrs={}", i);
+    }
+    assertEquals(3, appender.list.size());
+  }
+}
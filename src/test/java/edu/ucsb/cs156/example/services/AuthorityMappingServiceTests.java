@@ -0,0 +1,137 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.user.OAuth2UserAuthority;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.repositories.UserRepository;
+import edu.ucsb.cs156.example.security.Role;
+
+@ExtendWith(SpringExtension.class)
+@Import(AuthorityMappingService.class)
+@ContextConfiguration
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {
+    "app.admin.emails=phtcon@ucsb.edu",
+    "app.auth.roleCacheSeconds=60"
+})
+class AuthorityMappingServiceTests {
+
+  static final Instant NOW = Instant.parse("2022-03-01T12:00:00Z");
+
+  @MockBean
+  UserRepository userRepository;
+
+  @Autowired
+  AuthorityMappingService authorityMappingService;
+
+  @Test
+  void test_admin_and_member_roles_are_added_to_oauth2_authorities() {
+    when(userRepository.findByEmail("dbadmin@gmail.com")).thenReturn(Optional.of(User.builder().admin(true).build()));
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.empty());
+
+    assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN", "ROLE_MEMBER"), roles(login("1", "phtcon@ucsb.edu")));
+    assertEquals(Set.of("ROLE_USER", "ROLE_ADMIN"), roles(login("2", "dbadmin@gmail.com")));
+    assertEquals(Set.of("ROLE_USER", "ROLE_MEMBER"), roles(login("3", "cgaucho@ucsb.edu")));
+    assertEquals(Set.of("ROLE_USER"), roles(Set.of(new OAuth2UserAuthority(Map.of("sub", "4")))));
+    assertEquals(Set.of("ROLE_OTHER"), roles(Set.of(new SimpleGrantedAuthority("ROLE_OTHER"))));
+  }
+
+  @Test
+  void test_role_mask_is_memoized_per_subject_until_it_expires_or_is_evicted() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.empty());
+
+    assertEquals(Role.MEMBER.bit, authorityMappingService.roleMask("3", "cgaucho@ucsb.edu", NOW));
+    authorityMappingService.roleMask("3", "cgaucho@ucsb.edu", NOW.plusSeconds(59));
+    verify(userRepository, times(1)).findByEmail("cgaucho@ucsb.edu");
+
+    authorityMappingService.roleMask("3", "cgaucho@ucsb.edu", NOW.plusSeconds(60));
+    verify(userRepository, times(2)).findByEmail("cgaucho@ucsb.edu");
+
+    authorityMappingService.evict("3");
+    authorityMappingService.roleMask("3", "cgaucho@ucsb.edu", NOW);
+    authorityMappingService.evictAll();
+    authorityMappingService.roleMask(null, "cgaucho@ucsb.edu", NOW);
+    authorityMappingService.roleMask(null, "cgaucho@ucsb.edu", NOW);
+    verify(userRepository, times(4)).findByEmail("cgaucho@ucsb.edu");
+  }
+
+  @Test
+  void test_cache_is_bounded() {
+    for (int i = 0; i <= AuthorityMappingService.MAX_ENTRIES; i++) {
+      authorityMappingService.roleMask("sub" + i, "someone@gmail.com", NOW);
+    }
+    authorityMappingService.roleMask("sub0", "someone@gmail.com", NOW);
+    verify(userRepository, times(AuthorityMappingService.MAX_ENTRIES + 2)).findByEmail("someone@gmail.com");
+  }
+
+  @Test
+  void test_a_full_cache_drops_only_the_least_recently_used_subject() {
+    for (int i = 0; i < AuthorityMappingService.MAX_ENTRIES; i++) {
+      authorityMappingService.roleMask("sub" + i, "someone@gmail.com", NOW);
+    }
+    authorityMappingService.roleMask("sub0", "someone@gmail.com", NOW);
+    authorityMappingService.roleMask("new", "someone@gmail.com", NOW);
+    verify(userRepository, times(AuthorityMappingService.MAX_ENTRIES + 1)).findByEmail("someone@gmail.com");
+
+    authorityMappingService.roleMask("sub0", "someone@gmail.com", NOW);
+    authorityMappingService.roleMask("sub2", "someone@gmail.com", NOW);
+    verify(userRepository, times(AuthorityMappingService.MAX_ENTRIES + 1)).findByEmail("someone@gmail.com");
+
+    authorityMappingService.roleMask("sub1", "someone@gmail.com", NOW);
+    verify(userRepository, times(AuthorityMappingService.MAX_ENTRIES + 2)).findByEmail("someone@gmail.com");
+  }
+
+  @Test
+  void test_adminChanged_evicts_the_user_after_commit() {
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(User.builder().admin(false).build()));
+    assertEquals(Role.MEMBER.bit, authorityMappingService.roleMask("3", "cgaucho@ucsb.edu", NOW));
+    assertEquals(Role.MEMBER.bit, authorityMappingService.roleMask(null, "cgaucho@ucsb.edu", NOW));
+
+    User promoted = User.builder().googleSub("3").email("cgaucho@ucsb.edu").admin(true).build();
+    when(userRepository.findByEmail("cgaucho@ucsb.edu")).thenReturn(Optional.of(promoted));
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      authorityMappingService.adminChanged(promoted);
+      assertEquals(Role.MEMBER.bit, authorityMappingService.roleMask("3", "cgaucho@ucsb.edu", NOW));
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertEquals(Role.ADMIN.bit | Role.MEMBER.bit, authorityMappingService.roleMask("3", "cgaucho@ucsb.edu", NOW));
+    assertEquals(Role.ADMIN.bit | Role.MEMBER.bit, authorityMappingService.roleMask(null, "cgaucho@ucsb.edu", NOW));
+  }
+
+  private Set<GrantedAuthority> login(String sub, String email) {
+    return Set.of(new OAuth2UserAuthority(Map.of("sub", sub, "email", email)));
+  }
+
+  private Set<String> roles(Set<GrantedAuthority> authorities) {
+    return AuthorityUtils.authorityListToSet(authorityMappingService.mapAuthorities(authorities, NOW));
+  }
+}
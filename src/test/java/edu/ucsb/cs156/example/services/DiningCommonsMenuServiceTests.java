@@ -0,0 +1,115 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.EntityNotFoundException;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+class DiningCommonsMenuServiceTests {
+
+  UCSBDiningCommonsRepository commonsRepository = mock(UCSBDiningCommonsRepository.class);
+  UCSBDiningCommonsMenuItemRepository menuItemRepository = mock(UCSBDiningCommonsMenuItemRepository.class);
+  DiningCommonsMenuService menus = new DiningCommonsMenuService();
+
+  @BeforeEach
+  void setup() {
+    menus.ucsbDiningCommonsRepository = commonsRepository;
+    menus.ucsbDiningCommonsMenuItemRepository = menuItemRepository;
+    menus.objectMapper = new ObjectMapper();
+    when(commonsRepository.findById("ortega"))
+        .thenReturn(Optional.of(UCSBDiningCommons.builder().code("ortega").name("Ortega").build()));
+    when(menuItemRepository.findAllByDiningCommonsCodeOrderByStationAscNameAsc("ortega")).thenReturn(List.of(
+        item(1L, "Asian", "ramen"),
+        item(2L, "Asian", "sushi"),
+        item(3L, "Grill", "burger")));
+  }
+
+  @AfterEach
+  void teardown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void test_menu_groups_items_by_station_and_is_built_once() throws Exception {
+    // act
+    byte[] first = menus.menuJson("ortega");
+    byte[] second = menus.menuJson("ortega");
+
+    // assert
+    assertSame(first, second);
+    verify(menuItemRepository, times(1)).findAllByDiningCommonsCodeOrderByStationAscNameAsc("ortega");
+    JsonNode menu = menus.objectMapper.readTree(first);
+    assertEquals("ortega", menu.at("/commons/code").asText());
+    assertEquals(2, menu.get("stations").size());
+    assertEquals("Asian", menu.at("/stations/0/name").asText());
+    assertEquals("ramen", menu.at("/stations/0/items/0/name").asText());
+    assertEquals("sushi", menu.at("/stations/0/items/1/name").asText());
+    assertEquals("Grill", menu.at("/stations/1/name").asText());
+    assertEquals("burger", menu.at("/stations/1/items/0/name").asText());
+  }
+
+  @Test
+  void test_invalidate_rebuilds_on_the_next_read_once_the_write_commits() throws Exception {
+    // arrange
+    byte[] first = menus.menuJson("ortega");
+    TransactionSynchronizationManager.initSynchronization();
+
+    // act
+    menus.invalidate();
+
+    // assert
+    assertSame(first, menus.menuJson("ortega"));
+    TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    TransactionSynchronizationManager.clearSynchronization();
+    byte[] rebuilt = menus.menuJson("ortega");
+    assertEquals(new String(first, StandardCharsets.UTF_8), new String(rebuilt, StandardCharsets.UTF_8));
+    verify(menuItemRepository, times(2)).findAllByDiningCommonsCodeOrderByStationAscNameAsc("ortega");
+
+    menus.invalidate();
+    menus.menuJson("ortega");
+    verify(menuItemRepository, times(3)).findAllByDiningCommonsCodeOrderByStationAscNameAsc("ortega");
+  }
+
+  @Test
+  void test_menu_of_an_unknown_commons_is_not_found_and_not_cached() {
+    when(commonsRepository.findById("munger-hall")).thenReturn(Optional.empty());
+
+    EntityNotFoundException e = assertThrows(EntityNotFoundException.class, () -> menus.menuJson("munger-hall"));
+    assertEquals("UCSBDiningCommons with id munger-hall not found", e.getMessage());
+    assertThrows(EntityNotFoundException.class, () -> menus.menuJson("munger-hall"));
+    verify(commonsRepository, times(2)).findById("munger-hall");
+  }
+
+  private static UCSBDiningCommonsMenuItem item(long id, String station, String name) {
+    return UCSBDiningCommonsMenuItem.builder()
+        .id(id)
+        .diningCommonsCode("ortega")
+        .station(station)
+        .name(name)
+        .build();
+  }
+}
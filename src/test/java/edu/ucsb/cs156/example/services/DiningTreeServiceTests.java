@@ -0,0 +1,138 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommons;
+import edu.ucsb.cs156.example.entities.UCSBDiningCommonsMenuItem;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.DiningCommonsNode;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(DiningTreeService.class)
+@TestPropertySource(properties = {
+    "app.diningTree.maxNodes=10",
+    "app.diningTree.batchSize=2"
+})
+class DiningTreeServiceTests {
+
+  @Autowired
+  UCSBDiningCommonsRepository ucsbDiningCommonsRepository;
+
+  @Autowired
+  UCSBDiningCommonsMenuItemRepository ucsbDiningCommonsMenuItemRepository;
+
+  @Autowired
+  MenuItemReviewRepository menuItemReviewRepository;
+
+  @Autowired
+  DiningTreeService diningTree;
+
+  @BeforeEach
+  void setup() {
+    for (String code : List.of("carrillo", "ortega", "portola")) {
+      ucsbDiningCommonsRepository.save(UCSBDiningCommons.builder().code(code).name(code).build());
+    }
+    long sushi = item("ortega", "sushi");
+    long ramen = item("ortega", "ramen");
+    long tacos = item("portola", "tacos");
+    review(sushi, 5);
+    review(sushi, 4);
+    review(tacos, 3);
+    review(ramen, 2);
+  }
+
+  @Test
+  void test_commons_only_by_default() {
+    List<DiningCommonsNode> tree = diningTree.load(List.of("portola", "ortega", "munger-hall"), null);
+
+    assertEquals(List.of("ortega", "portola"), codes(tree));
+    assertNull(tree.get(0).getItems());
+  }
+
+  @Test
+  void test_items_and_reviews_are_attached_to_their_parents_across_batches() {
+    List<DiningCommonsNode> tree = diningTree.load(List.of("carrillo", "ortega", "portola"), List.of("items", "reviews"));
+
+    assertEquals(List.of("carrillo", "ortega", "portola"), codes(tree));
+    assertEquals(List.of(), tree.get(0).getItems());
+    assertEquals(List.of("sushi", "ramen"), tree.get(1).getItems().stream()
+        .map(n -> n.getItem().getName()).collect(Collectors.toList()));
+    assertEquals(List.of(5, 4), stars(tree.get(1).getItems().get(0)));
+    assertEquals(List.of(2), stars(tree.get(1).getItems().get(1)));
+    assertEquals(List.of(3), stars(tree.get(2).getItems().get(0)));
+  }
+
+  @Test
+  void test_items_without_reviews() {
+    List<DiningCommonsNode> tree = diningTree.load(List.of("ortega"), List.of("items"));
+
+    assertEquals(2, tree.get(0).getItems().size());
+    assertNull(tree.get(0).getItems().get(0).getReviews());
+  }
+
+  @Test
+  void test_requests_over_the_cost_limit_are_rejected() {
+    // 3 commons + 3 items + 4 reviews fit; one more review does not
+    assertEquals(3, diningTree.load(null, List.of("items", "reviews")).size());
+    review(ucsbDiningCommonsMenuItemRepository.findAllByDiningCommonsCodeInOrderById(List.of("portola")).get(0).getId(), 1);
+
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> diningTree.load(null, List.of("items", "reviews")));
+    assertEquals("The response would contain 11 records, at most 10 are allowed; request fewer commons or include less", e.getMessage());
+    assertEquals(3, diningTree.load(null, List.of("items")).size());
+  }
+
+  @Test
+  void test_invalid_includes_are_rejected() {
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> diningTree.load(null, List.of("reviews")));
+    assertEquals("include=reviews also requires include=items", e.getMessage());
+    e = assertThrows(BadRequestException.class, () -> diningTree.load(null, List.of("items", "stations")));
+    assertEquals("Cannot include 'stations', expected items or reviews", e.getMessage());
+  }
+
+  private static List<String> codes(List<DiningCommonsNode> tree) {
+    return tree.stream().map(n -> n.getCommons().getCode()).collect(Collectors.toList());
+  }
+
+  private static List<Integer> stars(DiningCommonsNode.MenuItemNode item) {
+    return item.getReviews().stream().map(MenuItemReview::getStars).collect(Collectors.toList());
+  }
+
+  private long item(String code, String name) {
+    return ucsbDiningCommonsMenuItemRepository.save(UCSBDiningCommonsMenuItem.builder()
+        .diningCommonsCode(code)
+        .name(name)
+        .station("Main")
+        .build()).getId();
+  }
+
+  private void review(long itemId, int stars) {
+    menuItemReviewRepository.save(MenuItemReview.builder()
+        .itemId(itemId)
+        .reviewerEmail("cgaucho@ucsb.edu")
+        .stars(stars)
+        .dateReviewed(LocalDateTime.parse("2022-01-01T00:00:00"))
+        .comments("ok")
+        .build());
+  }
+}
@@ -0,0 +1,227 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.entities.EntityChange;
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.entities.UCSBOrganization;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.models.ChangeFeed;
+import edu.ucsb.cs156.example.models.SyncResponse;
+import edu.ucsb.cs156.example.repositories.EntityChangeRepository;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+import edu.ucsb.cs156.example.repositories.UCSBOrganizationRepository;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(EntityChangeService.class)
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+class EntityChangeServiceTests {
+
+  static final LocalDateTime NOW = LocalDateTime.parse("2022-04-20T17:35:00");
+
+  @Autowired
+  UCSBOrganizationRepository ucsbOrganizationRepository;
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  EntityChangeRepository entityChangeRepository;
+
+  @Autowired
+  EntityChangeService entityChanges;
+
+  @Test
+  void test_changes_record_type_id_operation_and_payload() {
+    // arrange
+    UCSBOrganization org = ucsbOrganizationRepository.save(org("ZPR"));
+
+    // act
+    entityChanges.created(org);
+    entityChanges.updated(org);
+    entityChanges.deleted(org);
+
+    // assert
+    List<EntityChange> changes = entityChanges.feed(0, 10, LocalDateTime.now().plusMinutes(1)).getChanges();
+    assertEquals(3, changes.size());
+    EntityChange created = changes.get(0);
+    assertEquals("UCSBOrganization", created.getEntityType());
+    assertEquals("ZPR", created.getEntityId());
+    assertEquals(EntityChange.CREATE, created.getOperation());
+    assertEquals("{\"orgCode\":\"ZPR\",\"orgTranslationShort\":\"Zeta Phi Rho\","
+        + "\"orgTranslation\":\"Zeta Phi Rho\",\"inactive\":false}", created.getPayload());
+    assertEquals(EntityChange.UPDATE, changes.get(1).getOperation());
+    assertEquals(EntityChange.DELETE, changes.get(2).getOperation());
+    assertNull(changes.get(2).getPayload());
+
+    // just written, so still inside the settle lag
+    assertEquals(List.of(), entityChanges.feed(0, 10).getChanges());
+  }
+
+  @Test
+  void test_feed_pages_by_seq_and_holds_back_unsettled_changes() {
+    // arrange
+    UCSBOrganization org = ucsbOrganizationRepository.save(org("ZPR"));
+    long first = entityChanges.record(org, EntityChange.CREATE, NOW.minusSeconds(10)).getSeq();
+    entityChanges.record(org, EntityChange.UPDATE, NOW.minusSeconds(9));
+    entityChanges.record(org, EntityChange.UPDATE, NOW.minusSeconds(8));
+    entityChanges.record(org, EntityChange.UPDATE, NOW.minusSeconds(1)); // within the 2s settle lag
+
+    // act
+    ChangeFeed page1 = entityChanges.feed(first - 1, 2, NOW);
+    ChangeFeed page2 = entityChanges.feed(page1.getNext(), 2, NOW);
+    ChangeFeed page3 = entityChanges.feed(page2.getNext(), 2, NOW);
+
+    // assert
+    assertEquals(List.of(first, first + 1), seqs(page1));
+    assertEquals(List.of(first + 2), seqs(page2));
+    assertEquals(List.of(), seqs(page3));
+    assertEquals(first + 2, page3.getNext());
+    assertEquals(List.of(first + 3), seqs(entityChanges.feed(page3.getNext(), 2, NOW.plusSeconds(2))));
+  }
+
+  @Test
+  void test_feed_rejects_bad_arguments() {
+    assertThrows(BadRequestException.class, () -> entityChanges.feed(-1, 10));
+    assertThrows(BadRequestException.class, () -> entityChanges.feed(0, 0));
+    assertThrows(BadRequestException.class, () -> entityChanges.feed(0, EntityChangeService.MAX_LIMIT + 1));
+  }
+
+  @Test
+  void test_prune_removes_changes_past_retention() {
+    // arrange
+    UCSBOrganization org = ucsbOrganizationRepository.save(org("ZPR"));
+    entityChanges.record(org, EntityChange.CREATE, NOW.minusDays(31));
+    entityChanges.record(org, EntityChange.UPDATE, NOW.minusDays(29));
+
+    // act
+    int pruned = entityChanges.prune(NOW);
+
+    // assert
+    assertEquals(1, pruned);
+    assertEquals(1, entityChangeRepository.count());
+
+    // relative to the real clock, both are past retention, but the newest row is always kept
+    entityChanges.prune();
+    assertEquals(1, entityChangeRepository.count());
+  }
+
+  @Test
+  void test_sync_collapses_changes_per_entity_into_upserts_and_tombstones() {
+    // arrange
+    UCSBOrganization zpr = ucsbOrganizationRepository.save(org("ZPR"));
+    UCSBOrganization skb = ucsbOrganizationRepository.save(org("SKB"));
+    HelpRequest help = helpRequestRepository.save(help());
+    long start = entityChanges.record(zpr, EntityChange.CREATE, NOW.minusSeconds(10)).getSeq() - 1;
+    entityChanges.record(skb, EntityChange.CREATE, NOW.minusSeconds(9));
+    entityChanges.record(help, EntityChange.CREATE, NOW.minusSeconds(9));
+    help.setSolved(true);
+    entityChanges.record(help, EntityChange.UPDATE, NOW.minusSeconds(8));
+    zpr.setInactive(true);
+    entityChanges.record(zpr, EntityChange.UPDATE, NOW.minusSeconds(8));
+    entityChanges.record(skb, EntityChange.DELETE, NOW.minusSeconds(7));
+    entityChanges.record(help, EntityChange.DELETE, NOW.minusSeconds(7));
+
+    // act
+    SyncResponse orgs = entityChanges.sync(UCSBOrganization.class, start, 10, NOW);
+    SyncResponse helps = entityChanges.sync(HelpRequest.class, start, 10, NOW);
+
+    // assert
+    assertEquals(1, orgs.getUpserts().size());
+    assertEquals(true, orgs.getUpserts().get(0).rawValue().toString().contains("\"inactive\":true"));
+    assertEquals(List.of("SKB"), orgs.getTombstones());
+    assertEquals(start + 6, orgs.getVersion());
+    assertEquals(false, orgs.getMore());
+    assertEquals(false, orgs.getReset());
+    assertEquals(List.of(), helps.getUpserts());
+    assertEquals(List.of(help.getId()), helps.getTombstones());
+
+    // nothing new since the returned version
+    SyncResponse again = entityChanges.sync(UCSBOrganization.class, orgs.getVersion(), 10, NOW);
+    assertEquals(List.of(), again.getUpserts());
+    assertEquals(orgs.getVersion(), again.getVersion());
+  }
+
+  @Test
+  void test_sync_pages_with_more() {
+    // arrange
+    UCSBOrganization zpr = ucsbOrganizationRepository.save(org("ZPR"));
+    long first = entityChanges.record(zpr, EntityChange.CREATE, NOW.minusSeconds(10)).getSeq();
+    entityChanges.record(zpr, EntityChange.UPDATE, NOW.minusSeconds(9));
+
+    // act
+    SyncResponse page = entityChanges.sync(UCSBOrganization.class, first - 1, 1, NOW);
+
+    // assert
+    assertEquals(true, page.getMore());
+    assertEquals(first, page.getVersion());
+    assertEquals(false, entityChanges.sync(UCSBOrganization.class, page.getVersion(), 2).getMore());
+    assertThrows(BadRequestException.class, () -> entityChanges.sync(UCSBOrganization.class, 0, 0));
+  }
+
+  @Test
+  void test_sync_asks_for_a_reset_when_history_was_pruned() {
+    // nothing recorded yet: a fresh client starts from zero, a stale one resets
+    assertEquals(false, entityChanges.sync(UCSBOrganization.class, 0, 10, NOW).getReset());
+    SyncResponse empty = entityChanges.sync(UCSBOrganization.class, 5, 10, NOW);
+    assertEquals(true, empty.getReset());
+    assertEquals(0, empty.getVersion());
+
+    // arrange
+    UCSBOrganization zpr = ucsbOrganizationRepository.save(org("ZPR"));
+    long first = entityChanges.record(zpr, EntityChange.CREATE, NOW.minusDays(40)).getSeq();
+    entityChanges.record(zpr, EntityChange.UPDATE, NOW.minusDays(39));
+    long last = entityChanges.record(zpr, EntityChange.UPDATE, NOW.minusSeconds(10)).getSeq();
+    entityChanges.prune(NOW);
+
+    // act
+    SyncResponse stale = entityChanges.sync(UCSBOrganization.class, first, 10, NOW);
+    SyncResponse current = entityChanges.sync(UCSBOrganization.class, last - 1, 10, NOW);
+
+    // assert
+    assertEquals(true, stale.getReset());
+    assertEquals(last, stale.getVersion());
+    assertEquals(List.of(), stale.getUpserts());
+    assertEquals(false, current.getReset());
+    assertEquals(1, current.getUpserts().size());
+  }
+
+  private static HelpRequest help() {
+    return HelpRequest.builder()
+        .requesterEmail("cgaucho@ucsb.edu")
+        .teamId("s22-5pm-1")
+        .tableOrBreakoutRoom("7")
+        .requestTime(LocalDateTime.parse("2022-04-20T17:35:00"))
+        .explanation("help")
+        .solved(false)
+        .build();
+  }
+
+  private static List<Long> seqs(ChangeFeed feed) {
+    return feed.getChanges().stream().map(EntityChange::getSeq).collect(Collectors.toList());
+  }
+
+  private static UCSBOrganization org(String code) {
+    return UCSBOrganization.builder()
+        .orgCode(code)
+        .orgTranslationShort("Zeta Phi Rho")
+        .orgTranslation("Zeta Phi Rho")
+        .inactive(false)
+        .build();
+  }
+}
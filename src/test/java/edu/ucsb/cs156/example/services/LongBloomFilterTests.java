@@ -0,0 +1,29 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class LongBloomFilterTests {
+
+  @Test
+  void test_added_keys_are_always_found_and_false_positives_are_rare() {
+    LongBloomFilter filter = new LongBloomFilter(16);
+    for (long id = 1; id <= 5000; id++) {
+      filter.add(id);
+      filter.add(id); // adding twice is harmless
+    }
+    for (long id = 1; id <= 5000; id++) {
+      assertTrue(filter.mightContain(id));
+    }
+
+    // 5000 keys in 65536 bits with 4 hashes: about 0.6% false positives
+    int falsePositives = 0;
+    for (long id = 1_000_000; id < 1_100_000; id++) {
+      if (filter.mightContain(id)) {
+        falsePositives++;
+      }
+    }
+    assertTrue(falsePositives < 1500, "false positives: " + falsePositives);
+  }
+}
@@ -0,0 +1,233 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionOperations;
+
+import edu.ucsb.cs156.example.entities.MenuItemReview;
+import edu.ucsb.cs156.example.errors.WriteQueueFullException;
+import edu.ucsb.cs156.example.repositories.MenuItemReviewRepository;
+
+class MenuItemReviewWriteBehindServiceTests {
+
+  MenuItemReviewRepository repository = mock(MenuItemReviewRepository.class);
+  EntityChangeService entityChanges = mock(EntityChangeService.class);
+  MenuItemReviewWriteBehindService service = new MenuItemReviewWriteBehindService();
+  AtomicLong ids = new AtomicLong();
+  List<Integer> batchSizes = new ArrayList<>();
+
+  void start(int queueCapacity, int batchSize, long flushIntervalMs) {
+    service.menuItemReviewRepository = repository;
+    service.entityChanges = entityChanges;
+    service.transactionOperations = TransactionOperations.withoutTransaction();
+    service.enabled = true;
+    service.syncAck = true;
+    service.queueCapacity = queueCapacity;
+    service.batchSize = batchSize;
+    service.flushIntervalMs = flushIntervalMs;
+    service.offerTimeoutMs = 10;
+    when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+      List<MenuItemReview> reviews = invocation.getArgument(0);
+      synchronized (batchSizes) {
+        batchSizes.add(reviews.size());
+      }
+      reviews.forEach(r -> r.setId(ids.incrementAndGet()));
+      return reviews;
+    });
+    service.start();
+  }
+
+  @AfterEach
+  void stop() throws InterruptedException {
+    service.stop();
+  }
+
+  @Test
+  void test_disabled_service_does_not_start() throws Exception {
+    service.enabled = false;
+    service.start();
+    assertFalse(service.isEnabled());
+    assertEquals(0, service.pending());
+    assertThrows(IllegalStateException.class, () -> service.submit(review("a")));
+  }
+
+  @Test
+  void test_reviews_are_saved_in_batches_and_futures_complete_with_ids() throws Exception {
+    start(100, 10, 200);
+    assertTrue(service.isEnabled());
+    assertTrue(service.isSyncAck());
+
+    List<CompletableFuture<MenuItemReview>> futures = new ArrayList<>();
+    for (int i = 0; i < 25; i++) {
+      futures.add(service.submit(review("r" + i)));
+    }
+    for (int i = 0; i < 25; i++) {
+      MenuItemReview saved = futures.get(i).get(5, TimeUnit.SECONDS);
+      assertEquals("r" + i, saved.getComments());
+      assertTrue(saved.getId() > 0);
+    }
+    assertEquals(25, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    assertTrue(batchSizes.stream().allMatch(size -> size <= 10), batchSizes.toString());
+    assertTrue(batchSizes.size() <= 5, batchSizes.toString());
+    verify(entityChanges, times(25)).created(any());
+  }
+
+  @Test
+  void test_full_queue_pushes_back_and_shutdown_flushes_everything() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    start(2, 1, 1);
+    doAnswer(invocation -> {
+      release.await();
+      List<MenuItemReview> reviews = invocation.getArgument(0);
+      return reviews;
+    }).when(repository).saveAll(anyList());
+
+    // the writer takes the first review and blocks; the next two fill the queue
+    List<CompletableFuture<MenuItemReview>> futures = new ArrayList<>();
+    futures.add(service.submit(review("a")));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (service.pending() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    futures.add(service.submit(review("b")));
+    futures.add(service.submit(review("c")));
+    assertThrows(WriteQueueFullException.class, () -> service.submit(review("d")));
+
+    release.countDown();
+    service.stop();
+
+    for (CompletableFuture<MenuItemReview> future : futures) {
+      assertTrue(future.isDone());
+    }
+    assertFalse(service.isEnabled());
+  }
+
+  @Test
+  void test_a_submit_waiting_on_a_full_queue_during_shutdown_is_still_flushed() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    start(1, 1, 1);
+    service.offerTimeoutMs = 5000;
+    doAnswer(invocation -> {
+      release.await();
+      return invocation.getArgument(0);
+    }).when(repository).saveAll(anyList());
+
+    // the writer blocks on "a", "b" fills the queue and "c" waits for room
+    CompletableFuture<MenuItemReview> a = service.submit(review("a"));
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (service.pending() > 0 && System.nanoTime() < deadline) {
+      Thread.sleep(1);
+    }
+    CompletableFuture<MenuItemReview> b = service.submit(review("b"));
+    CompletableFuture<CompletableFuture<MenuItemReview>> c = CompletableFuture.supplyAsync(() -> {
+      try {
+        return service.submit(review("c"));
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    Thread.sleep(50);
+    CompletableFuture<Void> stopped = CompletableFuture.runAsync(() -> {
+      try {
+        service.stop();
+      } catch (InterruptedException e) {
+        throw new IllegalStateException(e);
+      }
+    });
+    Thread.sleep(50);
+
+    release.countDown();
+    stopped.get(5, TimeUnit.SECONDS);
+
+    assertTrue(a.isDone());
+    assertTrue(b.isDone());
+    assertEquals("c", c.get(5, TimeUnit.SECONDS).get(0, TimeUnit.SECONDS).getComments());
+  }
+
+  @Test
+  void test_a_submit_after_stop_is_saved_right_away() throws Exception {
+    start(10, 10, 1);
+    service.stop();
+    when(repository.save(any())).thenAnswer(invocation -> {
+      MenuItemReview review = invocation.getArgument(0);
+      review.setId(ids.incrementAndGet());
+      return review;
+    });
+
+    CompletableFuture<MenuItemReview> d = service.submit(review("d"));
+
+    assertTrue(d.isDone());
+    assertEquals("d", d.get().getComments());
+    assertEquals(1L, d.get().getId());
+    verify(repository, never()).saveAll(anyList());
+    verify(entityChanges, times(1)).created(d.get());
+  }
+
+  @Test
+  void test_a_failing_batch_is_retried_row_by_row() throws Exception {
+    start(100, 10, 1);
+    when(repository.saveAll(anyList())).thenAnswer(invocation -> {
+      List<MenuItemReview> reviews = invocation.getArgument(0);
+      reviews.forEach(r -> r.setId(ids.incrementAndGet()));
+      throw new IllegalArgumentException("constraint");
+    });
+    when(repository.save(any())).thenAnswer(invocation -> {
+      MenuItemReview review = invocation.getArgument(0);
+      // the retry must insert, not merge onto the rolled back batch's ids
+      assertEquals(0L, review.getId());
+      if (review.getComments().equals("bad")) {
+        throw new IllegalArgumentException("bad row");
+      }
+      return review;
+    });
+
+    CompletableFuture<MenuItemReview> good = service.submit(review("good"));
+    CompletableFuture<MenuItemReview> bad = service.submit(review("bad"));
+
+    assertEquals("good", good.get(5, TimeUnit.SECONDS).getComments());
+    ExecutionException e = assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+    assertEquals("bad row", e.getCause().getMessage());
+    verify(repository, atLeastOnce()).save(any());
+    verify(entityChanges, times(1)).created(good.get());
+  }
+
+  @Test
+  void test_empty_flush_does_nothing() {
+    service.menuItemReviewRepository = repository;
+    service.flush(List.of());
+    verify(repository, never()).saveAll(anyList());
+  }
+
+  private static MenuItemReview review(String comments) {
+    return MenuItemReview.builder()
+        .itemId(1L)
+        .reviewerEmail("cgaucho@ucsb.edu")
+        .stars(4)
+        .dateReviewed(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .comments(comments)
+        .build();
+  }
+}
@@ -0,0 +1,76 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.content;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.method;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withServerError;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.client.RestClientTest;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.client.MockRestServiceServer;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.events.RecommendationRequestReminderEvent;
+
+@RestClientTest(RecommendationRequestReminderNotifier.class)
+@TestPropertySource(properties = "app.reminders.webhookUrl=https://hooks.example.org/reminders")
+class RecommendationRequestReminderNotifierTests {
+
+  @Autowired
+  MockRestServiceServer server;
+
+  @Autowired
+  RecommendationRequestReminderNotifier notifier;
+
+  @Test
+  void test_each_batch_is_posted_to_the_webhook() {
+    server.expect(requestTo("https://hooks.example.org/reminders"))
+        .andExpect(method(HttpMethod.POST))
+        .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+        .andExpect(content().json("[{\"id\":7,\"professorEmail\":\"prof@ucsb.edu\",\"dateNeeded\":\"2022-03-01T13:00:00\"}]"))
+        .andRespond(withSuccess());
+
+    notifier.sendReminders(new RecommendationRequestReminderEvent(this, List.of(request())));
+
+    server.verify();
+  }
+
+  @Test
+  void test_a_failed_post_is_logged_not_thrown() {
+    server.expect(requestTo("https://hooks.example.org/reminders")).andRespond(withServerError());
+
+    notifier.sendReminders(new RecommendationRequestReminderEvent(this, List.of(request())));
+
+    server.verify();
+  }
+
+  @Test
+  void test_without_a_webhook_reminders_are_only_logged() {
+    RecommendationRequestReminderNotifier logOnly = new RecommendationRequestReminderNotifier(new RestTemplateBuilder(), "", 1000);
+
+    logOnly.sendReminders(new RecommendationRequestReminderEvent(this, List.of(request())));
+
+    server.verify();
+  }
+
+  private static RecommendationRequest request() {
+    return RecommendationRequest.builder()
+        .id(7L)
+        .requesterEmail("student@ucsb.edu")
+        .professorEmail("prof@ucsb.edu")
+        .explanation("na")
+        .dateRequested(LocalDateTime.parse("2022-01-01T00:00:00"))
+        .dateNeeded(LocalDateTime.parse("2022-03-01T13:00:00"))
+        .done(false)
+        .build();
+  }
+}
@@ -0,0 +1,246 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.event.ApplicationEvents;
+import org.springframework.test.context.event.RecordApplicationEvents;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.RecommendationRequest;
+import edu.ucsb.cs156.example.events.RecommendationRequestReminderEvent;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import(RecommendationRequestReminderService.class)
+@ContextConfiguration
+@RecordApplicationEvents
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@TestPropertySource(properties = {
+    "app.reminders.leadTimeMinutes=60",
+    "app.reminders.lookaheadMinutes=120",
+    "app.reminders.batchSize=2"
+})
+class RecommendationRequestReminderServiceTests {
+
+  static final LocalDateTime NOW = LocalDateTime.parse("2022-03-01T12:00:00");
+
+  @MockBean
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  RecommendationRequestReminderService reminders;
+
+  @Autowired
+  ApplicationEvents events;
+
+  @Test
+  void test_due_requests_are_published_in_batches_and_only_once() {
+    // arrange
+    RecommendationRequest dueSoon = request(2L, "2022-03-01T12:30:00");
+    RecommendationRequest dueAtLeadTime = request(3L, "2022-03-01T13:00:00");
+    RecommendationRequest dueAtLeadTimeToo = request(5L, "2022-03-01T13:00:00");
+    RecommendationRequest later = request(4L, "2022-03-01T14:00:00");
+
+    when(recommendationRequestRepository.findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(
+        NOW, LocalDateTime.parse("2022-03-01T15:00:00")))
+        .thenReturn(List.of(later, dueAtLeadTimeToo, dueSoon, dueAtLeadTime));
+
+    // act
+    int reminded = reminders.sendReminders(NOW);
+
+    // assert
+    assertEquals(3, reminded);
+    assertEquals(1, reminders.size());
+    List<List<Long>> batches = batchIds();
+    assertEquals(List.of(List.of(2L, 3L), List.of(5L)), batches);
+
+    // a second tick in the same window neither reminds again nor queries again
+    assertEquals(0, reminders.sendReminders(NOW.plusMinutes(1)));
+    verify(recommendationRequestRepository, times(1))
+        .findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(any(), any());
+  }
+
+  @Test
+  void test_first_load_leaves_out_requests_that_are_already_past_due() {
+    // arrange
+    when(recommendationRequestRepository.findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(any(), any()))
+        .thenReturn(List.of());
+
+    // act
+    int reminded = reminders.sendReminders(NOW);
+
+    // assert: past-due requests were reminded before the restart
+    assertEquals(0, reminded);
+    verify(recommendationRequestRepository, times(1))
+        .findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(NOW, LocalDateTime.parse("2022-03-01T15:00:00"));
+  }
+
+  @Test
+  void test_queue_is_refilled_from_where_the_last_load_stopped() {
+    // arrange
+    RecommendationRequest later = request(4L, "2022-03-01T14:00:00");
+    RecommendationRequest muchLater = request(5L, "2022-03-01T16:30:00");
+
+    when(recommendationRequestRepository.findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(
+        NOW, LocalDateTime.parse("2022-03-01T15:00:00")))
+        .thenReturn(List.of(later));
+    when(recommendationRequestRepository.findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(
+        LocalDateTime.parse("2022-03-01T15:00:00"), LocalDateTime.parse("2022-03-01T18:30:00")))
+        .thenReturn(List.of(later, muchLater));
+
+    // act
+    reminders.sendReminders(NOW);
+    int reminded = reminders.sendReminders(NOW.plusMinutes(210));
+
+    // assert
+    assertEquals(2, reminded);
+    assertEquals(0, reminders.size());
+    assertEquals(List.of(List.of(4L, 5L)), batchIds());
+  }
+
+  @Test
+  void test_track_and_untrack_keep_the_queue_current() {
+    // arrange
+    when(recommendationRequestRepository.findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(any(), any()))
+        .thenReturn(List.of());
+
+    // before the first load, tracking is a no-op
+    reminders.track(request(9L, "2022-03-01T14:00:00"));
+    assertEquals(0, reminders.size());
+
+    reminders.sendReminders(NOW);
+
+    // act
+    reminders.track(request(10L, "2022-03-01T14:00:00"));
+    reminders.track(request(11L, "2022-03-01T14:00:00"));
+    reminders.track(request(12L, "2022-03-02T14:00:00")); // beyond the loaded window
+    reminders.track(request(13L, null));
+    RecommendationRequest done = request(11L, "2022-03-01T14:00:00");
+    done.setDone(true);
+    reminders.track(done);
+    reminders.untrack(42L);
+    assertEquals(1, reminders.size());
+    reminders.track(request(10L, "2022-03-01T12:10:00"));
+    assertEquals(1, reminders.size());
+
+    // assert
+    assertEquals(1, reminders.sendReminders(NOW));
+    assertEquals(List.of(List.of(10L)), batchIds());
+
+    reminders.track(request(14L, "2022-03-01T14:00:00"));
+    reminders.untrack(14L);
+    assertEquals(0, reminders.size());
+  }
+
+  @Test
+  void test_scheduled_entry_point_uses_the_current_time() {
+    when(recommendationRequestRepository.findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(any(), any()))
+        .thenReturn(List.of(request(1L, "2000-01-01T00:00:00")));
+
+    reminders.sendReminders();
+
+    assertEquals(List.of(List.of(1L)), batchIds());
+  }
+
+  @Test
+  void test_updates_only_requeue_when_the_due_date_or_done_flag_changes() {
+    // arrange
+    RecommendationRequest dueSoon = request(2L, "2022-03-01T12:30:00");
+    when(recommendationRequestRepository.findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(any(), any()))
+        .thenReturn(List.of(dueSoon, request(3L, "2022-03-01T14:00:00")));
+    assertEquals(1, reminders.sendReminders(NOW));
+
+    // act: an already reminded request is edited without moving its due date
+    RecommendationRequest edited = request(2L, "2022-03-01T12:30:00");
+    edited.setExplanation("more detail");
+    reminders.updated(dueSoon.getDateNeeded(), false, edited);
+    RecommendationRequest renamed = request(3L, "2022-03-01T14:00:00");
+    renamed.setProfessorEmail("other@ucsb.edu");
+    reminders.updated(renamed.getDateNeeded(), false, renamed);
+
+    // assert
+    assertEquals(1, reminders.size());
+    assertEquals(0, reminders.sendReminders(NOW.plusMinutes(1)));
+
+    // a new due date does re-queue it
+    RecommendationRequest postponed = request(2L, "2022-03-01T13:30:00");
+    reminders.updated(dueSoon.getDateNeeded(), false, postponed);
+    assertEquals(2, reminders.size());
+    assertEquals(1, reminders.sendReminders(NOW.plusMinutes(40)));
+
+    // the queued copy was refreshed by the edit
+    assertEquals(1, reminders.sendReminders(NOW.plusMinutes(120)));
+    List<RecommendationRequest> last = events.stream(RecommendationRequestReminderEvent.class)
+        .reduce((first, second) -> second).get().getRequests();
+    assertEquals(List.of("other@ucsb.edu"), last.stream().map(RecommendationRequest::getProfessorEmail).collect(Collectors.toList()));
+  }
+
+  @Test
+  void test_only_the_leader_sends_reminders() {
+    reminders.leader = false;
+
+    reminders.sendReminders();
+
+    assertEquals(0, events.stream(RecommendationRequestReminderEvent.class).count());
+    verify(recommendationRequestRepository, times(0))
+        .findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(any(), any());
+  }
+
+  private List<List<Long>> batchIds() {
+    return events.stream(RecommendationRequestReminderEvent.class)
+        .map(e -> e.getRequests().stream().map(RecommendationRequest::getId).collect(Collectors.toList()))
+        .collect(Collectors.toList());
+  }
+
+  private static RecommendationRequest request(long id, String dateNeeded) {
+    return RecommendationRequest.builder()
+        .id(id)
+        .requesterEmail("student@ucsb.edu")
+        .professorEmail("prof@ucsb.edu")
+        .explanation("na")
+        .dateRequested(LocalDateTime.parse("2022-01-01T00:00:00"))
+        .dateNeeded(dateNeeded == null ? null : LocalDateTime.parse(dateNeeded))
+        .done(false)
+        .build();
+  }
+
+
+  @Test
+  void test_track_and_untrack_wait_for_the_commit() {
+    when(recommendationRequestRepository.findAllByDoneFalseAndDateNeededAfterAndDateNeededLessThanEqual(any(), any()))
+        .thenReturn(List.of(request(1L, "2022-03-01T14:00:00")));
+    reminders.sendReminders(NOW);
+
+    try {
+      TransactionSynchronizationManager.initSynchronization();
+      reminders.track(request(10L, "2022-03-01T14:00:00"));
+      reminders.untrack(1L);
+      assertEquals(1, reminders.size());
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    assertEquals(1, reminders.size());
+    assertEquals(1, reminders.sendReminders(NOW.plusMinutes(60)));
+    assertEquals(List.of(List.of(10L)), batchIds());
+  }
+}
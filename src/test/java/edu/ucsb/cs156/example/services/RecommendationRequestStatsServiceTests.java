@@ -0,0 +1,101 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.models.RecommendationRequestCount;
+import edu.ucsb.cs156.example.repositories.RecommendationRequestRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import(RecommendationRequestStatsService.class)
+@ContextConfiguration
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class RecommendationRequestStatsServiceTests {
+
+  @MockBean
+  RecommendationRequestRepository recommendationRequestRepository;
+
+  @Autowired
+  RecommendationRequestStatsService stats;
+
+  RecommendationRequestCount profAPending = new RecommendationRequestCount("a@ucsb.edu", false, 2L);
+  RecommendationRequestCount profADone = new RecommendationRequestCount("a@ucsb.edu", true, 5L);
+  RecommendationRequestCount profBPending = new RecommendationRequestCount("b@ucsb.edu", false, 1L);
+
+  @Test
+  void test_professor_counts_are_cached_and_filtered() {
+    when(recommendationRequestRepository.countByProfessorEmailAndDone())
+        .thenReturn(List.of(profAPending, profADone, profBPending));
+
+    assertEquals(List.of(profAPending, profADone, profBPending), stats.countsByProfessor(null));
+    assertEquals(List.of(profBPending), stats.countsByProfessor("b@ucsb.edu"));
+    assertEquals(List.of(), stats.countsByProfessor("nobody@ucsb.edu"));
+
+    verify(recommendationRequestRepository, times(1)).countByProfessorEmailAndDone();
+  }
+
+  @Test
+  void test_requester_counts_are_reloaded_after_invalidate() {
+    when(recommendationRequestRepository.countByRequesterEmailAndDone())
+        .thenReturn(List.of(profAPending))
+        .thenReturn(List.of(profAPending, profBPending));
+
+    assertEquals(List.of(profAPending), stats.countsByRequester(null));
+    assertEquals(List.of(profAPending), stats.countsByRequester("a@ucsb.edu"));
+
+    stats.invalidate();
+
+    assertEquals(List.of(profAPending, profBPending), stats.countsByRequester(null));
+    assertEquals(List.of(profAPending, profBPending), stats.countsByRequester(null));
+    verify(recommendationRequestRepository, times(2)).countByRequesterEmailAndDone();
+  }
+
+  @Test
+  void test_invalidate_also_reloads_professor_counts() {
+    when(recommendationRequestRepository.countByProfessorEmailAndDone())
+        .thenReturn(List.of(profAPending));
+
+    stats.countsByProfessor(null);
+    stats.invalidate();
+    stats.countsByProfessor(null);
+
+    verify(recommendationRequestRepository, times(2)).countByProfessorEmailAndDone();
+  }
+
+
+  @Test
+  void test_invalidate_takes_effect_when_the_write_commits() {
+    when(recommendationRequestRepository.countByProfessorEmailAndDone())
+        .thenReturn(List.of(profAPending));
+
+    stats.countsByProfessor(null);
+    try {
+      TransactionSynchronizationManager.initSynchronization();
+      stats.invalidate();
+      // a reader during the write still sees (and does not re-cache) the old counts
+      stats.countsByProfessor(null);
+      verify(recommendationRequestRepository, times(1)).countByProfessorEmailAndDone();
+
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+    stats.countsByProfessor(null);
+    verify(recommendationRequestRepository, times(2)).countByProfessorEmailAndDone();
+  }
+}
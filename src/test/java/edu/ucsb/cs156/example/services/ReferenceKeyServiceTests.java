@@ -0,0 +1,117 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsMenuItemRepository;
+import edu.ucsb.cs156.example.repositories.UCSBDiningCommonsRepository;
+
+class ReferenceKeyServiceTests {
+
+  UCSBDiningCommonsRepository commonsRepository = mock(UCSBDiningCommonsRepository.class);
+  UCSBDiningCommonsMenuItemRepository menuItemRepository = mock(UCSBDiningCommonsMenuItemRepository.class);
+  ReferenceKeyService referenceKeys = new ReferenceKeyService();
+
+  @BeforeEach
+  void setup() {
+    referenceKeys.ucsbDiningCommonsRepository = commonsRepository;
+    referenceKeys.ucsbDiningCommonsMenuItemRepository = menuItemRepository;
+    referenceKeys.bloomLog2Bits = 16;
+    when(commonsRepository.findAllCodes()).thenReturn(List.of("ortega", "portola"));
+    when(menuItemRepository.findAllIds()).thenReturn(List.of(1L, 2L, 3L, 4L));
+  }
+
+  @AfterEach
+  void teardown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  void test_dining_commons_codes_are_loaded_once_and_kept_current() {
+    referenceKeys.checkDiningCommonsCode("ortega");
+    referenceKeys.checkDiningCommonsCode(null);
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> referenceKeys.checkDiningCommonsCode("carrillo"));
+    assertEquals("Unknown dining commons code 'carrillo'", e.getMessage());
+
+    referenceKeys.diningCommonsAdded("carrillo");
+    referenceKeys.checkDiningCommonsCode("carrillo");
+    referenceKeys.diningCommonsRemoved("ortega");
+    assertThrows(BadRequestException.class, () -> referenceKeys.checkDiningCommonsCode("ortega"));
+
+    verify(commonsRepository, times(1)).findAllCodes();
+  }
+
+  @Test
+  void test_menu_item_ids_are_checked_against_the_filter() {
+    referenceKeys.checkMenuItemId(1L);
+    referenceKeys.checkMenuItemId(null);
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> referenceKeys.checkMenuItemId(99L));
+    assertEquals("Unknown menu item id 99", e.getMessage());
+
+    referenceKeys.menuItemAdded(99L);
+    referenceKeys.checkMenuItemId(99L);
+    verify(menuItemRepository, times(1)).findAllIds();
+  }
+
+  @Test
+  void test_filter_is_rebuilt_once_a_quarter_of_the_items_are_deleted() {
+    referenceKeys.checkMenuItemId(1L);
+
+    // 4 items at build: the first delete is within budget, the second is not
+    referenceKeys.menuItemRemoved(1L);
+    referenceKeys.checkMenuItemId(1L);
+    verify(menuItemRepository, times(1)).findAllIds();
+
+    when(menuItemRepository.findAllIds()).thenReturn(List.of(3L, 4L));
+    referenceKeys.menuItemRemoved(2L);
+    assertThrows(BadRequestException.class, () -> referenceKeys.checkMenuItemId(1L));
+    verify(menuItemRepository, times(2)).findAllIds();
+  }
+
+  @Test
+  void test_removals_wait_for_the_transaction_to_commit() {
+    referenceKeys.checkDiningCommonsCode("ortega");
+    TransactionSynchronizationManager.initSynchronization();
+
+    referenceKeys.diningCommonsRemoved("ortega");
+    referenceKeys.checkDiningCommonsCode("ortega");
+
+    TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    assertThrows(BadRequestException.class, () -> referenceKeys.checkDiningCommonsCode("ortega"));
+  }
+
+  @Test
+  void test_keys_created_elsewhere_are_confirmed_in_the_database_and_remembered() {
+    when(commonsRepository.existsById("carrillo")).thenReturn(true);
+    when(menuItemRepository.existsById(99L)).thenReturn(true);
+
+    referenceKeys.checkDiningCommonsCode("carrillo");
+    referenceKeys.checkDiningCommonsCode("carrillo");
+    referenceKeys.checkMenuItemId(99L);
+    referenceKeys.checkMenuItemId(99L);
+    assertThrows(BadRequestException.class, () -> referenceKeys.checkDiningCommonsCode("de-la-guerra"));
+
+    verify(commonsRepository, times(1)).existsById("carrillo");
+    verify(menuItemRepository, times(1)).existsById(99L);
+    verify(commonsRepository, times(1)).existsById("de-la-guerra");
+    verify(commonsRepository, never()).existsById("ortega");
+  }
+}
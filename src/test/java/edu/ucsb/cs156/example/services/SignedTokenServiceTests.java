@@ -0,0 +1,124 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import edu.ucsb.cs156.example.entities.User;
+import edu.ucsb.cs156.example.models.SignedToken;
+
+@ExtendWith(SpringExtension.class)
+@Import({ SignedTokenService.class, JacksonAutoConfiguration.class })
+@ContextConfiguration
+@TestPropertySource(properties = {
+    "app.auth.stateless=true",
+    "app.auth.tokenSecret=test-secret",
+    "app.auth.tokenTtlMinutes=60"
+})
+class SignedTokenServiceTests {
+
+  static final Instant NOW = Instant.parse("2022-03-01T12:00:00Z");
+
+  @MockBean
+  CurrentUserService currentUserService;
+
+  @Autowired
+  SignedTokenService signedTokenService;
+
+  @Test
+  void test_issued_token_round_trips_until_it_expires() {
+    // arrange
+    User user = User.builder().id(7L).email("cgaucho@ucsb.edu").googleSub("115856948234298493496").build();
+    when(currentUserService.getUser()).thenReturn(user);
+    TestingAuthenticationToken authentication = new TestingAuthenticationToken("cgaucho", null, "ROLE_USER", "ROLE_MEMBER");
+
+    // act
+    String token = signedTokenService.issue(authentication, NOW);
+
+    // assert
+    SignedToken expected = new SignedToken(7L, "115856948234298493496", "cgaucho@ucsb.edu",
+        Set.of("ROLE_USER", "ROLE_MEMBER"), NOW.getEpochSecond() + 3600);
+    assertEquals(Optional.of(expected), signedTokenService.verify(token, NOW.plusSeconds(3599)));
+    assertEquals(Optional.empty(), signedTokenService.verify(token, NOW.plusSeconds(3600)));
+  }
+
+  @Test
+  void test_tampered_or_malformed_tokens_are_rejected() {
+    String signed = signedTokenService.sign(SignedTokenService.AUTH_TOKEN,
+        "{\"uid\":1,\"sub\":\"1\",\"email\":\"a@ucsb.edu\",\"roles\":[\"ROLE_USER\"],\"exp\":9999999999}".getBytes());
+    String forged = signedTokenService.sign(SignedTokenService.AUTH_TOKEN,
+        "{\"uid\":1,\"sub\":\"1\",\"email\":\"a@ucsb.edu\",\"roles\":[\"ROLE_ADMIN\"],\"exp\":9999999999}".getBytes());
+    String tampered = forged.substring(0, forged.indexOf('.')) + signed.substring(signed.indexOf('.'));
+
+    assertTrue(signedTokenService.verify(signed, NOW).isPresent());
+    for (String bad : List.of(tampered, "no-dot", "!!!.???", "",
+        signedTokenService.sign(SignedTokenService.AUTH_TOKEN, "not json".getBytes()))) {
+      assertEquals(Optional.empty(), signedTokenService.verify(bad, NOW), bad);
+    }
+    assertEquals(Optional.empty(), signedTokenService.unsign(SignedTokenService.AUTH_TOKEN, null));
+  }
+
+  @Test
+  void test_tokens_missing_sub_email_or_roles_are_rejected() {
+    for (String claims : List.of(
+        "{\"uid\":1,\"email\":\"a@ucsb.edu\",\"roles\":[\"ROLE_USER\"],\"exp\":9999999999}",
+        "{\"uid\":1,\"sub\":\"1\",\"roles\":[\"ROLE_USER\"],\"exp\":9999999999}",
+        "{\"uid\":1,\"sub\":\"1\",\"email\":\"a@ucsb.edu\",\"exp\":9999999999}")) {
+      String token = signedTokenService.sign(SignedTokenService.AUTH_TOKEN, claims.getBytes());
+      assertEquals(Optional.empty(), signedTokenService.verify(token, NOW), claims);
+    }
+  }
+
+  @Test
+  void test_a_value_signed_for_one_purpose_is_not_accepted_for_another() {
+    byte[] claims = "{\"uid\":1,\"sub\":\"1\",\"email\":\"a@ucsb.edu\",\"roles\":[\"ROLE_ADMIN\"],\"exp\":9999999999}".getBytes();
+    String authRequest = signedTokenService.sign(SignedTokenService.AUTH_REQUEST, claims);
+
+    assertEquals(Optional.empty(), signedTokenService.verify(authRequest, NOW));
+    assertEquals(Optional.empty(), signedTokenService.unsign(SignedTokenService.AUTH_TOKEN, authRequest));
+    assertArrayEquals(claims, signedTokenService.unsign(SignedTokenService.AUTH_REQUEST, authRequest).get());
+  }
+
+  @Test
+  void test_raw_bytes_round_trip() {
+    byte[] payload = { 0, 1, 2, (byte) 0xff };
+    assertArrayEquals(payload, signedTokenService.unsign("test", signedTokenService.sign("test", payload)).get());
+    assertEquals(3600, signedTokenService.getTokenTtlSeconds());
+  }
+
+  @Test
+  void test_expiring_payload_round_trips_until_it_expires() {
+    byte[] payload = { 0, 1, 2, (byte) 0xff };
+    String signed = signedTokenService.sign("test", payload, NOW.plusSeconds(300));
+
+    assertArrayEquals(payload, signedTokenService.unsign("test", signed, NOW.plusSeconds(299)).get());
+    assertEquals(Optional.empty(), signedTokenService.unsign("test", signed, NOW.plusSeconds(300)));
+    assertEquals(Optional.empty(), signedTokenService.unsign("test", signedTokenService.sign("test", new byte[3]), NOW));
+  }
+
+  @Test
+  void test_a_blank_secret_fails_at_startup() {
+    SignedTokenService service = new SignedTokenService();
+    service.tokenSecret = " ";
+    IllegalStateException e = assertThrows(IllegalStateException.class, service::init);
+    assertEquals("app.auth.tokenSecret (AUTH_TOKEN_SECRET) must be set when app.auth.stateless=true", e.getMessage());
+  }
+}
@@ -0,0 +1,128 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ActiveProfiles;
+
+import edu.ucsb.cs156.example.entities.HelpRequest;
+import edu.ucsb.cs156.example.errors.BadRequestException;
+import edu.ucsb.cs156.example.repositories.EntitySpecifications;
+import edu.ucsb.cs156.example.repositories.HelpRequestRepository;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(SparseFieldsetService.class)
+class SparseFieldsetServiceTests {
+
+  @Autowired
+  HelpRequestRepository helpRequestRepository;
+
+  @Autowired
+  SparseFieldsetService sparseFieldsetService;
+
+  @Test
+  void test_findAll_returns_only_requested_fields_in_requested_order() {
+    // arrange
+    HelpRequest saved = helpRequestRepository.save(HelpRequest.builder()
+        .requesterEmail("achiang@ucsb.edu")
+        .teamId("Test1")
+        .tableOrBreakoutRoom("foo1")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("a long explanation nobody asked for")
+        .solved(true)
+        .build());
+
+    // act
+    List<Map<String, Object>> rows = sparseFieldsetService.findAll(HelpRequest.class, List.of("solved", " id", "solved"));
+
+    // assert
+    assertEquals(1, rows.size());
+    assertEquals(List.of("solved", "id"), List.copyOf(rows.get(0).keySet()));
+    assertEquals(true, rows.get(0).get("solved"));
+    assertEquals(saved.getId(), rows.get(0).get("id"));
+  }
+
+  @Test
+  void test_findAll_rejects_unknown_fields() {
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> sparseFieldsetService.findAll(HelpRequest.class, List.of("id", "password")));
+    assertEquals("Unknown field 'password' for HelpRequest", e.getMessage());
+  }
+
+  @Test
+  void test_findAll_skips_blank_field_names() {
+    // arrange
+    HelpRequest saved = helpRequestRepository.save(HelpRequest.builder()
+        .requesterEmail("achiang@ucsb.edu")
+        .teamId("Test1")
+        .tableOrBreakoutRoom("foo1")
+        .requestTime(LocalDateTime.parse("2022-01-03T00:00:00"))
+        .explanation("a trailing comma")
+        .solved(false)
+        .build());
+
+    // act
+    List<Map<String, Object>> rows = sparseFieldsetService.findAll(HelpRequest.class, List.of("id", "", " "));
+
+    // assert
+    assertEquals(List.of(Map.of("id", saved.getId())), rows);
+  }
+
+  @Test
+  void test_findAll_rejects_only_blank_field_names() {
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> sparseFieldsetService.findAll(HelpRequest.class, List.of(" ")));
+    assertEquals("No fields requested for HelpRequest", e.getMessage());
+  }
+
+  @Test
+  void test_findPage_filters_sorts_and_counts_in_the_database() {
+    // arrange
+    for (int i = 1; i <= 5; i++) {
+      helpRequestRepository.save(HelpRequest.builder()
+          .requesterEmail("cgaucho@ucsb.edu")
+          .teamId("team" + i)
+          .tableOrBreakoutRoom("7")
+          .requestTime(LocalDateTime.parse("2022-01-0" + i + "T00:00:00"))
+          .explanation("a long explanation nobody asked for")
+          .solved(i % 2 == 0)
+          .build());
+    }
+    Specification<HelpRequest> unsolved = EntitySpecifications.filter(HelpRequest.class, List.of("solved:false"), Set.of("solved"));
+
+    // act
+    Page<Map<String, Object>> page = sparseFieldsetService.findPage(HelpRequest.class, List.of("teamId"), unsolved,
+        PageRequest.of(0, 2, Sort.by(Sort.Order.desc("requestTime"))));
+    Page<Map<String, Object>> last = sparseFieldsetService.findPage(HelpRequest.class, List.of("teamId", "solved"), unsolved,
+        PageRequest.of(1, 2, Sort.by("teamId")));
+
+    // assert
+    assertEquals(List.of(Map.of("teamId", "team5"), Map.of("teamId", "team3")), page.getContent());
+    assertEquals(3, page.getTotalElements());
+    assertEquals(2, page.getTotalPages());
+    assertEquals(List.of(Map.of("teamId", "team5", "solved", false)), last.getContent());
+    assertEquals(3, last.getTotalElements());
+  }
+
+  @Test
+  void test_findPage_rejects_unknown_fields() {
+    BadRequestException e = assertThrows(BadRequestException.class,
+        () -> sparseFieldsetService.findPage(HelpRequest.class, List.of("password"),
+            EntitySpecifications.filter(HelpRequest.class, (List<String>) null, Set.of()), PageRequest.of(0, 10)));
+    assertEquals("Unknown field 'password' for HelpRequest", e.getMessage());
+  }
+}
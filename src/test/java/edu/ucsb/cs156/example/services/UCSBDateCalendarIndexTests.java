@@ -0,0 +1,135 @@
+package edu.ucsb.cs156.example.services;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import edu.ucsb.cs156.example.entities.UCSBDate;
+import edu.ucsb.cs156.example.repositories.UCSBDateRepository;
+
+@ExtendWith(SpringExtension.class)
+@Import(UCSBDateCalendarIndex.class)
+@ContextConfiguration
+class UCSBDateCalendarIndexTests {
+
+  @MockBean
+  UCSBDateRepository ucsbDateRepository;
+
+  @Autowired
+  UCSBDateCalendarIndex index;
+
+  UCSBDate fallStart = date(1L, "20224", "firstDayOfClasses", "2022-09-22T00:00:00");
+  UCSBDate fallEnd = date(2L, "20224", "lastDayOfClasses", "2022-12-02T00:00:00");
+  UCSBDate winterStart = date(3L, "20231", "firstDayOfClasses", "2023-01-09T00:00:00");
+  UCSBDate sameTimeAsWinterStart = date(4L, "20231", "noon", "2023-01-09T00:00:00");
+
+  @BeforeEach
+  void load() {
+    when(ucsbDateRepository.findAll()).thenReturn(List.of(winterStart, fallEnd, fallStart));
+    index.reload();
+  }
+
+  @Test
+  void test_inQuarter_returns_dates_in_time_order() {
+    assertEquals(List.of(fallStart, fallEnd), index.inQuarter("20224"));
+    assertEquals(List.of(), index.inQuarter("20232"));
+  }
+
+  @Test
+  void test_between_is_inclusive_at_both_ends() {
+    assertEquals(List.of(fallEnd, winterStart),
+        index.between(LocalDateTime.parse("2022-12-02T00:00:00"), LocalDateTime.parse("2023-01-09T00:00:00")));
+  }
+
+  @Test
+  void test_upcoming_returns_at_most_count_dates() {
+    assertEquals(List.of(fallEnd, winterStart), index.upcoming(LocalDateTime.parse("2022-10-01T00:00:00"), 2));
+    assertEquals(List.of(winterStart), index.upcoming(LocalDateTime.parse("2023-01-01T00:00:00"), 10));
+  }
+
+  @Test
+  void test_put_adds_and_replaces_and_remove_deletes() {
+    // same timestamp, different ids: both are kept
+    index.put(sameTimeAsWinterStart);
+    assertEquals(List.of(winterStart, sameTimeAsWinterStart), index.inQuarter("20231"));
+
+    // moving a date to another quarter updates both quarters
+    UCSBDate moved = date(4L, "20232", "noon", "2023-04-03T00:00:00");
+    index.put(moved);
+    assertEquals(List.of(winterStart), index.inQuarter("20231"));
+    assertEquals(List.of(moved), index.inQuarter("20232"));
+
+    index.remove(4L);
+    index.remove(42L);
+    assertEquals(List.of(), index.inQuarter("20232"));
+    assertEquals(List.of(fallStart, fallEnd, winterStart),
+        index.between(LocalDateTime.parse("2000-01-01T00:00:00"), LocalDateTime.parse("2100-01-01T00:00:00")));
+  }
+
+  @Test
+  void test_results_are_copies() {
+    index.inQuarter("20224").get(0).setName("changed");
+    assertEquals("firstDayOfClasses", index.inQuarter("20224").get(0).getName());
+  }
+
+  @Test
+  void test_index_is_loaded_once_on_first_use_and_put_before_load_is_ignored() {
+    UCSBDateCalendarIndex fresh = new UCSBDateCalendarIndex();
+    fresh.ucsbDateRepository = ucsbDateRepository;
+
+    fresh.put(sameTimeAsWinterStart);
+    fresh.inQuarter("20224");
+    fresh.upcoming(LocalDateTime.parse("2022-01-01T00:00:00"), 1);
+
+    // one call from load() in @BeforeEach, one from the fresh index
+    verify(ucsbDateRepository, times(2)).findAll();
+    assertEquals(List.of(winterStart), fresh.inQuarter("20231"));
+  }
+
+  private static UCSBDate date(long id, String quarter, String name, String when) {
+    return UCSBDate.builder()
+        .id(id)
+        .quarterYYYYQ(quarter)
+        .name(name)
+        .localDateTime(LocalDateTime.parse(when))
+        .build();
+  }
+
+
+  @Test
+  void test_put_and_remove_wait_for_the_commit() {
+    try {
+      // a write that rolls back never reaches the index
+      TransactionSynchronizationManager.initSynchronization();
+      index.put(sameTimeAsWinterStart);
+      index.remove(1L);
+      assertEquals(List.of(winterStart), index.inQuarter("20231"));
+      assertEquals(List.of(fallStart, fallEnd), index.inQuarter("20224"));
+      TransactionSynchronizationManager.clearSynchronization();
+
+      TransactionSynchronizationManager.initSynchronization();
+      index.put(sameTimeAsWinterStart);
+      index.remove(1L);
+      TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+      assertEquals(List.of(winterStart, sameTimeAsWinterStart), index.inQuarter("20231"));
+      assertEquals(List.of(fallEnd), index.inQuarter("20224"));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+}